@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+#
+# Starts the application with the given java arguments and reports how long it takes
+# until the first successful /applicable-coupons response and until readiness is UP.
+#
+#   scripts/time-to-first-request.sh -jar target/monk-commerce-coupons-management-1.0.0.jar
+#   cd target/fast-startup && ../../scripts/time-to-first-request.sh \
+#       -XX:SharedArchiveFile=app.jsa -Dspring.profiles.active=fast-startup \
+#       -jar monk-commerce-coupons-management-1.0.0-fast-startup.jar
+#
+set -euo pipefail
+
+PORT="${PORT:-8080}"
+BASE_URL="http://localhost:${PORT}/api/v1"
+CART='{"cart":{"items":[{"product_id":1,"quantity":2,"price":60.0}]}}'
+
+now_ms() { date +%s%3N; }
+
+start=$(now_ms)
+java -Dserver.port="${PORT}" "$@" > startup.log 2>&1 &
+pid=$!
+trap 'kill ${pid} 2>/dev/null || true' EXIT
+
+first_request=""
+while [ -z "${first_request}" ]; do
+  if curl -sf -o /dev/null -H 'Content-Type: application/json' -d "${CART}" "${BASE_URL}/applicable-coupons"; then
+    first_request=$(( $(now_ms) - start ))
+  fi
+  kill -0 ${pid} 2>/dev/null || { echo "application exited, see startup.log"; exit 1; }
+  sleep 0.05
+done
+
+until curl -sf "${BASE_URL}/actuator/health/readiness" | grep -q '"UP"'; do
+  sleep 0.05
+done
+ready=$(( $(now_ms) - start ))
+
+echo "time-to-first-request: ${first_request} ms"
+echo "time-to-ready:         ${ready} ms"
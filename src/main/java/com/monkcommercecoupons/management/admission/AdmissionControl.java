@@ -0,0 +1,137 @@
+package com.monkcommercecoupons.management.admission;
+
+import com.monkcommercecoupons.management.config.AdmissionProperties;
+import com.monkcommercecoupons.management.exception.RateLimitExceededException;
+import com.monkcommercecoupons.management.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Gate in front of the coupon evaluation endpoints: a token bucket per client, then a cap on
+ * evaluations in flight. Both checks fail fast; nothing waits for capacity.
+ */
+@Component
+@Slf4j
+public class AdmissionControl {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AdmissionProperties properties;
+    private final LongSupplier clock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflowBucket;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong nextSweepAt;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    @Autowired
+    public AdmissionControl(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    AdmissionControl(AdmissionProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.properties = properties;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.overflowBucket = newBucket(now);
+        this.nextSweepAt = new AtomicLong(now);
+
+        Gauge.builder("coupons.admission.in.flight", inFlight, AtomicInteger::get)
+                .description("Coupon evaluations currently running")
+                .register(meterRegistry);
+        Gauge.builder("coupons.admission.clients", buckets, Map::size)
+                .description("Clients with a rate limit bucket")
+                .register(meterRegistry);
+        this.rateLimited = Counter.builder("coupons.admission.rejected")
+                .tag("reason", "rate_limited")
+                .description("Requests rejected with 429 or 503")
+                .register(meterRegistry);
+        this.overloaded = Counter.builder("coupons.admission.rejected")
+                .tag("reason", "overloaded")
+                .description("Requests rejected with 429 or 503")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The client a request is metered as: the client header, or the remote address without it.
+     */
+    public String clientKey(HttpServletRequest request) {
+        String client = request.getHeader(properties.getClientHeader());
+        return client != null && !client.isBlank() ? client : request.getRemoteAddr();
+    }
+
+    /**
+     * Admits one evaluation for the client, or throws. Every successful call must be paired with
+     * {@link #release()}.
+     */
+    public void acquire(String clientKey) {
+        long now = clock.getAsLong();
+        long waitNanos = bucketFor(clientKey, now).tryAcquire(now);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            throw new RateLimitExceededException(clientKey, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+        }
+        if (inFlight.incrementAndGet() > properties.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            overloaded.increment();
+            throw new ServiceOverloadedException(properties.getMaxInFlight());
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getTrackedClients() {
+        return buckets.size();
+    }
+
+    private TokenBucket bucketFor(String clientKey, long now) {
+        TokenBucket bucket = buckets.get(clientKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= properties.getMaxClients()) {
+            sweep(now);
+            if (buckets.size() >= properties.getMaxClients()) {
+                return overflowBucket;
+            }
+        }
+        return buckets.computeIfAbsent(clientKey, key -> newBucket(now));
+    }
+
+    /**
+     * Drops the buckets of clients that have been idle long enough to be full again. Runs at most
+     * once a second, on whichever request thread finds the map full.
+     */
+    private void sweep(long now) {
+        long scheduled = nextSweepAt.get();
+        if (now - scheduled < 0 || !nextSweepAt.compareAndSet(scheduled, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        log.debug("Dropped {} idle rate limit buckets", before - buckets.size());
+    }
+
+    private TokenBucket newBucket(long now) {
+        return new TokenBucket(properties.getPermitsPerSecond(), properties.getBurst(), now);
+    }
+}
@@ -0,0 +1,40 @@
+package com.monkcommercecoupons.management.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import com.monkcommercecoupons.management.startup.WarmupTraffic;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Runs {@link AdmissionControl} around the evaluation endpoints. Only the startup warm-up's own
+ * calls are let through unmetered; real traffic is metered from the first request to the last,
+ * including the warm-up window and the drain at shutdown.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED = AdmissionInterceptor.class.getName() + ".admitted";
+
+    private final AdmissionControl admissionControl;
+    private final WarmupTraffic warmupTraffic;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (warmupTraffic.isWarmup(request)) {
+            return true;
+        }
+        admissionControl.acquire(admissionControl.clientKey(request));
+        request.setAttribute(ADMITTED, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ADMITTED) != null) {
+            admissionControl.release();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.monkcommercecoupons.management.capture;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * One captured request and its answer, written as a line of the capture file. {@code cart} is
+ * the cart as the client sent it, before normalization; {@code response} is the body returned,
+ * including error bodies.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CapturedExchange(
+        LocalDateTime timestamp,
+        String endpoint,
+        String path,
+        String merchant,
+        CartDTO cart,
+        int status,
+        Object response,
+        @JsonProperty("latency_micros") long latencyMicros) {
+}
@@ -0,0 +1,124 @@
+package com.monkcommercecoupons.management.capture;
+
+import com.monkcommercecoupons.management.config.CaptureProperties;
+import com.monkcommercecoupons.management.controller.CouponController;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartRequest;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.startup.WarmupTraffic;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples evaluation requests for {@link TrafficCaptureLog}. The sampling decision is made
+ * before the handler runs; for sampled requests the cart is kept as it was read, before the
+ * controller normalizes it, the body is kept as it is written, and the exchange is queued once
+ * the status is final. Unsampled requests cost a random draw and an attribute lookup per hook.
+ * Like admission control, the startup warm-up's own calls are ignored.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "coupons.capture.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class TrafficCaptureInterceptor extends RequestBodyAdviceAdapter
+        implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    private static final String EXCHANGE = TrafficCaptureInterceptor.class.getName() + ".exchange";
+
+    private final TrafficCaptureLog captureLog;
+    private final CaptureProperties properties;
+    private final WarmupTraffic warmupTraffic;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (sampled() && !warmupTraffic.isWarmup(request)) {
+            request.setAttribute(EXCHANGE, new PendingExchange(System.nanoTime()));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType == CartRequest.class;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(EXCHANGE, RequestAttributes.SCOPE_REQUEST) instanceof PendingExchange pending) {
+            pending.cart = ((CartRequest) body).getCart();
+        }
+        return body;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(EXCHANGE) instanceof PendingExchange pending) {
+            pending.response = body;
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(EXCHANGE) instanceof PendingExchange pending)) {
+            return;
+        }
+        String merchantId = request.getHeader(CouponController.MERCHANT_HEADER);
+        captureLog.offer(new CapturedExchange(
+                LocalDateTime.now(),
+                Objects.toString(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), null),
+                request.getRequestURI().substring(request.getContextPath().length()),
+                merchantId != null ? merchantId : Coupon.DEFAULT_MERCHANT_ID,
+                pending.cart,
+                response.getStatus(),
+                pending.response,
+                (System.nanoTime() - pending.startNanos) / 1_000));
+    }
+
+    private boolean sampled() {
+        double sampleRate = properties.getSampleRate();
+        return sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private static final class PendingExchange {
+        private final long startNanos;
+        private CartDTO cart;
+        private Object response;
+
+        private PendingExchange(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
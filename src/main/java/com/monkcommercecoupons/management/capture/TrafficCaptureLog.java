@@ -0,0 +1,185 @@
+package com.monkcommercecoupons.management.capture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.monkcommercecoupons.management.config.CaptureProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Appends captured exchanges to rotating NDJSON files. Request threads only add the exchange to
+ * a lock-free queue, bounded by a counter so a stalled disk drops captures instead of growing
+ * the heap; a single writer thread serializes them, buffers the output and rotates files by size.
+ */
+@Component
+@ConditionalOnProperty(name = "coupons.capture.enabled", havingValue = "true")
+@Slf4j
+public class TrafficCaptureLog {
+
+    static final String FILE_PREFIX = "capture-";
+    static final String FILE_SUFFIX = ".ndjson";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final CaptureProperties properties;
+    private final ObjectWriter lineWriter;
+    private final Queue<CapturedExchange> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter dropped;
+    private final Counter written;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private OutputStream out;
+    private long fileBytes;
+    private int fileSequence;
+
+    public TrafficCaptureLog(CaptureProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.lineWriter = objectMapper.writer();
+        Gauge.builder("coupons.capture.queue.depth", queued, AtomicInteger::get)
+                .description("Captured exchanges waiting to be written")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("coupons.capture.dropped")
+                .description("Captured exchanges dropped because the writer was behind")
+                .register(meterRegistry);
+        this.written = Counter.builder("coupons.capture.written")
+                .description("Captured exchanges written to the capture files")
+                .register(meterRegistry);
+        this.writer = new Thread(this::run, "traffic-capture");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(properties.getDirectory());
+        writer.start();
+    }
+
+    /**
+     * Writes out what is queued and closes the current file.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queues an exchange for writing, or drops it when {@code queue-capacity} exchanges are already waiting.
+     */
+    public boolean offer(CapturedExchange exchange) {
+        if (!running || queued.incrementAndGet() > properties.getQueueCapacity()) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        queue.offer(exchange);
+        return true;
+    }
+
+    private void run() {
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        while (running || !queue.isEmpty()) {
+            CapturedExchange exchange = queue.poll();
+            if (exchange == null) {
+                flush();
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+            queued.decrementAndGet();
+            write(exchange);
+        }
+        close();
+    }
+
+    private void write(CapturedExchange exchange) {
+        try {
+            byte[] line = lineWriter.writeValueAsBytes(exchange);
+            if (out == null || fileBytes + line.length + 1 > properties.getMaxFileSize().toBytes()) {
+                rotate();
+            }
+            out.write(line);
+            out.write('\n');
+            fileBytes += line.length + 1;
+            written.increment();
+        } catch (IOException e) {
+            dropped.increment();
+            log.warn("Failed to write captured exchange for {}", exchange.path(), e);
+            close();
+        }
+    }
+
+    private void rotate() throws IOException {
+        close();
+        // Names sort in creation order, which is what the retention below relies on.
+        Path file = properties.getDirectory().resolve(String.format("%s%s-%04d%s",
+                FILE_PREFIX, FILE_TIME.format(LocalDateTime.now()), fileSequence++ % 10_000, FILE_SUFFIX));
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW), 64 * 1024);
+        fileBytes = 0;
+        deleteOldFiles();
+        log.debug("Capturing traffic to {}", file);
+    }
+
+    private void deleteOldFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(properties.getDirectory())) {
+            files = listing
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < files.size() - properties.getMaxFiles(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void flush() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            log.warn("Failed to flush capture file", e);
+            close();
+        }
+    }
+
+    private void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Failed to close capture file", e);
+        }
+        out = null;
+    }
+}
@@ -0,0 +1,46 @@
+package com.monkcommercecoupons.management.config;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupons.admission")
+public class AdmissionProperties {
+
+    /**
+     * Whether the evaluation endpoints enforce rate limits and the in-flight cap.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Evaluations allowed to run at once; requests beyond it get 503 instead of queueing.
+     */
+    @Positive
+    private int maxInFlight = 64;
+
+    /**
+     * Sustained requests per second allowed for each client.
+     */
+    @Positive
+    private double permitsPerSecond = 50;
+
+    /**
+     * Requests a client may send back to back after being idle.
+     */
+    @Positive
+    private int burst = 100;
+
+    /**
+     * Clients tracked at once. Idle clients are dropped first; past the limit new clients share one bucket.
+     */
+    @Positive
+    private int maxClients = 10_000;
+
+    /**
+     * Header identifying the client. Requests without it are keyed by remote address.
+     */
+    private String clientHeader = "X-Client-Id";
+}
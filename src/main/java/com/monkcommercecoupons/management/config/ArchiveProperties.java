@@ -0,0 +1,38 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.archive")
+public class ArchiveProperties {
+
+    /**
+     * Runs the expiry sweep on a timer. When off, expired coupons stay active in the table and
+     * are only filtered out at evaluation time.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Time between two sweeps.
+     */
+    private Duration sweepInterval = Duration.ofHours(1);
+
+    /**
+     * How long a coupon stays inactive in the {@code coupons} table before it is moved to the archive.
+     */
+    private Duration retention = Duration.ofDays(30);
+
+    /**
+     * How long rows stay in {@code coupon_changes}. Other instances must have read a change by then,
+     * so keep it far beyond {@code coupons.catalog.poll-interval} and {@code coupons.catalog.gap-timeout}.
+     */
+    private Duration changeRetention = Duration.ofDays(1);
+
+    /**
+     * Ids covered by one deactivating UPDATE, and coupons moved per archive transaction.
+     */
+    private int batchSize = 1_000;
+}
@@ -0,0 +1,22 @@
+package com.monkcommercecoupons.management.config;
+
+import com.monkcommercecoupons.management.capture.TrafficCaptureInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "coupons.capture.enabled", havingValue = "true")
+public class CaptureConfig implements WebMvcConfigurer {
+
+    private final TrafficCaptureInterceptor trafficCaptureInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(trafficCaptureInterceptor)
+                .addPathPatterns("/applicable-coupons", "/apply-coupon/**");
+    }
+}
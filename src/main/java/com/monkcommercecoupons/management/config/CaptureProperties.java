@@ -0,0 +1,48 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.capture")
+public class CaptureProperties {
+
+    /**
+     * Records sampled /applicable-coupons and /apply-coupon exchanges to NDJSON files.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Fraction of requests (0.0 - 1.0) that are captured.
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * Directory the capture files are written to.
+     */
+    private Path directory = Path.of("capture");
+
+    /**
+     * Size after which the current file is closed and a new one started.
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Capture files kept; the oldest is deleted when a new one would exceed it.
+     */
+    private int maxFiles = 10;
+
+    /**
+     * Exchanges waiting for the writer. Once full, new exchanges are dropped rather than delaying requests.
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * How long buffered lines may wait before the writer flushes them to the file.
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+}
@@ -0,0 +1,87 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.catalog")
+public class CatalogProperties {
+
+    /**
+     * How the in-memory evaluation structures pick up coupon writes.
+     */
+    private RefreshMode refresh = RefreshMode.CHANGE_FEED;
+
+    /**
+     * Time between two reads of the change log by the background poller. Writes made through
+     * this instance wake it up as soon as they commit.
+     */
+    private Duration pollInterval = Duration.ofMillis(200);
+
+    /**
+     * How long a skipped change id is re-checked before it is treated as a rolled back write.
+     */
+    private Duration gapTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Change rows read per query while catching up.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Merchants owning no active coupon each catalog remembers, so requests for them skip the
+     * load; the least recently seen are dropped first. Only used with the change feed.
+     */
+    private int emptyMerchantCacheSize = 10_000;
+
+    /**
+     * How long a merchant stays known to own no active coupon. Coupon writes read from the
+     * change feed forget it at once.
+     */
+    private Duration emptyMerchantTtl = Duration.ofSeconds(30);
+
+    /**
+     * Catalog that answers /applicable-coupons.
+     */
+    private Engine engine = Engine.NETWORK;
+
+    /**
+     * Changed coupons the compact catalog keeps on the heap before it rebuilds its off-heap records.
+     */
+    private int compactionThreshold = 10_000;
+
+    /**
+     * Coupon descriptions the compact catalog keeps after reading them from the database.
+     */
+    private int descriptionCacheSize = 10_000;
+
+    public enum RefreshMode {
+        /**
+         * Compare the id and version of every active coupon on each request. Also sees writes
+         * that are not yet committed in the caller's transaction.
+         */
+        VERSIONS,
+
+        /**
+         * Tail the {@code coupon_changes} table from the last id seen and reload only the
+         * coupons it names.
+         */
+        CHANGE_FEED
+    }
+
+    public enum Engine {
+        /**
+         * The evaluation network: coupon entities with shared, compiled guard conditions.
+         */
+        NETWORK,
+
+        /**
+         * Fixed-width rule records in off-heap buffers with threshold and product indexes, for
+         * catalogs too large to keep as entities. Descriptions are read from the database on demand.
+         * Requires the {@code CHANGE_FEED} refresh mode.
+         */
+        COMPACT
+    }
+}
@@ -0,0 +1,30 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.generation")
+public class CodeGenerationProperties {
+
+    /**
+     * Most codes one generation request may ask for.
+     */
+    private int maxCount = 1_000_000;
+
+    /**
+     * Codes checked and inserted per transaction. A failed request keeps the chunks committed before it.
+     */
+    private int chunkSize = 10_000;
+
+    /**
+     * Inserts sent to the database per JDBC batch.
+     */
+    private int batchSize = 1_000;
+
+    /**
+     * Share of fresh codes the Bloom filter wrongly flags as taken; each flagged code costs a
+     * database lookup. Lower rates use more memory: about 10 bits per code at 1%.
+     */
+    private double falsePositiveRate = 0.01;
+}
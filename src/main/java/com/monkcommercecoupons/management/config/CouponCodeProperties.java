@@ -0,0 +1,28 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.codes")
+public class CouponCodeProperties {
+
+    /**
+     * Unknown codes remembered per instance; the least recently looked up are dropped first.
+     */
+    private int negativeCacheSize = 10_000;
+
+    /**
+     * How long a code stays known as unknown. Bounds how late a code created on another instance is seen here.
+     */
+    private Duration negativeCacheTtl = Duration.ofSeconds(30);
+
+    /**
+     * How long a merchant's code index is searched before it is loaded again. Bounds how late codes
+     * generated or archived on another instance show up in searches; single coupon writes arrive
+     * through the change feed.
+     */
+    private Duration indexTtl = Duration.ofMinutes(10);
+}
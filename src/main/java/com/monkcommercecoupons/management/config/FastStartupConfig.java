@@ -0,0 +1,77 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Startup-time tuning used by the {@code fast-startup} profile.
+ */
+@Configuration
+@Slf4j
+public class FastStartupConfig {
+
+    private static final List<String> ADMIN_BEAN_PREFIXES = List.of(
+            "org.springdoc.",
+            "io.swagger.",
+            OpenAPIConfig.class.getName()
+    );
+
+    /**
+     * Set by Spring on bean definitions that came from {@code @Configuration} classes.
+     */
+    private static final String CONFIGURATION_CLASS_ATTRIBUTE =
+            "org.springframework.context.annotation.ConfigurationClassPostProcessor.configurationClass";
+
+    /**
+     * Marks the Swagger/springdoc beans lazy. Their controllers are still mapped at startup,
+     * because handler detection only needs the bean type, and are created on the first
+     * request to {@code /swagger-ui.html} or {@code /v3/api-docs}. The configuration classes
+     * themselves stay eager: springdoc resolves the bundled Swagger UI version while
+     * initializing one of them, and the static UI resources are not found without it.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "coupons.startup.lazy-admin-beans", havingValue = "true")
+    public static BeanFactoryPostProcessor lazyAdminBeansPostProcessor() {
+        return beanFactory -> {
+            int deferred = 0;
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+                if (!definition.isLazyInit()
+                        && definition.getAttribute(CONFIGURATION_CLASS_ATTRIBUTE) == null
+                        && isAdminBean(beanFactory, definition)) {
+                    definition.setLazyInit(true);
+                    deferred++;
+                }
+            }
+            log.info("Deferred initialization of {} admin-only beans", deferred);
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "coupons.startup.exit-after-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitAfterReadyListener() {
+        return event -> {
+            log.info("Training run complete, exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+
+    private static boolean isAdminBean(ConfigurableListableBeanFactory beanFactory, BeanDefinition definition) {
+        String className = definition.getBeanClassName();
+        String factoryBeanName = definition.getFactoryBeanName();
+        if (className == null && factoryBeanName != null && beanFactory.containsBeanDefinition(factoryBeanName)) {
+            className = beanFactory.getBeanDefinition(factoryBeanName).getBeanClassName();
+        }
+        return className != null && ADMIN_BEAN_PREFIXES.stream().anyMatch(className::startsWith);
+    }
+}
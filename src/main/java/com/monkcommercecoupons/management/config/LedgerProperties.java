@@ -0,0 +1,39 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.ledger")
+public class LedgerProperties {
+
+    /**
+     * Redemptions waiting to be written; apply calls block once it is full.
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * How long an apply call waits for room in a full queue before it is answered with 503.
+     */
+    private Duration enqueueTimeout = Duration.ofMillis(100);
+
+    /**
+     * How long an apply call waits for its redemption to be committed. A redemption still queued by
+     * then is withdrawn and the call is answered with 503; one the writer is already inserting is
+     * waited for. Also the writer's transaction timeout, so that wait is bounded too.
+     */
+    private Duration commitTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Most redemptions inserted by one commit. Larger groups mean fewer commits and more throughput.
+     */
+    private int maxGroupSize = 100;
+
+    /**
+     * How long the writer waits for a group to fill before committing it. Zero commits whatever is
+     * queued at once, for the lowest latency.
+     */
+    private Duration maxGroupDelay = Duration.ofMillis(2);
+}
@@ -0,0 +1,21 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.stats")
+public class RedemptionStatsProperties {
+
+    /**
+     * Time between two flushes of the in-memory redemption counters; they are also flushed at shutdown.
+     */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /**
+     * Upserts sent to the database per JDBC batch.
+     */
+    private int batchSize = 200;
+}
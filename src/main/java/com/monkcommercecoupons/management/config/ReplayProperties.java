@@ -0,0 +1,69 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.replay")
+public class ReplayProperties {
+
+    /**
+     * Replays the input against this instance once it is ready (see the replay profile).
+     */
+    private boolean enabled = false;
+
+    /**
+     * NDJSON file, or directory of *.ndjson / *.jsonl files read in name order, e.g. the capture directory.
+     */
+    private Path input;
+
+    /**
+     * Requests started per second. 0 sends each request as soon as one of the connections is free.
+     */
+    private double rate = 0;
+
+    /**
+     * Requests allowed in flight at once.
+     */
+    private int concurrency = 8;
+
+    /**
+     * Stop after this many requests; 0 replays the whole input.
+     */
+    private long limit = 0;
+
+    /**
+     * Time allowed for a single request before it counts as failed.
+     */
+    private Duration requestTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Response fields left out of the comparison, at any depth.
+     */
+    private List<String> ignoredFields = new ArrayList<>(List.of("timestamp"));
+
+    /**
+     * Largest difference between two numbers that still counts as equal.
+     */
+    private double tolerance = 0.005;
+
+    /**
+     * Mismatches kept in the report with their differences.
+     */
+    private int maxReportedMismatches = 20;
+
+    /**
+     * File the JSON report is written to, in addition to the log.
+     */
+    private Path reportFile;
+
+    /**
+     * Shut the instance down once the replay is done; the exit code is 1 when any response differed.
+     */
+    private boolean exitWhenDone = true;
+}
@@ -0,0 +1,14 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.logging")
+public class RequestLogProperties {
+
+    /**
+     * Fraction of evaluation requests (0.0 - 1.0) that get a summary line on the request log.
+     */
+    private double requestSampleRate = 0.01;
+}
@@ -0,0 +1,41 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.shadow")
+public class ShadowProperties {
+
+    /**
+     * Re-evaluates /applicable-coupons requests with a candidate engine in the background and compares the results.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Name of the candidate engine, see {@code CandidateEngine#name()}.
+     */
+    private String engine = "full-scan";
+
+    /**
+     * Fraction of requests (0.0 - 1.0) that are shadowed.
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * Threads running candidate evaluations.
+     */
+    private int threads = 1;
+
+    /**
+     * Evaluations waiting for a thread. Once full, new ones are dropped instead of queueing behind the backlog.
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * At most one mismatch is logged with its details per interval; the others are only counted.
+     */
+    private Duration logInterval = Duration.ofSeconds(10);
+}
@@ -0,0 +1,27 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.simulation")
+public class SimulationProperties {
+
+    /**
+     * NDJSON file of historical carts. Each line is a cart ({@code {"items": [...]}}) or an
+     * object with a {@code cart} field, optionally with {@code merchant} and {@code timestamp}.
+     */
+    private Path corpusFile;
+
+    /**
+     * Fork/join workers evaluating carts; 0 uses one per available processor.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Lines handed to the workers at a time. At most two chunks per worker are held in memory.
+     */
+    private int chunkSize = 4_096;
+}
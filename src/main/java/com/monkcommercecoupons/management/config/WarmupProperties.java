@@ -0,0 +1,29 @@
+package com.monkcommercecoupons.management.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "coupons.warmup")
+public class WarmupProperties {
+
+    /**
+     * Whether to run the warm-up phase before the readiness probe reports UP.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Synthetic carts pushed through each evaluator.
+     */
+    private int iterations = 5000;
+
+    /**
+     * Requests sent through the full HTTP and JSON path once the evaluators are warm.
+     */
+    private int requests = 200;
+
+    /**
+     * Requests timed at the end of warm-up to report the latency it achieved.
+     */
+    private int measuredRequests = 100;
+}
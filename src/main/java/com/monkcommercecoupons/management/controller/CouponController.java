@@ -1,30 +1,60 @@
 package com.monkcommercecoupons.management.controller;
 
+import com.monkcommercecoupons.management.admission.AdmissionControl;
 import com.monkcommercecoupons.management.model.dto.ApplicableCouponsResponse;
 import com.monkcommercecoupons.management.model.dto.ApplyCouponResponse;
 import com.monkcommercecoupons.management.model.dto.CartRequest;
 import com.monkcommercecoupons.management.model.dto.CouponDTO;
+import com.monkcommercecoupons.management.model.dto.CouponSearchResponse;
+import com.monkcommercecoupons.management.model.dto.GenerateCouponsRequest;
+import com.monkcommercecoupons.management.model.dto.GenerateCouponsResponse;
+import com.monkcommercecoupons.management.model.dto.PricePreviewRequest;
+import com.monkcommercecoupons.management.model.dto.PricePreviewResponse;
+import com.monkcommercecoupons.management.model.dto.RedemptionStatsDTO;
+import com.monkcommercecoupons.management.model.dto.SimulationResponse;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.service.CartNormalizer;
+import com.monkcommercecoupons.management.service.CouponArchiveService;
+import com.monkcommercecoupons.management.service.CouponGenerationService;
 import com.monkcommercecoupons.management.service.CouponService;
+import com.monkcommercecoupons.management.service.CouponSimulationService;
+import com.monkcommercecoupons.management.service.RedemptionStatsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
 @RestController
 @RequestMapping
+@Validated
 @RequiredArgsConstructor
 @Tag(name = "Coupons", description = "Coupon Management APIs")
 public class CouponController {
 
+    /**
+     * Selects the merchant whose catalog a request works on; without it the default merchant is used.
+     * Longer values than a merchant id column holds are rejected with 400.
+     */
+    public static final String MERCHANT_HEADER = "X-Merchant-Id";
+
     private final CouponService couponService;
+    private final CouponGenerationService couponGenerationService;
+    private final CouponArchiveService couponArchiveService;
+    private final CouponSimulationService couponSimulationService;
+    private final CartNormalizer cartNormalizer;
+    private final RedemptionStatsService redemptionStatsService;
+    private final AdmissionControl admissionControl;
 
     @PostMapping("/coupons")
     @Operation(summary = "Create a new coupon", description = "Creates a new discount coupon")
@@ -34,19 +64,89 @@ public class CouponController {
             @ApiResponse(responseCode = "409", description = "Coupon code already exists")
     })
     public ResponseEntity<CouponDTO> createCoupon(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
             @Valid @RequestBody CouponDTO couponDTO) {
-        CouponDTO created = couponService.createCoupon(couponDTO);
+        CouponDTO created = couponService.createCoupon(merchantId, couponDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping("/coupons/generate")
+    @Operation(summary = "Generate single-use coupons",
+            description = "Creates up to a million single-use coupons with random codes drawn from a pattern such as SPRING-????????")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Coupons generated"),
+            @ApiResponse(responseCode = "400", description = "Invalid input, or pattern too small for the count")
+    })
+    public ResponseEntity<GenerateCouponsResponse> generateCoupons(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
+            @Valid @RequestBody GenerateCouponsRequest request) {
+        GenerateCouponsResponse response = couponGenerationService.generateCoupons(merchantId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/coupons/simulate")
+    @Operation(summary = "Simulate a draft coupon",
+            description = "Evaluates a coupon that is not saved against the historical cart corpus and reports what it would have cost")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Simulation completed"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "503", description = "No readable cart corpus configured")
+    })
+    public ResponseEntity<SimulationResponse> simulateCoupon(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
+            @Valid @RequestBody CouponDTO couponDTO) {
+        return ResponseEntity.ok(couponSimulationService.simulate(merchantId, couponDTO));
+    }
+
     @GetMapping("/coupons")
     @Operation(summary = "Get all coupons", description = "Retrieves all coupons")
     @ApiResponse(responseCode = "200", description = "Coupons retrieved successfully")
-    public ResponseEntity<List<CouponDTO>> getAllCoupons() {
-        List<CouponDTO> coupons = couponService.getAllCoupons();
+    public ResponseEntity<List<CouponDTO>> getAllCoupons(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId) {
+        List<CouponDTO> coupons = couponService.getAllCoupons(merchantId);
         return ResponseEntity.ok(coupons);
     }
 
+    @GetMapping("/coupons/search")
+    @Operation(summary = "Search coupons by code",
+            description = "Lists coupons whose code starts with a prefix, or falls in a [from, to) range, in code order, ignoring case")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of matching coupons retrieved"),
+            @ApiResponse(responseCode = "400", description = "Both prefix and range given, or invalid cursor")
+    })
+    public ResponseEntity<CouponSearchResponse> searchCoupons(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
+            @Parameter(description = "Code prefix") @RequestParam(required = false) String prefix,
+            @Parameter(description = "First code of the range (inclusive)") @RequestParam(required = false) String from,
+            @Parameter(description = "End of the range (exclusive)") @RequestParam(required = false) String to,
+            @Parameter(description = "next_cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, at most 100") @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(couponService.searchCoupons(merchantId, prefix, from, to, cursor, limit));
+    }
+
+    @GetMapping("/coupons/archived")
+    @Operation(summary = "Find archived coupons by code",
+            description = "Lists archived coupons with exactly the given code; a code can be reused once its coupon is archived")
+    @ApiResponse(responseCode = "200", description = "Archived coupons retrieved")
+    public ResponseEntity<List<CouponDTO>> getArchivedCoupons(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
+            @Parameter(description = "Coupon code") @RequestParam String code) {
+        return ResponseEntity.ok(couponArchiveService.getArchivedCoupons(merchantId, code));
+    }
+
+    @GetMapping("/coupons/archived/{id}")
+    @Operation(summary = "Get archived coupon by ID",
+            description = "Retrieves a coupon moved to the archive after staying inactive for the retention period")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Archived coupon found"),
+            @ApiResponse(responseCode = "404", description = "Archived coupon not found")
+    })
+    public ResponseEntity<CouponDTO> getArchivedCoupon(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
+            @Parameter(description = "Coupon ID") @PathVariable Long id) {
+        return ResponseEntity.ok(couponArchiveService.getArchivedCoupon(merchantId, id));
+    }
+
     @GetMapping("/coupons/{id}")
     @Operation(summary = "Get coupon by ID", description = "Retrieves a specific coupon by its ID")
     @ApiResponses(value = {
@@ -54,8 +154,9 @@ public class CouponController {
             @ApiResponse(responseCode = "404", description = "Coupon not found")
     })
     public ResponseEntity<CouponDTO> getCouponById(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
             @Parameter(description = "Coupon ID") @PathVariable Long id) {
-        CouponDTO coupon = couponService.getCouponById(id);
+        CouponDTO coupon = couponService.getCouponById(merchantId, id);
         return ResponseEntity.ok(coupon);
     }
 
@@ -67,12 +168,35 @@ public class CouponController {
             @ApiResponse(responseCode = "400", description = "Invalid input")
     })
     public ResponseEntity<CouponDTO> updateCoupon(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
             @Parameter(description = "Coupon ID") @PathVariable Long id,
             @Valid @RequestBody CouponDTO couponDTO) {
-        CouponDTO updated = couponService.updateCoupon(id, couponDTO);
+        CouponDTO updated = couponService.updateCoupon(merchantId, id, couponDTO);
         return ResponseEntity.ok(updated);
     }
 
+    @GetMapping("/coupons/stats")
+    @Operation(summary = "Get redemption stats",
+            description = "Retrieves redemption count and discount totals of every redeemed coupon")
+    @ApiResponse(responseCode = "200", description = "Redemption stats retrieved")
+    public ResponseEntity<List<RedemptionStatsDTO>> getRedemptionStats(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId) {
+        return ResponseEntity.ok(redemptionStatsService.getStats(merchantId));
+    }
+
+    @GetMapping("/coupons/{id}/stats")
+    @Operation(summary = "Get coupon redemption stats",
+            description = "Retrieves redemption count and discount totals of a coupon")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Redemption stats retrieved"),
+            @ApiResponse(responseCode = "404", description = "Coupon not found")
+    })
+    public ResponseEntity<RedemptionStatsDTO> getCouponRedemptionStats(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
+            @Parameter(description = "Coupon ID") @PathVariable Long id) {
+        return ResponseEntity.ok(redemptionStatsService.getStats(merchantId, id));
+    }
+
     @DeleteMapping("/coupons/{id}")
     @Operation(summary = "Delete coupon", description = "Deletes a coupon by ID")
     @ApiResponses(value = {
@@ -80,8 +204,9 @@ public class CouponController {
             @ApiResponse(responseCode = "404", description = "Coupon not found")
     })
     public ResponseEntity<Void> deleteCoupon(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
             @Parameter(description = "Coupon ID") @PathVariable Long id) {
-        couponService.deleteCoupon(id);
+        couponService.deleteCoupon(merchantId, id);
         return ResponseEntity.noContent().build();
     }
 
@@ -90,11 +215,23 @@ public class CouponController {
             description = "Finds all coupons applicable to the given cart")
     @ApiResponse(responseCode = "200", description = "Applicable coupons retrieved")
     public ResponseEntity<ApplicableCouponsResponse> getApplicableCoupons(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
             @Valid @RequestBody CartRequest request) {
-        ApplicableCouponsResponse response = couponService.getApplicableCoupons(request);
+        request.setCart(cartNormalizer.normalize(request.getCart()));
+        ApplicableCouponsResponse response = couponService.getApplicableCoupons(merchantId, request);
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/price-preview")
+    @Operation(summary = "Preview product offers",
+            description = "Finds the best product-wise and BxGy coupon for each product of a listing page")
+    @ApiResponse(responseCode = "200", description = "Product offers retrieved")
+    public ResponseEntity<PricePreviewResponse> previewPrices(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
+            @Valid @RequestBody PricePreviewRequest request) {
+        return ResponseEntity.ok(couponService.previewPrices(merchantId, request));
+    }
+
     @PostMapping("/apply-coupon/{id}")
     @Operation(summary = "Apply coupon to cart",
             description = "Applies a specific coupon to the cart and returns updated cart")
@@ -104,9 +241,32 @@ public class CouponController {
             @ApiResponse(responseCode = "400", description = "Coupon not applicable")
     })
     public ResponseEntity<ApplyCouponResponse> applyCoupon(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
             @Parameter(description = "Coupon ID") @PathVariable Long id,
-            @Valid @RequestBody CartRequest request) {
-        ApplyCouponResponse response = couponService.applyCoupon(id, request);
+            @Valid @RequestBody CartRequest request,
+            HttpServletRequest httpRequest) {
+        request.setCart(cartNormalizer.normalize(request.getCart()));
+        ApplyCouponResponse response = couponService.applyCoupon(merchantId, admissionControl.clientKey(httpRequest),
+                id, request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/apply-coupon/code/{code}")
+    @Operation(summary = "Apply coupon to cart by code",
+            description = "Applies the coupon with the given code, ignoring case, and returns updated cart")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Coupon applied successfully"),
+            @ApiResponse(responseCode = "404", description = "Coupon not found"),
+            @ApiResponse(responseCode = "400", description = "Coupon not applicable")
+    })
+    public ResponseEntity<ApplyCouponResponse> applyCouponByCode(
+            @Parameter(description = "Merchant ID") @RequestHeader(value = MERCHANT_HEADER, defaultValue = Coupon.DEFAULT_MERCHANT_ID) @Size(max = Coupon.MERCHANT_ID_LENGTH) String merchantId,
+            @Parameter(description = "Coupon code") @PathVariable String code,
+            @Valid @RequestBody CartRequest request,
+            HttpServletRequest httpRequest) {
+        request.setCart(cartNormalizer.normalize(request.getCart()));
+        ApplyCouponResponse response = couponService.applyCouponByCode(merchantId,
+                admissionControl.clientKey(httpRequest), code, request);
         return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,34 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * An alternative way of finding the coupons that apply to a cart, run in shadow of the
+ * {@link CouponEvaluationNetwork} before it is trusted to serve. Implementations are called from
+ * the shadow threads, concurrently with requests and catalog refreshes.
+ */
+public interface CandidateEngine {
+
+    /**
+     * Name selecting the engine with {@code coupons.shadow.engine}, also used as a metric tag.
+     */
+    String name();
+
+    /**
+     * Brings the engine's view of the merchant's coupons up to date for {@code now}. Called before
+     * each evaluation and, like the network's refresh, not counted in its latency. Does nothing by
+     * default.
+     */
+    default void refresh(String merchantId, LocalDateTime now) {
+    }
+
+    /**
+     * Coupons of the merchant giving the cart a discount, as last refreshed, with the discount
+     * rounded to cents. The cart is normalized and must not be modified.
+     */
+    List<ApplicableCouponDTO> applicableCoupons(String merchantId, CartContext context);
+}
@@ -0,0 +1,533 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.CatalogProperties;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponDTO;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.repository.CouponRepository;
+import com.monkcommercecoupons.management.repository.CouponVersion;
+import com.monkcommercecoupons.management.service.CouponDetailsMapper;
+import com.monkcommercecoupons.management.util.CouponCodes;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Catalog for merchants with millions of active coupons. Each merchant's coupons are loaded
+ * straight from JDBC into an off-heap {@link CompactSegment}, without an entity per coupon, and
+ * a cart only reads the records its total and products can qualify for. Descriptions are not
+ * kept with the records; the few coupons a cart qualifies for have theirs read in one query and
+ * cached.
+ *
+ * <p>The segment is immutable. Coupons written after it was built are masked in it and kept in
+ * a small on-heap overlay instead; once more than {@code compaction-threshold} coupons are
+ * masked, the segment is rebuilt on a background thread while requests keep using the old one.
+ * The catalog follows the database through its own cursor on the {@link CouponChangeFeed}, on
+ * the feed's poller thread. Comparing coupon versions is only supported while it is shadowed, as it costs a read of every
+ * active coupon per request.
+ *
+ * <p>Exclusivity groups and stacking are compiled into {@link StackingMasks} shared by the
+ * segment and the overlay, so both resolve conflicts against the same group bits.
+ *
+ * <p>With {@code coupons.catalog.engine=compact} it replaces the network for
+ * {@code /applicable-coupons}, price previews and code lookups, so the merchant's coupons are
+ * never loaded as entities. It can also be shadowed against the network as the {@code compact}
+ * candidate engine.
+ */
+@Component
+@Slf4j
+public class CompactCouponCatalog implements CandidateEngine {
+
+    private static final String LOAD_SQL = "SELECT id, version, type, code, details, expiration_date, "
+            + "exclusivity_group, stackable, priority FROM coupons "
+            + "WHERE merchant_id = ? AND is_active = TRUE AND single_use = FALSE "
+            + "AND (expiration_date IS NULL OR expiration_date > ?) ORDER BY id";
+    private static final String DESCRIPTIONS_SQL = "SELECT c.id, c.version, c.description FROM UNNEST(?) AS t(id) "
+            + "JOIN coupons c ON c.id = t.id";
+    private static final int LOAD_FETCH_SIZE = 1_000;
+    /** Loads of fewer coupons are logged at debug; this catalog is meant for far larger ones. */
+    private static final int LOGGED_LOAD_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CouponRepository couponRepository;
+    private final CouponDetailsMapper couponDetailsMapper;
+    private final CouponChangeFeed couponChangeFeed;
+    private final CatalogProperties properties;
+    private final EmptyMerchants emptyMerchants;
+    private final Map<String, Catalog> catalogs = new ConcurrentHashMap<>();
+    private final Map<Long, Description> descriptions;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "compact-catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CompactCouponCatalog(JdbcTemplate jdbcTemplate, CouponRepository couponRepository,
+                                CouponDetailsMapper couponDetailsMapper, CouponChangeFeed couponChangeFeed,
+                                CatalogProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.couponRepository = couponRepository;
+        this.couponDetailsMapper = couponDetailsMapper;
+        this.couponChangeFeed = couponChangeFeed;
+        this.properties = properties;
+        this.emptyMerchants = new EmptyMerchants(properties);
+        // Comparing versions reads every active coupon of the merchant on each request, which is
+        // what this catalog is for avoiding.
+        if (isServing() && !couponChangeFeed.isEnabled()) {
+            throw new IllegalStateException("coupons.catalog.engine=compact requires coupons.catalog.refresh=change-feed");
+        }
+        int maxDescriptions = properties.getDescriptionCacheSize();
+        this.descriptions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Description> eldest) {
+                return size() > maxDescriptions;
+            }
+        };
+
+        Gauge.builder("coupons.catalog.compact.coupons", this, CompactCouponCatalog::getCouponCount)
+                .description("Active coupons held by the compact catalog")
+                .register(meterRegistry);
+        Gauge.builder("coupons.catalog.compact.off.heap.bytes", this, CompactCouponCatalog::getBufferBytes)
+                .description("Bytes of rule records and indexes held by the compact catalog")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("coupons.catalog.compact.overlay", this, CompactCouponCatalog::getMaskedCount)
+                .description("Coupons changed since the compact catalog was last rebuilt")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        couponChangeFeed.subscribe(this::apply);
+    }
+
+    @PreDestroy
+    void stop() {
+        compactor.shutdownNow();
+    }
+
+    /**
+     * Whether this catalog, rather than the evaluation network, answers /applicable-coupons.
+     */
+    public boolean isServing() {
+        return properties.getEngine() == CatalogProperties.Engine.COMPACT;
+    }
+
+    @Override
+    public String name() {
+        return "compact";
+    }
+
+    /**
+     * Brings the merchant's catalog in line with the coupons active at {@code now}. With the
+     * change feed, this only loads a catalog not built yet.
+     */
+    @Override
+    public void refresh(String merchantId, LocalDateTime now) {
+        if (!couponChangeFeed.isEnabled()) {
+            catalog(merchantId).compareVersions(now);
+        } else if (!emptyMerchants.contains(merchantId)) {
+            catalog(merchantId).load(now);
+        }
+        // As in the evaluation network, merchants owning no active coupon don't keep a catalog,
+        // and with the change feed they are remembered for a while instead of costing a load each.
+        catalogs.computeIfPresent(merchantId, (id, catalog) -> catalog.retain() ? catalog : null);
+    }
+
+    /**
+     * Coupons of the merchant giving the cart a discount, as last refreshed, in id order.
+     */
+    @Override
+    public List<ApplicableCouponDTO> applicableCoupons(String merchantId, CartContext context) {
+        List<Hit> hits = new ArrayList<>();
+        List<ApplicableCouponDTO> applicable = offers(merchantId, context, hits);
+        List<ApplicableCouponDTO> compatible = new ArrayList<>(StackingMasks.resolve(applicable,
+                i -> hits.get(i).segment().stackingMask(hits.get(i).record()),
+                i -> hits.get(i).segment().priority(hits.get(i).record())));
+        compatible.sort(Comparator.comparing(ApplicableCouponDTO::getCouponId));
+        return compatible;
+    }
+
+    /**
+     * Coupons of the merchant giving the cart a discount, as last refreshed, whether or not they
+     * may be offered together. The order is unspecified.
+     */
+    public List<ApplicableCouponDTO> offers(String merchantId, CartContext context) {
+        return offers(merchantId, context, new ArrayList<>());
+    }
+
+    /**
+     * Id of the merchant's active coupon with the code, ignoring case, as last refreshed, or
+     * {@code null} when the catalog holds no such coupon.
+     */
+    public Long findCouponId(String merchantId, String code) {
+        Catalog catalog = catalogs.get(merchantId);
+        if (catalog == null) {
+            return null;
+        }
+        View view = catalog.view;
+        String normalized = CouponCodes.normalize(code);
+        int record = view.overlay().findCode(normalized);
+        if (record >= 0) {
+            return view.overlay().id(record);
+        }
+        record = view.base().findCode(normalized);
+        return record >= 0 && !view.masked().contains(view.base().id(record)) ? view.base().id(record) : null;
+    }
+
+    /**
+     * Version of the coupon as last loaded into the merchant's catalog, or {@code null} when the
+     * catalog doesn't hold it as active.
+     */
+    public Long versionOf(String merchantId, Long couponId) {
+        Catalog catalog = catalogs.get(merchantId);
+        if (catalog == null) {
+            return null;
+        }
+        View view = catalog.view;
+        int record = view.overlay().find(couponId);
+        if (record >= 0) {
+            return view.overlay().version(record);
+        }
+        record = view.base().find(couponId);
+        return record >= 0 && !view.masked().contains(couponId) ? view.base().version(record) : null;
+    }
+
+    /**
+     * Matches the cart against the base segment, skipping its masked coupons, then the overlay.
+     *
+     * @param hits receives the record behind each returned coupon, at the same index
+     */
+    private List<ApplicableCouponDTO> offers(String merchantId, CartContext context, List<Hit> hits) {
+        Catalog catalog = catalogs.get(merchantId);
+        if (catalog == null) {
+            return List.of();
+        }
+        View view = catalog.view;
+        long nowMillis = CompactSegment.toEpochMillis(context.getNow());
+
+        view.base().match(context, nowMillis, (segment, record, discount) -> {
+            if (!view.masked().contains(segment.id(record))) {
+                hits.add(new Hit(segment, record, discount));
+            }
+        });
+        int baseHits = hits.size();
+        view.overlay().match(context, nowMillis, (segment, record, discount) -> hits.add(new Hit(segment, record, discount)));
+
+        Map<Long, String> baseDescriptions = baseHits > 0 ? describe(hits.subList(0, baseHits)) : Map.of();
+        List<ApplicableCouponDTO> applicable = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            Hit hit = hits.get(i);
+            long couponId = hit.segment().id(hit.record());
+            applicable.add(toApplicableCoupon(hit.segment(), hit.record(), hit.discount(),
+                    i < baseHits ? baseDescriptions.get(couponId) : view.overlayDescriptions().get(couponId)));
+        }
+        return applicable;
+    }
+
+    public int getCouponCount() {
+        return catalogs.values().stream().mapToInt(catalog -> catalog.view.size()).sum();
+    }
+
+    public long getBufferBytes() {
+        return catalogs.values().stream()
+                .mapToLong(catalog -> catalog.view.base().bufferBytes() + catalog.view.overlay().bufferBytes())
+                .sum();
+    }
+
+    public int getMaskedCount() {
+        return catalogs.values().stream().mapToInt(catalog -> catalog.view.masked().size()).sum();
+    }
+
+    public int getEmptyMerchantCount() {
+        return emptyMerchants.size();
+    }
+
+    /**
+     * Masks and reloads the changed coupons of the catalogs already built, on the feed's poller thread.
+     */
+    private void apply(CouponChangeFeed.Changes changes) {
+        if (changes.full()) {
+            catalogs.clear();
+            emptyMerchants.clear();
+        }
+        // Catalogs not built yet skip their changes; they load everything on first use.
+        changes.couponIds().forEach((merchantId, couponIds) -> {
+            Catalog catalog = catalogs.get(merchantId);
+            if (catalog != null) {
+                catalog.reload(couponIds);
+            }
+            // After the reload, which waits for a request remembering the catalog as empty.
+            emptyMerchants.forget(merchantId);
+        });
+    }
+
+    private Catalog catalog(String merchantId) {
+        return catalogs.computeIfAbsent(merchantId, Catalog::new);
+    }
+
+    private static ApplicableCouponDTO toApplicableCoupon(CompactSegment segment, int record, double discount,
+                                                          String description) {
+        return ApplicableCouponDTO.builder()
+                .couponId(segment.id(record))
+                .code(segment.code(record))
+                .type(segment.type(record))
+                .discount(Math.round(discount * 100.0) / 100.0)
+                .description(description)
+                .build();
+    }
+
+    /**
+     * Descriptions of base coupons, from the cache when it holds the version in the segment.
+     */
+    private Map<Long, String> describe(List<Hit> hits) {
+        Map<Long, String> found = new HashMap<>(hits.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        synchronized (descriptions) {
+            for (Hit hit : hits) {
+                long couponId = hit.segment().id(hit.record());
+                Description cached = descriptions.get(couponId);
+                if (cached != null && cached.version() == hit.segment().version(hit.record())) {
+                    found.put(couponId, cached.text());
+                } else {
+                    missing.add(couponId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        List<Description> loaded = jdbcTemplate.query(DESCRIPTIONS_SQL,
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("BIGINT", missing.toArray())),
+                (row, rowNum) -> new Description(row.getLong(1), row.getLong(2), row.getString(3)));
+        synchronized (descriptions) {
+            for (Description description : loaded) {
+                // Stored under the version read, which a concurrent write may have moved past the segment's.
+                descriptions.put(description.couponId(), description);
+                found.put(description.couponId(), description.text());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Streams the merchant's active coupons into a new off-heap segment.
+     */
+    private CompactSegment loadSegment(String merchantId, LocalDateTime now, StackingMasks stackingMasks) {
+        long start = System.nanoTime();
+        CompactSegment.Builder builder = new CompactSegment.Builder(true);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LOAD_SQL);
+            statement.setFetchSize(LOAD_FETCH_SIZE);
+            statement.setString(1, merchantId);
+            statement.setTimestamp(2, Timestamp.valueOf(now));
+            return statement;
+        }, (RowCallbackHandler) row -> {
+            Timestamp expirationDate = row.getTimestamp("expiration_date");
+            String code = row.getString("code");
+            builder.add(row.getLong("id"), row.getLong("version"), code,
+                    couponDetailsMapper.read(code, CouponType.valueOf(row.getString("type")), row.getString("details")),
+                    expirationDate != null ? expirationDate.toLocalDateTime() : null,
+                    stackingMasks.maskOf(row.getString("exclusivity_group"), row.getBoolean("stackable")),
+                    row.getInt("priority"));
+        });
+        CompactSegment segment = builder.build();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        if (segment.size() >= LOGGED_LOAD_SIZE) {
+            log.info("Compact catalog for merchant {} loaded: {} coupons in {} bytes off heap, {} ms",
+                    merchantId, segment.size(), segment.bufferBytes(), millis);
+        } else {
+            log.debug("Compact catalog for merchant {} loaded: {} coupons in {} bytes off heap, {} ms",
+                    merchantId, segment.size(), segment.bufferBytes(), millis);
+        }
+        return segment;
+    }
+
+    /**
+     * One merchant's segment plus the coupons changed since it was built.
+     */
+    private final class Catalog {
+
+        private final String merchantId;
+        /** Active changed coupons, superseding any record of the same id in the base segment. */
+        private final Map<Long, Coupon> overlay = new HashMap<>();
+        /** Change sequence of every coupon masked in the base segment, whether still active or not. */
+        private final Map<Long, Long> changedAt = new HashMap<>();
+        private final StackingMasks stackingMasks = new StackingMasks();
+
+        private volatile View view = View.EMPTY;
+        private CompactSegment base = CompactSegment.EMPTY;
+        private boolean loaded;
+        private boolean compacting;
+        private long sequence;
+
+        private Catalog(String merchantId) {
+            this.merchantId = merchantId;
+        }
+
+        /**
+         * Whether the catalog is worth keeping. An empty one is remembered as such with the change
+         * feed, under the lock {@link #reload} takes, so a reload filling it forgets it afterwards.
+         */
+        synchronized boolean retain() {
+            if (compacting || view.size() > 0) {
+                return true;
+            }
+            if (couponChangeFeed.isEnabled()) {
+                // Not loaded yet: another request created it and is about to load it.
+                if (!loaded) {
+                    return true;
+                }
+                emptyMerchants.add(merchantId);
+            }
+            return false;
+        }
+
+        synchronized void load(LocalDateTime now) {
+            if (!loaded) {
+                base = loadSegment(merchantId, now, stackingMasks);
+                loaded = true;
+                publish();
+            }
+        }
+
+        synchronized void reload(Set<Long> couponIds) {
+            if (!loaded) {
+                return;
+            }
+            Map<Long, Coupon> found = new HashMap<>(couponIds.size() * 2);
+            couponRepository.findAllById(couponIds).forEach(coupon -> found.put(coupon.getId(), coupon));
+            for (Long couponId : couponIds) {
+                changedAt.put(couponId, ++sequence);
+                overlay.remove(couponId);
+                Coupon coupon = found.get(couponId);
+                // Single-use codes are minted by the million and only ever applied by code.
+                if (coupon != null && merchantId.equals(coupon.getMerchantId()) && coupon.isValid()
+                        && !Boolean.TRUE.equals(coupon.getSingleUse())) {
+                    overlay.put(couponId, coupon);
+                }
+            }
+            publish();
+            compactIfDue();
+        }
+
+        void compareVersions(LocalDateTime now) {
+            load(now);
+            List<CouponVersion> versions = couponRepository.findActiveCouponVersions(merchantId, now);
+
+            synchronized (this) {
+                Set<Long> liveIds = new HashSet<>(versions.size() * 2);
+                Set<Long> changedIds = new HashSet<>();
+                for (CouponVersion version : versions) {
+                    liveIds.add(version.getId());
+                    if (!Objects.equals(versionOf(version.getId()), version.getVersion())) {
+                        changedIds.add(version.getId());
+                    }
+                }
+                for (int record = 0; record < base.size(); record++) {
+                    long couponId = base.id(record);
+                    if (!liveIds.contains(couponId) && !changedAt.containsKey(couponId)) {
+                        changedIds.add(couponId);
+                    }
+                }
+                overlay.keySet().stream()
+                        .filter(couponId -> !liveIds.contains(couponId))
+                        .forEach(changedIds::add);
+                if (!changedIds.isEmpty()) {
+                    reload(changedIds);
+                }
+            }
+        }
+
+        private Long versionOf(Long couponId) {
+            if (changedAt.containsKey(couponId)) {
+                Coupon coupon = overlay.get(couponId);
+                return coupon != null ? coupon.getVersion() : null;
+            }
+            int record = base.find(couponId);
+            return record >= 0 ? base.version(record) : null;
+        }
+
+        private void compactIfDue() {
+            if (compacting || changedAt.size() <= properties.getCompactionThreshold()) {
+                return;
+            }
+            compacting = true;
+            long startedAt = sequence;
+            compactor.execute(() -> compact(startedAt));
+        }
+
+        /**
+         * Rebuilds the base segment from the database. Changes up to {@code startedAt} were
+         * committed before the rebuild reads, so they are in the new segment; later ones stay masked.
+         */
+        private void compact(long startedAt) {
+            CompactSegment rebuilt;
+            try {
+                rebuilt = loadSegment(merchantId, LocalDateTime.now(), stackingMasks);
+            } catch (RuntimeException e) {
+                log.warn("Rebuilding the compact catalog of merchant {} failed, keeping the overlay", merchantId, e);
+                synchronized (this) {
+                    compacting = false;
+                }
+                return;
+            }
+            synchronized (this) {
+                base = rebuilt;
+                changedAt.values().removeIf(changed -> changed <= startedAt);
+                overlay.keySet().retainAll(changedAt.keySet());
+                compacting = false;
+                publish();
+            }
+        }
+
+        private void publish() {
+            CompactSegment.Builder builder = new CompactSegment.Builder(false);
+            Map<Long, String> overlayDescriptions = new HashMap<>(overlay.size() * 2);
+            overlay.values().stream()
+                    .sorted(Comparator.comparing(Coupon::getId))
+                    .forEach(coupon -> {
+                        builder.add(coupon.getId(), coupon.getVersion() != null ? coupon.getVersion() : 0L,
+                                coupon.getCode(), couponDetailsMapper.read(coupon, CouponDetails.class),
+                                coupon.getExpirationDate(), stackingMasks.maskOf(coupon), coupon.getPriority());
+                        if (coupon.getDescription() != null) {
+                            overlayDescriptions.put(coupon.getId(), coupon.getDescription());
+                        }
+                    });
+            CompactSegment overlaySegment = builder.build();
+            int maskedInBase = (int) changedAt.keySet().stream().filter(couponId -> base.find(couponId) >= 0).count();
+            view = new View(base, overlaySegment, Set.copyOf(changedAt.keySet()), overlayDescriptions,
+                    base.size() - maskedInBase + overlaySegment.size());
+        }
+    }
+
+    /**
+     * What requests match against: the base segment without its masked coupons, then the overlay.
+     */
+    private record View(CompactSegment base, CompactSegment overlay, Set<Long> masked,
+                        Map<Long, String> overlayDescriptions, int size) {
+        private static final View EMPTY = new View(CompactSegment.EMPTY, CompactSegment.EMPTY, Set.of(), Map.of(), 0);
+    }
+
+    private record Hit(CompactSegment segment, int record, double discount) {
+    }
+
+    private record Description(long couponId, long version, String text) {
+    }
+}
@@ -0,0 +1,659 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.condition.CartPredicate;
+import com.monkcommercecoupons.management.model.condition.Condition;
+import com.monkcommercecoupons.management.model.details.BxGyDetails;
+import com.monkcommercecoupons.management.model.details.CartWiseDetails;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.details.ProductQuantity;
+import com.monkcommercecoupons.management.model.details.ProductWiseDetails;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.model.enums.DiscountType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable run of coupons in id order, stored as fixed-width rule records in byte buffers
+ * instead of one {@code Coupon} graph per coupon. Next to the records sit the codes as UTF-8
+ * bytes, the buy and get products of BxGy coupons, and three indexes: cart-wise coupons sorted by
+ * threshold, (product id, record) entries for product-wise coupons and the buy products of BxGy
+ * coupons, and all records sorted by code. A cart is matched by a binary search per index, so
+ * only coupons it can qualify for are read. {@code conditions} trees stay on the heap as compiled predicates, one per
+ * distinct tree, and so do the stacking masks, one per distinct exclusivity group and stacking.
+ *
+ * <p>Buffers are addressed with int offsets, so a segment holds at most about 24 million coupons.
+ *
+ * <p>The discount rules mirror the cart-wise, product-wise and BxGy evaluators; shadowing the
+ * evaluation network with this catalog is how the two are kept in agreement.
+ */
+final class CompactSegment {
+
+    static final int RECORD_BYTES = 88;
+
+    // Record layout. Doubles and longs first so every field is naturally aligned.
+    private static final int ID = 0;
+    private static final int VERSION = 8;
+    /** Epoch millis (UTC) the coupon stays valid until, {@link Long#MAX_VALUE} when it never expires. */
+    private static final int EXPIRES_AT = 16;
+    private static final int THRESHOLD = 24;
+    private static final int DISCOUNT = 32;
+    /** NaN when uncapped. */
+    private static final int MAX_DISCOUNT = 40;
+    private static final int PRODUCT_ID = 48;
+    /** Index into {@link #predicates}, -1 without conditions. */
+    private static final int CONDITION = 56;
+    private static final int CODE_OFFSET = 60;
+    /** Minimum items (cart-wise), minimum quantity (product-wise) or repetition limit (BxGy). */
+    private static final int MIN = 64;
+    /** First buy pair of a BxGy coupon in {@link #pairs}; its get pairs follow the buy pairs. */
+    private static final int PAIRS_OFFSET = 68;
+    private static final int BUY_COUNT = 72;
+    private static final int GET_COUNT = 74;
+    private static final int CODE_LENGTH = 76;
+    private static final int TYPE = 78;
+    private static final int DISCOUNT_TYPE = 79;
+    /** Index into {@link #stackingMasks}. */
+    private static final int STACKING = 80;
+    private static final int PRIORITY = 84;
+
+    /** (product id, quantity) of BxGy coupons. */
+    private static final int PAIR_BYTES = 12;
+    /** (product id, record) entries of the product index. */
+    private static final int PRODUCT_ENTRY_BYTES = 12;
+
+    private static final CouponType[] TYPES = CouponType.values();
+    private static final DiscountType[] DISCOUNT_TYPES = DiscountType.values();
+
+    static final CompactSegment EMPTY = new Builder(false).build();
+
+    private final ByteBuffer records;
+    private final int count;
+    private final ByteBuffer codes;
+    private final ByteBuffer pairs;
+    private final ByteBuffer thresholdOrder;
+    private final int thresholdCount;
+    private final ByteBuffer productIndex;
+    private final int productEntryCount;
+    private final ByteBuffer codeOrder;
+    private final CartPredicate[] predicates;
+    private final StackingMasks.Mask[] stackingMasks;
+
+    private CompactSegment(ByteBuffer records, int count, ByteBuffer codes, ByteBuffer pairs,
+                           ByteBuffer thresholdOrder, int thresholdCount, ByteBuffer productIndex,
+                           int productEntryCount, ByteBuffer codeOrder, CartPredicate[] predicates,
+                           StackingMasks.Mask[] stackingMasks) {
+        this.records = records;
+        this.count = count;
+        this.codes = codes;
+        this.pairs = pairs;
+        this.thresholdOrder = thresholdOrder;
+        this.thresholdCount = thresholdCount;
+        this.productIndex = productIndex;
+        this.productEntryCount = productEntryCount;
+        this.codeOrder = codeOrder;
+        this.predicates = predicates;
+        this.stackingMasks = stackingMasks;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Bytes held by the buffers, off the heap when the segment was built direct.
+     */
+    long bufferBytes() {
+        return (long) records.capacity() + codes.capacity() + pairs.capacity()
+                + thresholdOrder.capacity() + productIndex.capacity() + codeOrder.capacity();
+    }
+
+    long id(int record) {
+        return records.getLong(record * RECORD_BYTES + ID);
+    }
+
+    long version(int record) {
+        return records.getLong(record * RECORD_BYTES + VERSION);
+    }
+
+    CouponType type(int record) {
+        return TYPES[records.get(record * RECORD_BYTES + TYPE)];
+    }
+
+    String code(int record) {
+        int base = record * RECORD_BYTES;
+        byte[] bytes = new byte[records.getShort(base + CODE_LENGTH)];
+        codes.get(records.getInt(base + CODE_OFFSET), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    StackingMasks.Mask stackingMask(int record) {
+        return stackingMasks[records.getInt(record * RECORD_BYTES + STACKING)];
+    }
+
+    int priority(int record) {
+        return records.getInt(record * RECORD_BYTES + PRIORITY);
+    }
+
+    /**
+     * Record holding the coupon, or -1.
+     */
+    int find(long couponId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = id(mid);
+            if (id == couponId) {
+                return mid;
+            }
+            if (id < couponId) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Record holding the coupon with exactly this code, or -1.
+     */
+    int findCode(String code) {
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = codeOrder.getInt(mid * Integer.BYTES);
+            int order = compareCode(records, codes, record, bytes);
+            if (order == 0) {
+                return record;
+            }
+            if (order < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hands every record giving the cart a discount to the visitor. A record is visited at most
+     * once; the order is unspecified.
+     */
+    void match(CartContext context, long nowMillis, Visitor visitor) {
+        double total = context.getTotalPrice();
+        int qualifying = thresholdUpperBound(total);
+        for (int i = 0; i < qualifying; i++) {
+            visit(thresholdOrder.getInt(i * Integer.BYTES), context, nowMillis, null, visitor);
+        }
+
+        List<CartItemDTO> items = context.getCart().getItems();
+        for (int i = 0; i < items.size(); i++) {
+            Long productId = items.get(i).getProductId();
+            if (seenBefore(items, i, productId)) {
+                continue;
+            }
+            for (int entry = productLowerBound(productId); entry < productEntryCount
+                    && productIndex.getLong(entry * PRODUCT_ENTRY_BYTES) == productId; entry++) {
+                visit(productIndex.getInt(entry * PRODUCT_ENTRY_BYTES + Long.BYTES), context, nowMillis, productId, visitor);
+            }
+        }
+    }
+
+    /**
+     * @param viaProduct product whose index entry led here, null for the threshold index
+     */
+    private void visit(int record, CartContext context, long nowMillis, Long viaProduct, Visitor visitor) {
+        int base = record * RECORD_BYTES;
+        if (records.getLong(base + EXPIRES_AT) < nowMillis) {
+            return;
+        }
+        CartDTO cart = context.getCart();
+        CouponType type = TYPES[records.get(base + TYPE)];
+        // A BxGy coupon is indexed under each buy product; only the first one in the cart visits it.
+        if (type == CouponType.BXGY && !viaProduct.equals(firstBuyProductInCart(base, cart))) {
+            return;
+        }
+        int condition = records.getInt(base + CONDITION);
+        if (condition >= 0 && !predicates[condition].test(context)) {
+            return;
+        }
+        double discount = switch (type) {
+            case CART_WISE -> cartWiseDiscount(base, context);
+            case PRODUCT_WISE -> productWiseDiscount(base, cart);
+            case BXGY -> bxGyDiscount(base, cart);
+        };
+        if (discount > 0) {
+            visitor.accept(this, record, discount);
+        }
+    }
+
+    private double cartWiseDiscount(int base, CartContext context) {
+        double cartTotal = context.getTotalPrice();
+        if (cartTotal < records.getDouble(base + THRESHOLD)) {
+            return 0;
+        }
+        int minItems = records.getInt(base + MIN);
+        if (minItems > 0 && context.getTotalItems() < minItems) {
+            return 0;
+        }
+        double discount = records.getDouble(base + DISCOUNT);
+        double calculated = isPercentage(base) ? (cartTotal * discount) / 100.0 : discount;
+        return Math.min(cap(base, calculated), cartTotal);
+    }
+
+    private double productWiseDiscount(int base, CartDTO cart) {
+        CartItemDTO item = cart.findItem(records.getLong(base + PRODUCT_ID)).orElse(null);
+        if (item == null) {
+            return 0;
+        }
+        int minQuantity = records.getInt(base + MIN);
+        if (minQuantity > 0 && item.getQuantity() < minQuantity) {
+            return 0;
+        }
+        double itemTotal = item.getTotalPrice();
+        double discount = records.getDouble(base + DISCOUNT);
+        double calculated = isPercentage(base) ? (itemTotal * discount) / 100.0 : discount * item.getQuantity();
+        return Math.min(cap(base, calculated), itemTotal);
+    }
+
+    private double bxGyDiscount(int base, CartDTO cart) {
+        int pairsOffset = records.getInt(base + PAIRS_OFFSET);
+        int buyCount = records.getShort(base + BUY_COUNT);
+        int getCount = records.getShort(base + GET_COUNT);
+
+        int totalBuyQty = 0;
+        int availableBuyQty = 0;
+        for (int i = 0; i < buyCount; i++) {
+            int pair = (pairsOffset + i) * PAIR_BYTES;
+            totalBuyQty += pairs.getInt(pair + Long.BYTES);
+            availableBuyQty += cart.getQuantityOf(pairs.getLong(pair));
+        }
+        if (availableBuyQty < totalBuyQty) {
+            return 0;
+        }
+        int repetitions = Math.min(availableBuyQty / totalBuyQty, records.getInt(base + MIN));
+
+        int totalGetQty = 0;
+        for (int i = 0; i < getCount; i++) {
+            totalGetQty += pairs.getInt((pairsOffset + buyCount + i) * PAIR_BYTES + Long.BYTES);
+        }
+        List<CartItemDTO> getItems = new ArrayList<>(getCount);
+        for (CartItemDTO item : cart.getItems()) {
+            if (isGetProduct(pairsOffset + buyCount, getCount, item.getProductId())) {
+                getItems.add(item);
+            }
+        }
+        getItems.sort(Comparator.comparingDouble(CartItemDTO::getPrice));
+
+        // The cheapest "get" items go free first.
+        int remainingFreeQty = totalGetQty * repetitions;
+        double discount = 0;
+        for (CartItemDTO item : getItems) {
+            if (remainingFreeQty <= 0) {
+                break;
+            }
+            int freeQty = Math.min(remainingFreeQty, item.getQuantity());
+            discount += freeQty * item.getPrice();
+            remainingFreeQty -= freeQty;
+        }
+        return discount;
+    }
+
+    private boolean isGetProduct(int firstPair, int getCount, Long productId) {
+        for (int i = 0; i < getCount; i++) {
+            if (pairs.getLong((firstPair + i) * PAIR_BYTES) == productId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Long firstBuyProductInCart(int base, CartDTO cart) {
+        int pairsOffset = records.getInt(base + PAIRS_OFFSET);
+        int buyCount = records.getShort(base + BUY_COUNT);
+        for (int i = 0; i < buyCount; i++) {
+            long productId = pairs.getLong((pairsOffset + i) * PAIR_BYTES);
+            if (cart.getQuantityOf(productId) > 0) {
+                return productId;
+            }
+        }
+        return null;
+    }
+
+    private boolean isPercentage(int base) {
+        return DISCOUNT_TYPES[records.get(base + DISCOUNT_TYPE)] == DiscountType.PERCENTAGE;
+    }
+
+    private double cap(int base, double discount) {
+        double maxDiscount = records.getDouble(base + MAX_DISCOUNT);
+        return Double.isNaN(maxDiscount) ? discount : Math.min(discount, maxDiscount);
+    }
+
+    /**
+     * Number of cart-wise coupons whose threshold the total reaches.
+     */
+    private int thresholdUpperBound(double total) {
+        int low = 0;
+        int high = thresholdCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (threshold(thresholdOrder.getInt(mid * Integer.BYTES)) <= total) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private double threshold(int record) {
+        return records.getDouble(record * RECORD_BYTES + THRESHOLD);
+    }
+
+    private int productLowerBound(long productId) {
+        int low = 0;
+        int high = productEntryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (productIndex.getLong(mid * PRODUCT_ENTRY_BYTES) < productId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean seenBefore(List<CartItemDTO> items, int index, Long productId) {
+        for (int i = 0; i < index; i++) {
+            if (items.get(i).getProductId().equals(productId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the code of a record with UTF-8 bytes, byte by byte as unsigned values.
+     */
+    private static int compareCode(ByteBuffer records, ByteBuffer codes, int record, byte[] code) {
+        int base = record * RECORD_BYTES;
+        int offset = records.getInt(base + CODE_OFFSET);
+        int length = records.getShort(base + CODE_LENGTH);
+        for (int i = 0; i < Math.min(length, code.length); i++) {
+            int order = Integer.compare(codes.get(offset + i) & 0xFF, code[i] & 0xFF);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(length, code.length);
+    }
+
+    private static int compareCodes(ByteBuffer records, ByteBuffer codes, int a, int b) {
+        int offsetA = records.getInt(a * RECORD_BYTES + CODE_OFFSET);
+        int lengthA = records.getShort(a * RECORD_BYTES + CODE_LENGTH);
+        int offsetB = records.getInt(b * RECORD_BYTES + CODE_OFFSET);
+        int lengthB = records.getShort(b * RECORD_BYTES + CODE_LENGTH);
+        for (int i = 0; i < Math.min(lengthA, lengthB); i++) {
+            int order = Integer.compare(codes.get(offsetA + i) & 0xFF, codes.get(offsetB + i) & 0xFF);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(lengthA, lengthB);
+    }
+
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @FunctionalInterface
+    interface Visitor {
+        void accept(CompactSegment segment, int record, double discount);
+    }
+
+    /**
+     * Appends coupons, which must come in ascending id order, and builds the segment with its
+     * indexes. Buffers are allocated with the first coupon and grow by doubling; {@code direct}
+     * puts them off the heap.
+     */
+    static final class Builder {
+
+        private final boolean direct;
+        private final Map<Condition, Integer> conditionIndexes = new HashMap<>();
+        private final List<CartPredicate> predicates = new ArrayList<>();
+        private final Map<StackingMasks.Mask, Integer> stackingIndexes = new IdentityHashMap<>();
+        private ByteBuffer records;
+        private ByteBuffer codes;
+        private ByteBuffer pairs;
+        private int count;
+        private int cartWiseCount;
+        private int productEntryCount;
+        private long lastId = Long.MIN_VALUE;
+
+        Builder(boolean direct) {
+            this.direct = direct;
+            this.records = ByteBuffer.allocate(0);
+            this.codes = ByteBuffer.allocate(0);
+            this.pairs = ByteBuffer.allocate(0);
+        }
+
+        void add(long id, long version, String code, CouponDetails details, LocalDateTime expirationDate,
+                 StackingMasks.Mask stackingMask, int priority) {
+            if (id <= lastId) {
+                throw new IllegalArgumentException("Coupons must be added in ascending id order: " + id + " after " + lastId);
+            }
+            lastId = id;
+            records = ensure(records, RECORD_BYTES, 64 * RECORD_BYTES);
+            int base = count * RECORD_BYTES;
+            records.putLong(base + ID, id);
+            records.putLong(base + VERSION, version);
+            records.putLong(base + EXPIRES_AT, expirationDate != null ? toEpochMillis(expirationDate) : Long.MAX_VALUE);
+            records.putDouble(base + MAX_DISCOUNT, Double.NaN);
+            records.putInt(base + CONDITION, details.getConditions() != null ? conditionIndex(details.getConditions()) : -1);
+            records.putInt(base + STACKING, stackingIndexes.computeIfAbsent(stackingMask, mask -> stackingIndexes.size()));
+            records.putInt(base + PRIORITY, priority);
+
+            byte[] codeBytes = code.getBytes(StandardCharsets.UTF_8);
+            codes = ensure(codes, codeBytes.length, 1024);
+            records.putInt(base + CODE_OFFSET, codes.position());
+            records.putShort(base + CODE_LENGTH, (short) codeBytes.length);
+            codes.put(codeBytes);
+
+            if (details instanceof CartWiseDetails cartWise) {
+                records.put(base + TYPE, (byte) CouponType.CART_WISE.ordinal());
+                records.put(base + DISCOUNT_TYPE, (byte) cartWise.getDiscountType().ordinal());
+                records.putDouble(base + THRESHOLD, cartWise.getThreshold());
+                records.putDouble(base + DISCOUNT, cartWise.getDiscount());
+                putMaxDiscount(base, cartWise.getMaxDiscount());
+                records.putInt(base + MIN, cartWise.getMinItems() != null ? cartWise.getMinItems() : 0);
+                cartWiseCount++;
+            } else if (details instanceof ProductWiseDetails productWise) {
+                records.put(base + TYPE, (byte) CouponType.PRODUCT_WISE.ordinal());
+                records.put(base + DISCOUNT_TYPE, (byte) productWise.getDiscountType().ordinal());
+                records.putLong(base + PRODUCT_ID, productWise.getProductId());
+                records.putDouble(base + DISCOUNT, productWise.getDiscount());
+                putMaxDiscount(base, productWise.getMaxDiscount());
+                records.putInt(base + MIN, productWise.getMinQuantity() != null ? productWise.getMinQuantity() : 0);
+                productEntryCount++;
+            } else if (details instanceof BxGyDetails bxGy) {
+                records.put(base + TYPE, (byte) CouponType.BXGY.ordinal());
+                records.putInt(base + MIN, bxGy.getRepetitionLimit());
+                records.putInt(base + PAIRS_OFFSET, pairs.position() / PAIR_BYTES);
+                records.putShort(base + BUY_COUNT, (short) bxGy.getBuyProducts().size());
+                records.putShort(base + GET_COUNT, (short) bxGy.getGetProducts().size());
+                putPairs(bxGy.getBuyProducts());
+                putPairs(bxGy.getGetProducts());
+                productEntryCount += (int) bxGy.getBuyProducts().stream().map(ProductQuantity::getProductId).distinct().count();
+            } else {
+                throw new IllegalArgumentException("Unsupported coupon details " + details.getClass().getSimpleName());
+            }
+            records.position(base + RECORD_BYTES);
+            count++;
+        }
+
+        CompactSegment build() {
+            // A merchant without coupons costs no buffer at all, on or off the heap.
+            if (count == 0) {
+                return new CompactSegment(records, 0, codes, pairs, ByteBuffer.allocate(0), 0, ByteBuffer.allocate(0),
+                        0, ByteBuffer.allocate(0), new CartPredicate[0], new StackingMasks.Mask[0]);
+            }
+            ByteBuffer thresholdOrder = allocate(Math.max(1, cartWiseCount) * Integer.BYTES);
+            ByteBuffer productIndex = allocate(Math.max(1, productEntryCount) * PRODUCT_ENTRY_BYTES);
+            ByteBuffer codeOrder = allocate(Math.max(1, count) * Integer.BYTES);
+            int thresholds = 0;
+            int productEntries = 0;
+            for (int record = 0; record < count; record++) {
+                int base = record * RECORD_BYTES;
+                codeOrder.putInt(record * Integer.BYTES, record);
+                switch (TYPES[records.get(base + TYPE)]) {
+                    case CART_WISE -> thresholdOrder.putInt(thresholds++ * Integer.BYTES, record);
+                    case PRODUCT_WISE -> putProductEntry(productIndex, productEntries++, records.getLong(base + PRODUCT_ID), record);
+                    case BXGY -> {
+                        int pairsOffset = records.getInt(base + PAIRS_OFFSET);
+                        int buyCount = records.getShort(base + BUY_COUNT);
+                        for (int i = 0; i < buyCount; i++) {
+                            long productId = pairs.getLong((pairsOffset + i) * PAIR_BYTES);
+                            if (!listedEarlier(pairsOffset, i, productId)) {
+                                putProductEntry(productIndex, productEntries++, productId, record);
+                            }
+                        }
+                    }
+                }
+            }
+            ByteBuffer sortedRecords = records;
+            ByteBuffer sortedCodes = codes;
+            heapSort(thresholdOrder, thresholds, Integer.BYTES, (buffer, a, b) ->
+                    Double.compare(threshold(sortedRecords, buffer.getInt(a)), threshold(sortedRecords, buffer.getInt(b))));
+            heapSort(productIndex, productEntries, PRODUCT_ENTRY_BYTES, (buffer, a, b) ->
+                    Long.compare(buffer.getLong(a), buffer.getLong(b)));
+            heapSort(codeOrder, count, Integer.BYTES, (buffer, a, b) ->
+                    compareCodes(sortedRecords, sortedCodes, buffer.getInt(a), buffer.getInt(b)));
+            return new CompactSegment(records, count, codes, pairs, thresholdOrder, thresholds, productIndex,
+                    productEntries, codeOrder, predicates.toArray(CartPredicate[]::new), stackingMasks());
+        }
+
+        private StackingMasks.Mask[] stackingMasks() {
+            StackingMasks.Mask[] masks = new StackingMasks.Mask[stackingIndexes.size()];
+            stackingIndexes.forEach((mask, index) -> masks[index] = mask);
+            return masks;
+        }
+
+        private boolean listedEarlier(int pairsOffset, int index, long productId) {
+            for (int i = 0; i < index; i++) {
+                if (pairs.getLong((pairsOffset + i) * PAIR_BYTES) == productId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void putMaxDiscount(int base, Double maxDiscount) {
+            if (maxDiscount != null) {
+                records.putDouble(base + MAX_DISCOUNT, maxDiscount);
+            }
+        }
+
+        private void putPairs(List<ProductQuantity> products) {
+            pairs = ensure(pairs, products.size() * PAIR_BYTES, 16 * PAIR_BYTES);
+            for (ProductQuantity product : products) {
+                pairs.putLong(product.getProductId());
+                pairs.putInt(product.getQuantity());
+            }
+        }
+
+        private int conditionIndex(Condition conditions) {
+            return conditionIndexes.computeIfAbsent(conditions, condition -> {
+                predicates.add(condition.compile());
+                return predicates.size() - 1;
+            });
+        }
+
+        private ByteBuffer ensure(ByteBuffer buffer, int bytes, int initialBytes) {
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            long capacity = Math.max(Math.max(2L * buffer.capacity(), initialBytes), (long) buffer.position() + bytes);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Compact catalog segment exceeds 2 GB");
+            }
+            ByteBuffer grown = allocate((int) capacity);
+            grown.put(buffer.flip());
+            return grown;
+        }
+
+        private ByteBuffer allocate(int bytes) {
+            return (direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes)).order(ByteOrder.nativeOrder());
+        }
+
+        private static double threshold(ByteBuffer records, int record) {
+            return records.getDouble(record * RECORD_BYTES + THRESHOLD);
+        }
+
+        private static void putProductEntry(ByteBuffer productIndex, int entry, long productId, int record) {
+            productIndex.putLong(entry * PRODUCT_ENTRY_BYTES, productId);
+            productIndex.putInt(entry * PRODUCT_ENTRY_BYTES + Long.BYTES, record);
+        }
+
+        /**
+         * Sorts fixed-width entries in place, without copying them onto the heap.
+         */
+        private static void heapSort(ByteBuffer buffer, int size, int width, EntryComparator comparator) {
+            byte[] first = new byte[width];
+            byte[] second = new byte[width];
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(buffer, i, size, width, comparator, first, second);
+            }
+            for (int end = size - 1; end > 0; end--) {
+                swap(buffer, 0, end, width, first, second);
+                siftDown(buffer, 0, end, width, comparator, first, second);
+            }
+        }
+
+        private static void siftDown(ByteBuffer buffer, int root, int size, int width, EntryComparator comparator,
+                                     byte[] first, byte[] second) {
+            while (true) {
+                int child = 2 * root + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && comparator.compare(buffer, child * width, (child + 1) * width) < 0) {
+                    child++;
+                }
+                if (comparator.compare(buffer, root * width, child * width) >= 0) {
+                    return;
+                }
+                swap(buffer, root, child, width, first, second);
+                root = child;
+            }
+        }
+
+        private static void swap(ByteBuffer buffer, int a, int b, int width, byte[] first, byte[] second) {
+            buffer.get(a * width, first);
+            buffer.get(b * width, second);
+            buffer.put(a * width, second);
+            buffer.put(b * width, first);
+        }
+
+        @FunctionalInterface
+        private interface EntryComparator {
+            int compare(ByteBuffer buffer, int offsetA, int offsetB);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.CatalogProperties;
+import com.monkcommercecoupons.management.model.entity.CouponChange;
+import com.monkcommercecoupons.management.model.enums.ChangeType;
+import com.monkcommercecoupons.management.repository.CouponChangeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Records coupon writes in the {@code coupon_changes} table and tails it for the in-memory
+ * catalogs, so every instance sharing the database reloads only the coupons that changed.
+ * Each catalog {@link #subscribe subscribes} with its own {@link Cursor}, and a single poller
+ * thread reads the table every {@code poll-interval} and hands each catalog its changes, so
+ * requests never wait on the feed. Writes made through this instance wake the poller up as
+ * soon as they commit.
+ *
+ * <p>Change ids are allocated when a row is inserted but become visible when its transaction
+ * commits, so a reader can see id 11 before id 10. Ids skipped over are kept as gaps and
+ * re-read on later polls until they show up or {@code gap-timeout} passes (the writer rolled back).
+ */
+@Component
+@Slf4j
+public class CouponChangeFeed {
+
+    private static final int MAX_GAPS = 10_000;
+
+    private final CouponChangeRepository couponChangeRepository;
+    private final CatalogProperties properties;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Thread poller;
+    private volatile boolean running = true;
+
+    public CouponChangeFeed(CouponChangeRepository couponChangeRepository, CatalogProperties properties) {
+        this.couponChangeRepository = couponChangeRepository;
+        this.properties = properties;
+        this.poller = new Thread(this::run, "coupon-change-feed");
+        this.poller.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        // The poller sleeps for the interval between reads; without one it would query back to back.
+        if (properties.getPollInterval().isNegative() || properties.getPollInterval().isZero()) {
+            throw new IllegalStateException("coupons.catalog.poll-interval must be positive");
+        }
+        poller.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(poller);
+        if (poller.isAlive()) {
+            poller.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.getRefresh() == CatalogProperties.RefreshMode.CHANGE_FEED;
+    }
+
+    /**
+     * Opens a cursor at the end of the feed whose changes are handed to {@code listener} on the
+     * poller thread, on every poll: {@link Changes#NONE} when nothing changed, so listeners can do
+     * periodic work there too. After the listener fails it is asked for a full load instead, since the
+     * changes it was given are lost.
+     */
+    public void subscribe(Consumer<Changes> listener) {
+        Cursor cursor = new Cursor();
+        if (isEnabled()) {
+            // The subscriber hasn't loaded anything yet, so the full load this asks for is moot.
+            cursor.poll();
+            cursor.handedOn();
+        }
+        subscriptions.add(new Subscription(cursor, listener));
+    }
+
+    /**
+     * Appends a change row in the caller's transaction. Cursors of this instance skip their poll
+     * interval once it commits; a poll in between wouldn't see the row yet.
+     */
+    public void record(String merchantId, Long couponId, ChangeType changeType) {
+        couponChangeRepository.save(CouponChange.builder()
+                .merchantId(merchantId)
+                .couponId(couponId)
+                .changeType(changeType)
+                .build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markLocalWrite();
+                }
+            });
+        } else {
+            markLocalWrite();
+        }
+    }
+
+    private void markLocalWrite() {
+        for (Subscription subscription : subscriptions) {
+            subscription.cursor().localWrite = true;
+        }
+        LockSupport.unpark(poller);
+    }
+
+    /**
+     * Highest change id every cursor of this instance has read and handed on to its listener, or
+     * {@code -1} before the first poll.
+     */
+    public long getWatermark() {
+        long readUpTo = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            long watermark = subscription.cursor().getWatermark();
+            // A cursor that never polled starts from a full load and the current maximum id.
+            if (watermark >= 0) {
+                readUpTo = Math.min(readUpTo, watermark);
+            }
+        }
+        return readUpTo != Long.MAX_VALUE ? readUpTo : -1;
+    }
+
+    /**
+     * Deletes change rows written before {@code changedBefore}. Rows a cursor of this instance
+     * hasn't read yet are kept; readers on other instances are only covered by the age.
+     */
+    public int prune(LocalDateTime changedBefore) {
+        long watermark = getWatermark();
+        return couponChangeRepository.deleteChangedBefore(changedBefore, watermark >= 0 ? watermark : Long.MAX_VALUE);
+    }
+
+    /**
+     * Polls every cursor once and hands on what it read.
+     */
+    void tail() {
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.listener().accept(subscription.cursor().poll());
+                subscription.cursor().handedOn();
+            } catch (RuntimeException e) {
+                log.warn("Following the change feed failed, reloading everything on the next poll", e);
+                subscription.cursor().reset();
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            tail();
+            LockSupport.parkNanos(properties.getPollInterval().toNanos());
+        }
+    }
+
+    private static void add(Map<String, Set<Long>> couponIds, CouponChange change) {
+        couponIds.computeIfAbsent(change.getMerchantId(), merchantId -> new HashSet<>()).add(change.getCouponId());
+    }
+
+    private record Subscription(Cursor cursor, Consumer<Changes> listener) {
+    }
+
+    /**
+     * One reader's position in the feed and the gaps it still waits for.
+     */
+    private final class Cursor {
+
+        private final Map<Long, Long> gapDeadlines = new HashMap<>();
+        private long watermark = -1;
+        /** Watermark of the last poll whose changes the listener has applied. */
+        private long handedOnWatermark = -1;
+        private long nextPollNanos;
+        private volatile boolean localWrite;
+
+        private Cursor() {
+        }
+
+        /**
+         * Reads the changes committed since this cursor's previous poll.
+         */
+        synchronized Changes poll() {
+            long now = System.nanoTime();
+            if (watermark < 0) {
+                // Taken before the caller loads the catalog: anything committed in between is read twice, never missed.
+                watermark = couponChangeRepository.findMaxId();
+                nextPollNanos = now + properties.getPollInterval().toNanos();
+                return Changes.FULL;
+            }
+            if (!localWrite && now - nextPollNanos < 0) {
+                return Changes.NONE;
+            }
+            localWrite = false;
+            nextPollNanos = now + properties.getPollInterval().toNanos();
+
+            Map<String, Set<Long>> couponIds = new HashMap<>();
+            if (!gapDeadlines.isEmpty()) {
+                for (CouponChange change : couponChangeRepository.findAllById(gapDeadlines.keySet())) {
+                    gapDeadlines.remove(change.getId());
+                    add(couponIds, change);
+                }
+                gapDeadlines.values().removeIf(deadline -> now - deadline > 0);
+            }
+
+            long gapDeadline = now + properties.getGapTimeout().toNanos();
+            List<CouponChange> batch;
+            do {
+                batch = couponChangeRepository.findByIdGreaterThanOrderByIdAsc(watermark,
+                        PageRequest.ofSize(properties.getBatchSize()));
+                for (CouponChange change : batch) {
+                    for (long skipped = watermark + 1; skipped < change.getId() && gapDeadlines.size() < MAX_GAPS; skipped++) {
+                        gapDeadlines.put(skipped, gapDeadline);
+                    }
+                    watermark = change.getId();
+                    add(couponIds, change);
+                }
+            } while (batch.size() == properties.getBatchSize());
+
+            if (!couponIds.isEmpty()) {
+                log.debug("Change feed advanced to {}: changes for {} merchants, {} open gaps",
+                        watermark, couponIds.size(), gapDeadlines.size());
+            }
+            return couponIds.isEmpty() ? Changes.NONE : new Changes(false, couponIds);
+        }
+
+        synchronized void handedOn() {
+            handedOnWatermark = watermark;
+        }
+
+        synchronized long getWatermark() {
+            return handedOnWatermark;
+        }
+
+        synchronized void reset() {
+            watermark = -1;
+            handedOnWatermark = -1;
+            gapDeadlines.clear();
+        }
+    }
+
+    /**
+     * Result of a poll: either every catalog must be loaded again, or the ids of the coupons to
+     * reload, grouped by merchant.
+     */
+    public record Changes(boolean full, Map<String, Set<Long>> couponIds) {
+        static final Changes FULL = new Changes(true, Map.of());
+        static final Changes NONE = new Changes(false, Map.of());
+    }
+}
@@ -0,0 +1,460 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.CouponCodeProperties;
+import com.monkcommercecoupons.management.exception.InvalidSearchException;
+import com.monkcommercecoupons.management.repository.CouponCode;
+import com.monkcommercecoupons.management.repository.CouponRepository;
+import com.monkcommercecoupons.management.util.CouponCodes;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Sorted index of every coupon code (active or not) per merchant, for prefix and range searches.
+ *
+ * <p>Codes are stored normalized, as UTF-8 bytes in one array with an offset and a coupon id per
+ * entry, sorted by code then id; a search is a binary search followed by a sequential walk. Writes
+ * go to a small sorted delta that searches merge in, and the delta is folded into the arrays once
+ * it grows past an eighth of them, so bulk writes cost amortized O(1) copies per code. The ids
+ * are also kept sorted with the position of their entry, and the delta's keys by id, so a change
+ * read from the feed finds the codes it replaces without walking the index.
+ *
+ * <p>A merchant's index is loaded on its first search and then follows the writes made through
+ * this instance, applied after their transaction commits, and the coupon writes of other
+ * instances, read through its own cursor on the {@link CouponChangeFeed} and applied on its
+ * poller thread. Bulk writes such as
+ * code generation aren't in the feed, so an index is loaded again once it is older than
+ * {@code index-ttl}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CouponCodeIndex {
+
+    private static final int MIN_COMPACTION_THRESHOLD = 4096;
+
+    private final CouponRepository couponRepository;
+    private final CouponChangeFeed couponChangeFeed;
+    private final CouponCodeProperties properties;
+
+    private final Map<String, MerchantCodes> merchants = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void subscribe() {
+        couponChangeFeed.subscribe(this::apply);
+    }
+
+    public void added(String merchantId, Long couponId, String code) {
+        afterCommit(merchantId, codes -> codes.put(key(code, couponId), true));
+    }
+
+    public void renamed(String merchantId, Long couponId, String oldCode, String newCode) {
+        afterCommit(merchantId, codes -> {
+            codes.put(key(oldCode, couponId), false);
+            codes.put(key(newCode, couponId), true);
+        });
+    }
+
+    public void removed(String merchantId, Long couponId, String code) {
+        afterCommit(merchantId, codes -> codes.put(key(code, couponId), false));
+    }
+
+    /**
+     * Forgets the merchant's index after a bulk write, so its next search loads the committed codes.
+     */
+    public void invalidate(String merchantId) {
+        runAfterCommit(() -> merchants.remove(merchantId));
+    }
+
+    /**
+     * Returns up to {@code limit} coupon ids whose codes start with {@code prefix}, or fall in
+     * [{@code from}, {@code to}) when no prefix is given, in code order. {@code cursor} is the
+     * {@link CodePage#nextCursor()} of the previous page.
+     */
+    public CodePage search(String merchantId, String prefix, String from, String to, String cursor, int limit) {
+        byte[] prefixBytes = prefix != null ? bytes(prefix) : null;
+        byte[] toBytes = prefixBytes == null && to != null ? bytes(to) : null;
+        Key start = cursor != null
+                ? decodeCursor(cursor)
+                : new Key(prefixBytes != null ? prefixBytes : from != null ? bytes(from) : new byte[0], Long.MIN_VALUE);
+
+        long now = System.nanoTime();
+        MerchantCodes codes = merchants.compute(merchantId, (id, current) ->
+                current == null || current.isOlderThan(now - properties.getIndexTtl().toNanos()) ? new MerchantCodes() : current);
+        codes.ensureLoaded(merchantId);
+        List<Key> keys = codes.scan(start, cursor == null, limit + 1, key -> prefixBytes != null
+                ? startsWith(key.code, prefixBytes)
+                : toBytes == null || Arrays.compareUnsigned(key.code, toBytes) < 0);
+
+        boolean more = keys.size() > limit;
+        List<Key> page = more ? keys.subList(0, limit) : keys;
+        return new CodePage(page.stream().map(key -> key.id).toList(),
+                more ? encodeCursor(page.get(page.size() - 1)) : null);
+    }
+
+    public int size(String merchantId) {
+        MerchantCodes codes = merchants.get(merchantId);
+        return codes != null ? codes.size() : 0;
+    }
+
+    /**
+     * Applies the coupon writes read from the change feed to the indexes already loaded.
+     */
+    private void apply(CouponChangeFeed.Changes changes) {
+        if (changes.full()) {
+            merchants.clear();
+        }
+        changes.couponIds().forEach((merchantId, couponIds) -> {
+            MerchantCodes codes = merchants.get(merchantId);
+            if (codes != null) {
+                List<CouponCode> current = couponRepository.findCodesByMerchantIdAndIdIn(merchantId, couponIds);
+                codes.write(changed -> changed.replace(couponIds, current));
+            }
+        });
+    }
+
+    private void afterCommit(String merchantId, Consumer<MerchantCodes> change) {
+        runAfterCommit(() -> {
+            // Merchants never searched aren't indexed; their first search loads committed codes.
+            MerchantCodes codes = merchants.get(merchantId);
+            if (codes != null) {
+                codes.write(change);
+            }
+        });
+    }
+
+    private static void runAfterCommit(Runnable apply) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private static Key key(String code, Long couponId) {
+        return new Key(bytes(code), couponId);
+    }
+
+    private static byte[] bytes(String code) {
+        return CouponCodes.normalize(code).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWith(byte[] code, byte[] prefix) {
+        return code.length >= prefix.length
+                && Arrays.equals(code, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static String encodeCursor(Key key) {
+        String value = key.id + ":" + new String(key.code, StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Key decodeCursor(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+            return new Key(value.substring(separator + 1).getBytes(StandardCharsets.UTF_8),
+                    Long.parseLong(value.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidSearchException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * One page of a search; {@code nextCursor} is null on the last page.
+     */
+    public record CodePage(List<Long> couponIds, String nextCursor) {
+    }
+
+    private static final class Key implements Comparable<Key> {
+        private final byte[] code;
+        private final long id;
+
+        private Key(byte[] code, long id) {
+            this.code = code;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int order = Arrays.compareUnsigned(code, other.code);
+            return order != 0 ? order : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * One merchant's codes: sorted arrays plus a delta of writes since they were built, where
+     * {@code false} hides an entry of the arrays. {@code sortedIds} holds the ids of the arrays in
+     * ascending order, with the position of each entry at the same index in {@code positionsById}.
+     */
+    private final class MerchantCodes {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeMap<Key, Boolean> delta = new TreeMap<>();
+        private final Map<Long, List<Key>> deltaKeysById = new HashMap<>();
+        private volatile boolean loaded;
+        private volatile long loadedAtNanos;
+        private byte[] bytes = new byte[0];
+        private int[] offsets = {0};
+        private long[] ids = new long[0];
+        private long[] sortedIds = new long[0];
+        private int[] positionsById = new int[0];
+
+        void ensureLoaded(String merchantId) {
+            lock.readLock().lock();
+            try {
+                if (loaded) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    return;
+                }
+                // Writes committed from here on wait for the lock and land in the delta; the
+                // ones this query also sees are the same keys and simply override it.
+                List<Key> keys = new ArrayList<>();
+                for (CouponCode coupon : couponRepository.findCodesByMerchantId(merchantId)) {
+                    keys.add(key(coupon.getCode(), coupon.getId()));
+                }
+                keys.sort(null);
+                pack(keys);
+                loadedAtNanos = System.nanoTime();
+                loaded = true;
+                log.info("Loaded code index for merchant {}: {} codes", merchantId, ids.length);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void write(Consumer<MerchantCodes> change) {
+            lock.writeLock().lock();
+            try {
+                change.accept(this);
+                if (delta.size() > Math.max(MIN_COMPACTION_THRESHOLD, ids.length / 8)) {
+                    compact();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        boolean isOlderThan(long nanos) {
+            return loaded && loadedAtNanos - nanos < 0;
+        }
+
+        void put(Key key, boolean present) {
+            if (delta.put(key, present) == null) {
+                deltaKeysById.computeIfAbsent(key.id, id -> new ArrayList<>(1)).add(key);
+            }
+        }
+
+        /**
+         * Replaces whatever the index holds for the coupons with their current codes.
+         */
+        void replace(Set<Long> couponIds, List<CouponCode> current) {
+            // Not loaded yet: the load reads the committed codes.
+            if (!loaded) {
+                return;
+            }
+            for (Long couponId : couponIds) {
+                for (Key key : deltaKeysById.getOrDefault(couponId, List.of())) {
+                    delta.put(key, false);
+                }
+                for (int index = firstIndexOf(couponId); index < sortedIds.length && sortedIds[index] == couponId; index++) {
+                    put(keyAt(positionsById[index]), false);
+                }
+            }
+            for (CouponCode coupon : current) {
+                put(key(coupon.getCode(), coupon.getId()), true);
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                int size = ids.length;
+                for (Map.Entry<Key, Boolean> entry : delta.entrySet()) {
+                    boolean inArrays = find(entry.getKey()) >= 0;
+                    if (entry.getValue() && !inArrays) {
+                        size++;
+                    } else if (!entry.getValue() && inArrays) {
+                        size--;
+                    }
+                }
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Walks keys from {@code start} in order while {@code inRange} holds, merging the delta
+         * over the arrays, and returns at most {@code max} live keys.
+         */
+        List<Key> scan(Key start, boolean inclusive, int max, Predicate<Key> inRange) {
+            lock.readLock().lock();
+            try {
+                List<Key> result = new ArrayList<>(Math.min(max, 128));
+                int position = lowerBound(start);
+                if (!inclusive && position < ids.length && compare(position, start) == 0) {
+                    position++;
+                }
+                Iterator<Map.Entry<Key, Boolean>> changes = delta.tailMap(start, inclusive).entrySet().iterator();
+                Map.Entry<Key, Boolean> change = changes.hasNext() ? changes.next() : null;
+
+                while (result.size() < max) {
+                    Key key;
+                    boolean present;
+                    int order = position >= ids.length ? 1 : change == null ? -1 : compare(position, change.getKey());
+                    if (position >= ids.length && change == null) {
+                        break;
+                    }
+                    if (order < 0) {
+                        key = keyAt(position++);
+                        present = true;
+                    } else {
+                        key = change.getKey();
+                        present = change.getValue();
+                        if (order == 0) {
+                            position++;
+                        }
+                        change = changes.hasNext() ? changes.next() : null;
+                    }
+                    if (!inRange.test(key)) {
+                        break;
+                    }
+                    if (present) {
+                        result.add(key);
+                    }
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void compact() {
+            List<Key> merged = new ArrayList<>(ids.length + delta.size());
+            int position = 0;
+            for (Map.Entry<Key, Boolean> change : delta.entrySet()) {
+                while (position < ids.length && compare(position, change.getKey()) < 0) {
+                    merged.add(keyAt(position++));
+                }
+                if (position < ids.length && compare(position, change.getKey()) == 0) {
+                    position++;
+                }
+                if (change.getValue()) {
+                    merged.add(change.getKey());
+                }
+            }
+            while (position < ids.length) {
+                merged.add(keyAt(position++));
+            }
+            pack(merged);
+            delta.clear();
+            deltaKeysById.clear();
+        }
+
+        private void pack(List<Key> keys) {
+            int length = 0;
+            for (Key key : keys) {
+                length += key.code.length;
+            }
+            byte[] packed = new byte[length];
+            int[] packedOffsets = new int[keys.size() + 1];
+            long[] packedIds = new long[keys.size()];
+            int offset = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                Key key = keys.get(i);
+                System.arraycopy(key.code, 0, packed, offset, key.code.length);
+                packedOffsets[i] = offset;
+                packedIds[i] = key.id;
+                offset += key.code.length;
+            }
+            packedOffsets[keys.size()] = offset;
+            bytes = packed;
+            offsets = packedOffsets;
+            ids = packedIds;
+
+            sortedIds = packedIds.clone();
+            Arrays.sort(sortedIds);
+            positionsById = new int[packedIds.length];
+            Arrays.fill(positionsById, -1);
+            for (int position = 0; position < packedIds.length; position++) {
+                // An id listed more than once takes the next free index of its run.
+                int index = firstIndexOf(packedIds[position]);
+                while (positionsById[index] >= 0) {
+                    index++;
+                }
+                positionsById[index] = position;
+            }
+        }
+
+        /**
+         * First index of {@code id} in {@code sortedIds}, or where it would go.
+         */
+        private int firstIndexOf(long id) {
+            int low = 0;
+            int high = sortedIds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedIds[mid] < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private Key keyAt(int position) {
+            return new Key(Arrays.copyOfRange(bytes, offsets[position], offsets[position + 1]), ids[position]);
+        }
+
+        private int compare(int position, Key key) {
+            int order = Arrays.compareUnsigned(bytes, offsets[position], offsets[position + 1], key.code, 0, key.code.length);
+            return order != 0 ? order : Long.compare(ids[position], key.id);
+        }
+
+        /**
+         * First position whose key is not below {@code key}.
+         */
+        private int lowerBound(Key key) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(mid, key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int find(Key key) {
+            int position = lowerBound(key);
+            return position < ids.length && compare(position, key) == 0 ? position : -1;
+        }
+    }
+}
@@ -0,0 +1,636 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.CatalogProperties;
+import com.monkcommercecoupons.management.model.condition.AllCondition;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.condition.CartPredicate;
+import com.monkcommercecoupons.management.model.condition.CartTotalCondition;
+import com.monkcommercecoupons.management.model.condition.Condition;
+import com.monkcommercecoupons.management.model.condition.ItemCountCondition;
+import com.monkcommercecoupons.management.model.condition.ProductQuantityCondition;
+import com.monkcommercecoupons.management.model.condition.ProductSetCondition;
+import com.monkcommercecoupons.management.model.details.BxGyDetails;
+import com.monkcommercecoupons.management.model.details.CartWiseDetails;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.details.ProductQuantity;
+import com.monkcommercecoupons.management.model.details.ProductWiseDetails;
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponDTO;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.repository.CouponRepository;
+import com.monkcommercecoupons.management.repository.CouponVersion;
+import com.monkcommercecoupons.management.service.CouponDetailsMapper;
+import com.monkcommercecoupons.management.util.CouponCodes;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Rete-style network over the active coupon catalog. Every coupon is reduced to a list of
+ * guard conditions (its type-specific preconditions plus its {@code conditions} tree), and
+ * structurally equal guards are shared as a single node. Matching a cart evaluates each
+ * node at most once and fans the result out to all dependent coupons through bitsets.
+ *
+ * <p>Product-wise and BxGy coupons are also indexed by the products they name, so previewing
+ * offers for a single product only checks the coupons of that product, and every coupon is
+ * indexed by its case-insensitive code.
+ *
+ * <p>Exclusivity groups and stacking are compiled into {@link StackingMasks} when a coupon is
+ * registered, so narrowing the applicable coupons to a compatible set only combines bit masks.
+ *
+ * <p>Each merchant gets its own catalog, so evaluating a cart and absorbing a coupon write only
+ * touch that merchant's coupons and conditions.
+ *
+ * <p>The network is synchronised with the database either through the {@link CouponChangeFeed}
+ * or by comparing coupon versions: in both cases only coupons that were added or changed are
+ * loaded and compiled, and nodes are reference counted so that removing a coupon drops the
+ * conditions nobody else uses. Changes from the feed are applied on its poller thread; a
+ * request only loads its own merchant's catalog on first use.
+ *
+ * <p>A coupon keeps its bit until it is removed and freed bits are reused, so a change only
+ * patches the bits, dependents and index entries of the coupons it touches. The structures a
+ * change touches are copied once per batch and published as a new snapshot; requests read the
+ * published snapshot without locking.
+ */
+@Component
+@Slf4j
+public class CouponEvaluationNetwork {
+
+    private final CouponRepository couponRepository;
+    private final CouponDetailsMapper couponDetailsMapper;
+    private final CouponChangeFeed couponChangeFeed;
+    private final EmptyMerchants emptyMerchants;
+
+    private final Map<String, Catalog> catalogs = new ConcurrentHashMap<>();
+
+    public CouponEvaluationNetwork(CouponRepository couponRepository, CouponDetailsMapper couponDetailsMapper,
+                                   CouponChangeFeed couponChangeFeed, CatalogProperties properties) {
+        this.couponRepository = couponRepository;
+        this.couponDetailsMapper = couponDetailsMapper;
+        this.couponChangeFeed = couponChangeFeed;
+        this.emptyMerchants = new EmptyMerchants(properties);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        couponChangeFeed.subscribe(this::apply);
+    }
+
+    /**
+     * Brings the merchant's catalog in line with the coupons active at {@code now}. With the
+     * change feed, this only loads a catalog not built yet.
+     */
+    public void refresh(String merchantId, LocalDateTime now) {
+        if (!couponChangeFeed.isEnabled()) {
+            catalog(merchantId).compareVersions(now);
+        } else if (!emptyMerchants.contains(merchantId)) {
+            catalog(merchantId).load(now);
+        }
+        // The merchant id comes from a request header: ids owning no active coupon aren't kept,
+        // so made-up ones don't pile up catalogs, and with the change feed they are remembered
+        // for a while instead of costing a query each.
+        catalogs.computeIfPresent(merchantId, (id, catalog) -> catalog.retain() ? catalog : null);
+    }
+
+    /**
+     * Returns the merchant's unexpired coupons whose guard conditions all hold for the cart, in
+     * id order.
+     */
+    public List<Coupon> match(String merchantId, CartContext context) {
+        Catalog catalog = catalogs.get(merchantId);
+        return catalog != null ? catalog.match(context) : List.of();
+    }
+
+    /**
+     * Returns the merchant's unexpired product-wise and BxGy coupons naming the product whose
+     * guard conditions all hold for the cart, in id order.
+     */
+    public List<Coupon> matchProduct(String merchantId, Long productId, CartContext context) {
+        Catalog catalog = catalogs.get(merchantId);
+        return catalog != null ? catalog.matchProduct(productId, context) : List.of();
+    }
+
+    /**
+     * The merchant's active coupons in id order, as last refreshed, without any matching.
+     */
+    public List<Coupon> activeCoupons(String merchantId) {
+        Catalog catalog = catalogs.get(merchantId);
+        return catalog != null ? catalog.snapshot.activeCoupons() : List.of();
+    }
+
+    /**
+     * Id of the merchant's active coupon with the code, ignoring case, or {@code null} when the
+     * catalog isn't built or holds no such coupon.
+     */
+    public Long findCouponId(String merchantId, String code) {
+        Catalog catalog = catalogs.get(merchantId);
+        return catalog != null ? catalog.snapshot.couponIdsByCode.get(CouponCodes.normalize(code)) : null;
+    }
+
+    /**
+     * Version of the coupon as last loaded into the merchant's catalog, or {@code null} when the
+     * catalog isn't built or the coupon isn't active.
+     */
+    public Long versionOf(String merchantId, Long couponId) {
+        Catalog catalog = catalogs.get(merchantId);
+        if (catalog == null) {
+            return null;
+        }
+        Snapshot current = catalog.snapshot;
+        Integer bit = current.bitsById.get(couponId);
+        return bit != null ? current.coupons[bit].getVersion() : null;
+    }
+
+    /**
+     * Narrows coupons of the merchant that apply to one cart down to those that may be offered
+     * together, see {@link StackingMasks#resolve}. A coupon no longer in the catalog stacks freely.
+     */
+    public List<ApplicableCouponDTO> resolveStacking(String merchantId, List<ApplicableCouponDTO> applicable) {
+        Catalog catalog = catalogs.get(merchantId);
+        if (catalog == null || applicable.size() < 2) {
+            return applicable;
+        }
+        Snapshot current = catalog.snapshot;
+        int[] bits = new int[applicable.size()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = current.bitsById.getOrDefault(applicable.get(i).getCouponId(), -1);
+        }
+        return StackingMasks.resolve(applicable,
+                i -> bits[i] >= 0 ? current.stackingMasks[bits[i]] : StackingMasks.STACKS_FREELY,
+                i -> bits[i] >= 0 ? current.coupons[bits[i]].getPriority() : 0);
+    }
+
+    public int getCouponCount() {
+        return catalogs.values().stream().mapToInt(catalog -> catalog.snapshot.size).sum();
+    }
+
+    public int getConditionCount() {
+        return catalogs.values().stream().mapToInt(catalog -> catalog.snapshot.nodePredicates.length).sum();
+    }
+
+    public int getCatalogCount() {
+        return catalogs.size();
+    }
+
+    /**
+     * Reloads the changed coupons of the catalogs already built and drops expired ones, on the
+     * feed's poller thread.
+     */
+    private void apply(CouponChangeFeed.Changes changes) {
+        if (changes.full()) {
+            catalogs.clear();
+            emptyMerchants.clear();
+        }
+        // Catalogs not built yet skip their changes; they load everything on first use.
+        changes.couponIds().forEach((merchantId, couponIds) -> {
+            Catalog catalog = catalogs.get(merchantId);
+            if (catalog != null) {
+                catalog.reload(couponIds);
+            }
+            // After the reload, which waits for a request remembering the catalog as empty.
+            emptyMerchants.forget(merchantId);
+        });
+        // Expiry writes no change row. Matching already skips expired coupons; this drops them.
+        LocalDateTime now = LocalDateTime.now();
+        catalogs.values().forEach(catalog -> catalog.expire(now));
+    }
+
+    public int getEmptyMerchantCount() {
+        return emptyMerchants.size();
+    }
+
+    private Catalog catalog(String merchantId) {
+        return catalogs.computeIfAbsent(merchantId, Catalog::new);
+    }
+
+    private static boolean isUnexpired(Coupon coupon, LocalDateTime now) {
+        return coupon.getExpirationDate() == null || now.isBefore(coupon.getExpirationDate());
+    }
+
+    /**
+     * One merchant's coupons, their shared condition nodes and the snapshot matched against.
+     */
+    private final class Catalog {
+
+        private final String merchantId;
+        private final Map<Long, Registration> registrations = new HashMap<>();
+        private final Map<Condition, Node> nodes = new HashMap<>();
+        private final StackingMasks stackingMasks = new StackingMasks();
+        /** Registered coupons by expiration date, so expired ones are found without a scan. */
+        private final TreeMap<LocalDateTime, Set<Long>> expirations = new TreeMap<>();
+        /** Registered coupons per normalized code; more than one only for codes differing in case. */
+        private final Map<String, Integer> codeCounts = new HashMap<>();
+        private final BitSet freeBits = new BitSet();
+        private int bitCount;
+
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
+        private volatile boolean loaded;
+        private volatile LocalDateTime nextExpiration;
+        /** Changes not published yet, on copies of the snapshot's structures they touch. */
+        private Patch patch;
+
+        private Catalog(String merchantId) {
+            this.merchantId = merchantId;
+        }
+
+        /**
+         * Whether the catalog is worth keeping. An empty one is remembered as such with the change
+         * feed, under the lock {@link #reload} takes, so a reload filling it forgets it afterwards.
+         */
+        synchronized boolean retain() {
+            if (!registrations.isEmpty()) {
+                return true;
+            }
+            if (couponChangeFeed.isEnabled()) {
+                // Not loaded yet: another request created it and is about to load it.
+                if (!loaded) {
+                    return true;
+                }
+                emptyMerchants.add(merchantId);
+            }
+            return false;
+        }
+
+        void load(LocalDateTime now) {
+            if (loaded) {
+                return;
+            }
+            synchronized (this) {
+                if (!loaded) {
+                    couponRepository.findAllActiveCoupons(merchantId, now).forEach(this::register);
+                    loaded = true;
+                    publish();
+                }
+            }
+        }
+
+        void expire(LocalDateTime now) {
+            LocalDateTime expiration = nextExpiration;
+            if (expiration == null || now.isBefore(expiration)) {
+                return;
+            }
+            synchronized (this) {
+                expirations.headMap(now, true).values().stream()
+                        .flatMap(Set::stream)
+                        .toList()
+                        .forEach(this::unregister);
+                publish();
+            }
+        }
+
+        synchronized void reload(Set<Long> couponIds) {
+            // Not loaded yet: the load reads the committed coupons.
+            if (!loaded) {
+                return;
+            }
+            couponIds.forEach(this::unregister);
+            for (Coupon coupon : couponRepository.findAllById(couponIds)) {
+                if (merchantId.equals(coupon.getMerchantId())) {
+                    register(coupon);
+                }
+            }
+            publish();
+        }
+
+        void compareVersions(LocalDateTime now) {
+            List<CouponVersion> versions = couponRepository.findActiveCouponVersions(merchantId, now);
+
+            synchronized (this) {
+                Set<Long> liveIds = new HashSet<>(versions.size() * 2);
+                List<Long> staleIds = new ArrayList<>();
+                for (CouponVersion version : versions) {
+                    liveIds.add(version.getId());
+                    Registration registration = registrations.get(version.getId());
+                    if (registration == null || !Objects.equals(registration.coupon().getVersion(), version.getVersion())) {
+                        staleIds.add(version.getId());
+                    }
+                }
+
+                List<Long> removedIds = registrations.keySet().stream()
+                        .filter(id -> !liveIds.contains(id))
+                        .toList();
+                if (removedIds.isEmpty() && staleIds.isEmpty()) {
+                    return;
+                }
+
+                removedIds.forEach(this::unregister);
+                if (!staleIds.isEmpty()) {
+                    for (Coupon coupon : couponRepository.findAllById(staleIds)) {
+                        unregister(coupon.getId());
+                        register(coupon);
+                    }
+                }
+                publish();
+            }
+        }
+
+        List<Coupon> match(CartContext context) {
+            Snapshot current = snapshot;
+            BitSet candidates = (BitSet) current.live.clone();
+
+            for (int i = 0; i < current.nodePredicates.length; i++) {
+                BitSet dependents = current.nodeDependents[i];
+                if (dependents.intersects(candidates) && !current.nodePredicates[i].test(context)) {
+                    candidates.andNot(dependents);
+                }
+            }
+
+            List<Coupon> matches = new ArrayList<>(candidates.cardinality());
+            for (int bit = candidates.nextSetBit(0); bit >= 0; bit = candidates.nextSetBit(bit + 1)) {
+                if (isUnexpired(current.coupons[bit], context.getNow())) {
+                    matches.add(current.coupons[bit]);
+                }
+            }
+            matches.sort(Comparator.comparing(Coupon::getId));
+            return matches;
+        }
+
+        List<Coupon> matchProduct(Long productId, CartContext context) {
+            Snapshot current = snapshot;
+            int[] bits = current.productCoupons.get(productId);
+            if (bits == null) {
+                return List.of();
+            }
+            List<Coupon> matches = new ArrayList<>(bits.length);
+            for (int bit : bits) {
+                if (isUnexpired(current.coupons[bit], context.getNow()) && allHold(current.couponGuards[bit], context)) {
+                    matches.add(current.coupons[bit]);
+                }
+            }
+            matches.sort(Comparator.comparing(Coupon::getId));
+            return matches;
+        }
+
+        private void register(Coupon coupon) {
+            // Single-use codes are minted by the million and only ever applied by code.
+            if (!coupon.isValid() || Boolean.TRUE.equals(coupon.getSingleUse())) {
+                return;
+            }
+            CouponDetails details = couponDetailsMapper.read(coupon, CouponDetails.class);
+            List<Condition> guards = guardsOf(details);
+            Set<Long> productIds = productIdsOf(details);
+            String code = CouponCodes.normalize(coupon.getCode());
+            int bit = freeBits.nextSetBit(0);
+            if (bit >= 0) {
+                freeBits.clear(bit);
+            } else {
+                bit = bitCount++;
+            }
+
+            Patch edit = edit();
+            edit.grow(bitCount);
+            CartPredicate[] predicates = new CartPredicate[guards.size()];
+            for (int i = 0; i < predicates.length; i++) {
+                Node node = nodes.computeIfAbsent(guards.get(i), condition -> new Node(condition.compile()));
+                node.refCount++;
+                edit.dependents(node).set(bit);
+                predicates[i] = node.predicate;
+            }
+            edit.coupons[bit] = coupon;
+            edit.couponGuards[bit] = predicates;
+            edit.stackingMasks[bit] = stackingMasks.maskOf(coupon);
+            edit.live.set(bit);
+            edit.bitsById.put(coupon.getId(), bit);
+            for (Long productId : productIds) {
+                edit.productCoupons.merge(productId, new int[]{bit}, CouponEvaluationNetwork::concat);
+            }
+            // Codes differing only in case: the oldest coupon wins.
+            codeCounts.merge(code, 1, Integer::sum);
+            edit.couponIdsByCode.merge(code, coupon.getId(), (current, added) -> current < added ? current : added);
+            if (coupon.getExpirationDate() != null) {
+                expirations.computeIfAbsent(coupon.getExpirationDate(), date -> new HashSet<>()).add(coupon.getId());
+            }
+            registrations.put(coupon.getId(), new Registration(coupon, guards, productIds, code, bit));
+        }
+
+        private void unregister(Long couponId) {
+            Registration registration = registrations.remove(couponId);
+            if (registration == null) {
+                return;
+            }
+            int bit = registration.bit();
+            Patch edit = edit();
+            for (Condition guard : registration.guards()) {
+                Node node = nodes.get(guard);
+                edit.dependents(node).clear(bit);
+                if (--node.refCount == 0) {
+                    nodes.remove(guard);
+                }
+            }
+            edit.coupons[bit] = null;
+            edit.couponGuards[bit] = null;
+            edit.stackingMasks[bit] = null;
+            edit.live.clear(bit);
+            edit.bitsById.remove(couponId);
+            for (Long productId : registration.productIds()) {
+                int[] remaining = Arrays.stream(edit.productCoupons.get(productId)).filter(other -> other != bit).toArray();
+                if (remaining.length > 0) {
+                    edit.productCoupons.put(productId, remaining);
+                } else {
+                    edit.productCoupons.remove(productId);
+                }
+            }
+            String code = registration.code();
+            boolean shared = codeCounts.merge(code, -1, Integer::sum) > 0;
+            if (!shared) {
+                codeCounts.remove(code);
+            }
+            if (couponId.equals(edit.couponIdsByCode.get(code))) {
+                edit.couponIdsByCode.remove(code);
+                if (shared) {
+                    registrations.values().stream()
+                            .filter(other -> other.code().equals(code))
+                            .map(other -> other.coupon().getId())
+                            .min(Comparator.naturalOrder())
+                            .ifPresent(oldest -> edit.couponIdsByCode.put(code, oldest));
+                }
+            }
+            LocalDateTime expirationDate = registration.coupon().getExpirationDate();
+            if (expirationDate != null) {
+                Set<Long> expiring = expirations.get(expirationDate);
+                expiring.remove(couponId);
+                if (expiring.isEmpty()) {
+                    expirations.remove(expirationDate);
+                }
+            }
+            freeBits.set(bit);
+        }
+
+        private Patch edit() {
+            if (patch == null) {
+                patch = new Patch(snapshot);
+            }
+            return patch;
+        }
+
+        private void publish() {
+            nextExpiration = expirations.isEmpty() ? null : expirations.firstKey();
+            if (patch == null) {
+                return;
+            }
+            Patch edit = patch;
+            patch = null;
+            edit.dependents.forEach((node, dependents) -> node.dependents = dependents);
+
+            // Most widely shared conditions first, so a single failed evaluation prunes the most coupons.
+            List<Node> byFanOut = nodes.values().stream()
+                    .sorted(Comparator.comparingInt((Node node) -> node.refCount).reversed())
+                    .toList();
+            CartPredicate[] predicates = new CartPredicate[byFanOut.size()];
+            BitSet[] nodeDependents = new BitSet[byFanOut.size()];
+            for (int i = 0; i < byFanOut.size(); i++) {
+                predicates[i] = byFanOut.get(i).predicate;
+                nodeDependents[i] = byFanOut.get(i).dependents;
+            }
+            snapshot = new Snapshot(edit.coupons, edit.live, predicates, nodeDependents, edit.couponGuards,
+                    edit.productCoupons, edit.couponIdsByCode, edit.bitsById, edit.stackingMasks, registrations.size());
+            log.debug("Evaluation network for merchant {} refreshed: {} coupons, {} shared conditions",
+                    merchantId, registrations.size(), nodes.size());
+        }
+    }
+
+    /**
+     * Splits a coupon into the conditions that must all hold before its evaluator can apply.
+     */
+    private static List<Condition> guardsOf(CouponDetails details) {
+        Set<Condition> guards = new LinkedHashSet<>();
+        if (details instanceof CartWiseDetails cartWise) {
+            guards.add(CartTotalCondition.builder().min(cartWise.getThreshold()).build());
+            if (cartWise.getMinItems() != null) {
+                guards.add(ItemCountCondition.builder().min(cartWise.getMinItems()).build());
+            }
+        } else if (details instanceof ProductWiseDetails productWise) {
+            int minQuantity = productWise.getMinQuantity() != null ? productWise.getMinQuantity() : 1;
+            guards.add(ProductQuantityCondition.builder()
+                    .productId(productWise.getProductId())
+                    .min(minQuantity)
+                    .build());
+        } else if (details instanceof BxGyDetails bxGy) {
+            guards.add(ProductSetCondition.builder().productIds(productIds(bxGy.getBuyProducts())).build());
+            guards.add(ProductSetCondition.builder().productIds(productIds(bxGy.getGetProducts())).build());
+        }
+
+        Condition conditions = details.getConditions();
+        if (conditions instanceof AllCondition all) {
+            guards.addAll(all.getConditions());
+        } else if (conditions != null) {
+            guards.add(conditions);
+        }
+        return List.copyOf(guards);
+    }
+
+    /**
+     * Products a coupon's discount depends on: the discounted product, or the buy and get products.
+     */
+    private static Set<Long> productIdsOf(CouponDetails details) {
+        if (details instanceof ProductWiseDetails productWise) {
+            return Set.of(productWise.getProductId());
+        }
+        if (details instanceof BxGyDetails bxGy) {
+            Set<Long> productIds = new HashSet<>(productIds(bxGy.getBuyProducts()));
+            productIds.addAll(productIds(bxGy.getGetProducts()));
+            return productIds;
+        }
+        return Set.of();
+    }
+
+    private static boolean allHold(CartPredicate[] guards, CartContext context) {
+        for (CartPredicate guard : guards) {
+            if (!guard.test(context)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<Long> productIds(List<ProductQuantity> products) {
+        return products.stream()
+                .map(ProductQuantity::getProductId)
+                .collect(Collectors.toSet());
+    }
+
+    private static int[] concat(int[] bits, int[] added) {
+        int[] merged = Arrays.copyOf(bits, bits.length + added.length);
+        System.arraycopy(added, 0, merged, bits.length, added.length);
+        return merged;
+    }
+
+    private record Registration(Coupon coupon, List<Condition> guards, Set<Long> productIds, String code, int bit) {
+    }
+
+    private static final class Node {
+        private final CartPredicate predicate;
+        private int refCount;
+        /** Bits of the coupons guarded by this node, shared with the snapshot once published. */
+        private BitSet dependents = new BitSet();
+
+        private Node(CartPredicate predicate) {
+            this.predicate = predicate;
+        }
+    }
+
+    /**
+     * What requests match against, indexed by bit. Bits of removed coupons are null until reused.
+     */
+    private record Snapshot(Coupon[] coupons, BitSet live, CartPredicate[] nodePredicates, BitSet[] nodeDependents,
+                            CartPredicate[][] couponGuards, Map<Long, int[]> productCoupons,
+                            Map<String, Long> couponIdsByCode, Map<Long, Integer> bitsById,
+                            StackingMasks.Mask[] stackingMasks, int size) {
+        private static final Snapshot EMPTY = new Snapshot(new Coupon[0], new BitSet(), new CartPredicate[0],
+                new BitSet[0], new CartPredicate[0][], Map.of(), Map.of(), Map.of(), new StackingMasks.Mask[0], 0);
+
+        /**
+         * The coupons in id order.
+         */
+        List<Coupon> activeCoupons() {
+            List<Coupon> active = new ArrayList<>(size);
+            for (int bit = live.nextSetBit(0); bit >= 0; bit = live.nextSetBit(bit + 1)) {
+                active.add(coupons[bit]);
+            }
+            active.sort(Comparator.comparing(Coupon::getId));
+            return active;
+        }
+    }
+
+    /**
+     * Copies of the snapshot's structures a batch of changes writes to, taken on its first change.
+     * Node dependents are copied as they are touched; untouched ones stay shared.
+     */
+    private static final class Patch {
+        private Coupon[] coupons;
+        private CartPredicate[][] couponGuards;
+        private StackingMasks.Mask[] stackingMasks;
+        private final BitSet live;
+        private final Map<Long, int[]> productCoupons;
+        private final Map<String, Long> couponIdsByCode;
+        private final Map<Long, Integer> bitsById;
+        private final Map<Node, BitSet> dependents = new IdentityHashMap<>();
+
+        private Patch(Snapshot from) {
+            this.coupons = from.coupons.clone();
+            this.couponGuards = from.couponGuards.clone();
+            this.stackingMasks = from.stackingMasks.clone();
+            this.live = (BitSet) from.live.clone();
+            this.productCoupons = new HashMap<>(from.productCoupons);
+            this.couponIdsByCode = new HashMap<>(from.couponIdsByCode);
+            this.bitsById = new HashMap<>(from.bitsById);
+        }
+
+        void grow(int bitCount) {
+            if (bitCount > coupons.length) {
+                int capacity = Math.max(16, Math.max(bitCount, coupons.length * 2));
+                coupons = Arrays.copyOf(coupons, capacity);
+                couponGuards = Arrays.copyOf(couponGuards, capacity);
+                stackingMasks = Arrays.copyOf(stackingMasks, capacity);
+            }
+        }
+
+        BitSet dependents(Node node) {
+            return dependents.computeIfAbsent(node, touched -> (BitSet) touched.dependents.clone());
+        }
+    }
+}
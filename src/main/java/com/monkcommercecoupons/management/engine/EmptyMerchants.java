@@ -0,0 +1,56 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.CatalogProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, expiring memory of merchants found to own no active coupon, so requests carrying an
+ * unknown or idle merchant id don't load a catalog each. Changes read from the feed forget the
+ * merchant at once.
+ */
+final class EmptyMerchants {
+
+    private final long ttlNanos;
+    private final Map<String, Long> expiries;
+
+    EmptyMerchants(CatalogProperties properties) {
+        this.ttlNanos = properties.getEmptyMerchantTtl().toNanos();
+        int maxSize = properties.getEmptyMerchantCacheSize();
+        this.expiries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    synchronized boolean contains(String merchantId) {
+        Long expiry = expiries.get(merchantId);
+        if (expiry == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiry > 0) {
+            expiries.remove(merchantId);
+            return false;
+        }
+        return true;
+    }
+
+    synchronized void add(String merchantId) {
+        expiries.put(merchantId, System.nanoTime() + ttlNanos);
+    }
+
+    synchronized void forget(String merchantId) {
+        expiries.remove(merchantId);
+    }
+
+    synchronized void clear() {
+        expiries.clear();
+    }
+
+    synchronized int size() {
+        return expiries.size();
+    }
+}
@@ -0,0 +1,71 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.exception.CouponNotApplicableException;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponDTO;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.service.BxGyService;
+import com.monkcommercecoupons.management.service.CartWiseService;
+import com.monkcommercecoupons.management.service.CouponDetailsMapper;
+import com.monkcommercecoupons.management.service.ProductWiseService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reference candidate: tries every active coupon of the merchant, checking its condition tree
+ * directly and letting the evaluator reject it, without the shared guard nodes and pruning of
+ * the evaluation network. Slow on large catalogs, but an independent check of the matching.
+ */
+@Component
+@RequiredArgsConstructor
+public class FullScanEngine implements CandidateEngine {
+
+    private final CouponEvaluationNetwork couponEvaluationNetwork;
+    private final CouponDetailsMapper couponDetailsMapper;
+    private final CartWiseService cartWiseService;
+    private final ProductWiseService productWiseService;
+    private final BxGyService bxGyService;
+
+    @Override
+    public String name() {
+        return "full-scan";
+    }
+
+    @Override
+    public List<ApplicableCouponDTO> applicableCoupons(String merchantId, CartContext context) {
+        List<ApplicableCouponDTO> applicable = new ArrayList<>();
+        for (Coupon coupon : couponEvaluationNetwork.activeCoupons(merchantId)) {
+            if (!couponDetailsMapper.read(coupon, CouponDetails.class).conditionsMet(context)) {
+                continue;
+            }
+            try {
+                double discount = calculateDiscount(coupon, context.getCart());
+                if (discount > 0) {
+                    applicable.add(ApplicableCouponDTO.builder()
+                            .couponId(coupon.getId())
+                            .code(coupon.getCode())
+                            .type(coupon.getType())
+                            .discount(Math.round(discount * 100.0) / 100.0)
+                            .description(coupon.getDescription())
+                            .build());
+                }
+            } catch (CouponNotApplicableException e) {
+                // Rejected by its evaluator, not applicable.
+            }
+        }
+        return couponEvaluationNetwork.resolveStacking(merchantId, applicable);
+    }
+
+    private double calculateDiscount(Coupon coupon, CartDTO cart) {
+        return switch (coupon.getType()) {
+            case CART_WISE -> cartWiseService.calculateDiscount(coupon, cart);
+            case PRODUCT_WISE -> productWiseService.calculateDiscount(coupon, cart);
+            case BXGY -> bxGyService.calculateDiscount(coupon, cart);
+        };
+    }
+}
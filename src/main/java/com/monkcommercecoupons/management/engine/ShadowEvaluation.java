@@ -0,0 +1,204 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.ShadowProperties;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a {@link CandidateEngine} against the carts served by the evaluation network and records
+ * where it disagrees. Requests only hand the served result to a small executor with a bounded
+ * queue; when the candidate falls behind, new evaluations are dropped and counted, so shadowing
+ * never holds up a response nor builds a backlog.
+ *
+ * <p>Metrics, tagged with the engine: {@code coupons.shadow.evaluations{result}},
+ * {@code coupons.shadow.dropped}, {@code coupons.shadow.latency{path}} for the served and the
+ * candidate evaluation, {@code coupons.shadow.latency.ratio} (candidate over served) and
+ * {@code coupons.shadow.queue.depth}. Mismatches are logged at most once per {@code log-interval}.
+ */
+@Component
+@Slf4j
+public class ShadowEvaluation {
+
+    private final ShadowProperties properties;
+    private final CandidateEngine engine;
+    private final ThreadPoolExecutor executor;
+    private final Meters meters;
+    private final AtomicLong nextLogAt = new AtomicLong(System.nanoTime());
+    private final AtomicLong unlogged = new AtomicLong();
+
+    public ShadowEvaluation(ShadowProperties properties, List<CandidateEngine> engines, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        if (!properties.isEnabled()) {
+            this.engine = null;
+            this.executor = null;
+            this.meters = null;
+            return;
+        }
+        this.engine = engines.stream()
+                .filter(candidate -> candidate.name().equals(properties.getEngine()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No candidate engine named '" + properties.getEngine()
+                        + "' (coupons.shadow.engine), available: " + engines.stream().map(CandidateEngine::name).toList()));
+
+        this.meters = new Meters(
+                evaluations(meterRegistry, "match"),
+                evaluations(meterRegistry, "mismatch"),
+                evaluations(meterRegistry, "error"),
+                Counter.builder("coupons.shadow.dropped")
+                        .tag("engine", engine.name())
+                        .description("Shadow evaluations dropped because the candidate was behind")
+                        .register(meterRegistry),
+                latency(meterRegistry, "served"),
+                latency(meterRegistry, "candidate"),
+                DistributionSummary.builder("coupons.shadow.latency.ratio")
+                        .tag("engine", engine.name())
+                        .description("Candidate evaluation time over served evaluation time")
+                        .register(meterRegistry));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                task -> {
+                    Thread thread = new Thread(task, "coupon-shadow-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, pool) -> meters.dropped().increment());
+        Gauge.builder("coupons.shadow.queue.depth", executor.getQueue(), BlockingQueue::size)
+                .tag("engine", engine.name())
+                .description("Shadow evaluations waiting for a thread")
+                .register(meterRegistry);
+        log.info("Shadowing /applicable-coupons with candidate engine {}", engine.name());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues a comparison of the served coupons with the candidate's for the same cart and time.
+     * Returns immediately; neither the cart nor the served list may be modified afterwards.
+     *
+     * @param servedNanos time the evaluation network took to produce {@code served}
+     */
+    public void submit(String merchantId, CartContext context, List<ApplicableCouponDTO> served, long servedNanos) {
+        if (executor == null || !sampled()) {
+            return;
+        }
+        executor.execute(() -> compare(merchantId, context, served, servedNanos));
+    }
+
+    private void compare(String merchantId, CartContext context, List<ApplicableCouponDTO> served, long servedNanos) {
+        long start;
+        List<ApplicableCouponDTO> candidate;
+        try {
+            // Timed over the same work as the served path, which is timed after its refresh.
+            engine.refresh(merchantId, context.getNow());
+            start = System.nanoTime();
+            candidate = engine.applicableCoupons(merchantId, context);
+        } catch (RuntimeException e) {
+            meters.failed().increment();
+            if (logDue()) {
+                log.warn("Shadow engine {} failed for merchant {} cart {}", engine.name(), merchantId,
+                        context.getCart().getCartHash(), e);
+            }
+            return;
+        }
+        long candidateNanos = System.nanoTime() - start;
+        meters.servedLatency().record(servedNanos, TimeUnit.NANOSECONDS);
+        meters.candidateLatency().record(candidateNanos, TimeUnit.NANOSECONDS);
+        meters.latencyRatio().record((double) candidateNanos / Math.max(1, servedNanos));
+
+        List<String> differences = differences(served, candidate);
+        if (differences.isEmpty()) {
+            meters.matched().increment();
+            return;
+        }
+        meters.mismatched().increment();
+        if (logDue()) {
+            log.warn("Shadow engine {} disagrees for merchant {} cart {} ({} items): {} ({} mismatches not logged)",
+                    engine.name(), merchantId, context.getCart().getCartHash(), context.getCart().getItems().size(),
+                    differences, unlogged.getAndSet(0));
+        } else {
+            unlogged.incrementAndGet();
+        }
+    }
+
+    /**
+     * Compares by coupon id and discount; order and descriptive fields are ignored.
+     */
+    static List<String> differences(List<ApplicableCouponDTO> served, List<ApplicableCouponDTO> candidate) {
+        Map<Long, Double> servedDiscounts = new HashMap<>(served.size() * 2);
+        served.forEach(coupon -> servedDiscounts.put(coupon.getCouponId(), coupon.getDiscount()));
+        List<String> differences = new ArrayList<>();
+        for (ApplicableCouponDTO coupon : candidate) {
+            if (!servedDiscounts.containsKey(coupon.getCouponId())) {
+                differences.add("coupon " + coupon.getCouponId() + ": candidate only, discount " + coupon.getDiscount());
+                continue;
+            }
+            Double servedDiscount = servedDiscounts.remove(coupon.getCouponId());
+            if (!Objects.equals(servedDiscount, coupon.getDiscount())) {
+                differences.add("coupon " + coupon.getCouponId() + ": discount " + servedDiscount
+                        + " served, " + coupon.getDiscount() + " candidate");
+            }
+        }
+        servedDiscounts.forEach((couponId, discount) ->
+                differences.add("coupon " + couponId + ": served only, discount " + discount));
+        return differences;
+    }
+
+    private boolean logDue() {
+        long now = System.nanoTime();
+        long due = nextLogAt.get();
+        return now - due >= 0 && nextLogAt.compareAndSet(due, now + properties.getLogInterval().toNanos());
+    }
+
+    private boolean sampled() {
+        double sampleRate = properties.getSampleRate();
+        return sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private Counter evaluations(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("coupons.shadow.evaluations")
+                .tag("engine", engine.name())
+                .tag("result", result)
+                .description("Shadow evaluations by outcome")
+                .register(meterRegistry);
+    }
+
+    private Timer latency(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("coupons.shadow.latency")
+                .tag("engine", engine.name())
+                .tag("path", path)
+                .description("Evaluation time of shadowed requests")
+                .register(meterRegistry);
+    }
+
+    private record Meters(Counter matched, Counter mismatched, Counter failed, Counter dropped,
+                          Timer servedLatency, Timer candidateLatency, DistributionSummary latencyRatio) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponDTO;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Exclusivity groups and stacking of one catalog's coupons, compiled to bit masks. Each coupon
+ * gets the bits it claims once kept and the bits that must still be free for it to be kept. An
+ * exclusivity group is one bit, claimed and blocked by its members. Two reserved bits encode
+ * stacking: every coupon claims {@code ANY} and blocks {@code ALONE}, a coupon that doesn't stack
+ * also claims {@code ALONE} and blocks {@code ANY}. Resolving a list of applicable coupons then
+ * costs an {@code intersects} and an {@code or} over a few words per coupon.
+ *
+ * <p>Group bits are handed out on first sight and never reclaimed, so masks compiled at different
+ * times stay comparable within the catalog. Coupons with the same group and stacking share one
+ * mask; masks are never modified once handed out.
+ */
+public final class StackingMasks {
+
+    private static final int ANY = 0;
+    private static final int ALONE = 1;
+    private static final int FIRST_GROUP = 2;
+
+    /**
+     * Mask of a coupon without a group that stacks, i.e. conflicting only with coupons that don't stack.
+     */
+    static final Mask STACKS_FREELY = new Mask(bits(ANY), bits(ALONE));
+
+    private final Map<String, Integer> groupBits = new HashMap<>();
+    private final Map<MaskKey, Mask> masks = new HashMap<>();
+
+    public Mask maskOf(Coupon coupon) {
+        return maskOf(coupon.getExclusivityGroup(), !Boolean.FALSE.equals(coupon.getStackable()));
+    }
+
+    public synchronized Mask maskOf(String exclusivityGroup, boolean stackable) {
+        if (exclusivityGroup == null && stackable) {
+            return STACKS_FREELY;
+        }
+        return masks.computeIfAbsent(new MaskKey(exclusivityGroup, stackable), key -> {
+            BitSet claims = bits(ANY);
+            BitSet blocks = new BitSet();
+            if (stackable) {
+                blocks.set(ALONE);
+            } else {
+                claims.set(ALONE);
+                blocks.set(ANY);
+            }
+            if (exclusivityGroup != null) {
+                int bit = groupBits.computeIfAbsent(exclusivityGroup, group -> FIRST_GROUP + groupBits.size());
+                claims.set(bit);
+                blocks.set(bit);
+            }
+            return new Mask(claims, blocks);
+        });
+    }
+
+    public synchronized int getGroupCount() {
+        return groupBits.size();
+    }
+
+    /**
+     * Narrows the applicable coupons down to a compatible set: coupons are taken by highest
+     * priority, then largest discount, then lowest id, and each is kept unless one kept before it
+     * conflicts. The kept coupons are returned in their input order.
+     *
+     * @param masks      mask of the coupon at an index of {@code applicable}
+     * @param priorities priority of the coupon at an index of {@code applicable}
+     */
+    public static List<ApplicableCouponDTO> resolve(List<ApplicableCouponDTO> applicable, IntFunction<Mask> masks,
+                                                    IntUnaryOperator priorities) {
+        int size = applicable.size();
+        Mask[] resolved = new Mask[size];
+        boolean restricted = false;
+        for (int i = 0; i < size; i++) {
+            resolved[i] = masks.apply(i);
+            restricted |= resolved[i] != STACKS_FREELY;
+        }
+        // Without groups or coupons that don't stack nothing conflicts, and nothing needs ordering.
+        if (!restricted) {
+            return applicable;
+        }
+
+        int[] priority = new int[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            priority[i] = priorities.applyAsInt(i);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byPriority = Integer.compare(priority[b], priority[a]);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            int byDiscount = Double.compare(applicable.get(b).getDiscount(), applicable.get(a).getDiscount());
+            return byDiscount != 0 ? byDiscount
+                    : Long.compare(applicable.get(a).getCouponId(), applicable.get(b).getCouponId());
+        });
+
+        BitSet claimed = new BitSet();
+        boolean[] kept = new boolean[size];
+        for (int index : order) {
+            if (!claimed.intersects(resolved[index].blocks())) {
+                claimed.or(resolved[index].claims());
+                kept[index] = true;
+            }
+        }
+        List<ApplicableCouponDTO> compatible = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (kept[i]) {
+                compatible.add(applicable.get(i));
+            }
+        }
+        return compatible;
+    }
+
+    private static BitSet bits(int bit) {
+        BitSet bits = new BitSet();
+        bits.set(bit);
+        return bits;
+    }
+
+    /**
+     * Bits a coupon claims once kept and bits that must be unclaimed for it to be kept.
+     */
+    public record Mask(BitSet claims, BitSet blocks) {
+    }
+
+    private record MaskKey(String exclusivityGroup, boolean stackable) {
+    }
+}
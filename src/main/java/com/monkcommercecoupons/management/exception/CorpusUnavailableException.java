@@ -0,0 +1,7 @@
+package com.monkcommercecoupons.management.exception;
+
+public class CorpusUnavailableException extends RuntimeException {
+    public CorpusUnavailableException(String message) {
+        super(message);
+    }
+}
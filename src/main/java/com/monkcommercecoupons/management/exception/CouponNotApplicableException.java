@@ -1,7 +1,11 @@
 package com.monkcommercecoupons.management.exception;
 
+/**
+ * Thrown by the evaluators for every coupon a cart doesn't qualify for, so it is control flow
+ * on the evaluation and simulation paths and skips the stack trace.
+ */
 public class CouponNotApplicableException extends RuntimeException {
     public CouponNotApplicableException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,7 @@
+package com.monkcommercecoupons.management.exception;
+
+public class InvalidSearchException extends RuntimeException {
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+}
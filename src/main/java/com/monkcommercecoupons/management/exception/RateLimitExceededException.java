@@ -0,0 +1,15 @@
+package com.monkcommercecoupons.management.exception;
+
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String clientKey, long retryAfterSeconds) {
+        super("Rate limit exceeded for client: " + clientKey);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
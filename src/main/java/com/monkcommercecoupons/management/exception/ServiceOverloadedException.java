@@ -0,0 +1,15 @@
+package com.monkcommercecoupons.management.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(int maxInFlight) {
+        super("Too many coupon evaluations in progress (limit " + maxInFlight + "), retry shortly");
+    }
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+
+    public ServiceOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
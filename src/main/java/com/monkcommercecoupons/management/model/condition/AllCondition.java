@@ -0,0 +1,28 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class AllCondition extends Condition {
+
+    @NotEmpty(message = "At least one condition is required")
+    @Valid
+    private List<Condition> conditions;
+
+    @Override
+    public CartPredicate compile() {
+        return CartPredicate.allOf(conditions.stream().map(Condition::compile).toList());
+    }
+}
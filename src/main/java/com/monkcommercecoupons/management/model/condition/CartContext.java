@@ -0,0 +1,30 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-request view of a cart that compiled conditions are evaluated against.
+ * Aggregates are computed once here rather than once per condition.
+ */
+@Getter
+public final class CartContext {
+
+    private final CartDTO cart;
+    private final double totalPrice;
+    private final int totalItems;
+    private final LocalDateTime now;
+
+    private CartContext(CartDTO cart, LocalDateTime now) {
+        this.cart = cart;
+        this.totalPrice = cart.getTotalPrice();
+        this.totalItems = cart.getTotalItems();
+        this.now = now;
+    }
+
+    public static CartContext of(CartDTO cart, LocalDateTime now) {
+        return new CartContext(cart, now);
+    }
+}
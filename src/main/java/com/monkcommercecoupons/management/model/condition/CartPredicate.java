@@ -0,0 +1,61 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import java.util.List;
+
+/**
+ * Compiled form of a {@link Condition}. Trees of these are built once per coupon
+ * and reused for every cart.
+ */
+@FunctionalInterface
+public interface CartPredicate {
+
+    CartPredicate ALWAYS = context -> true;
+
+    boolean test(CartContext context);
+
+    static CartPredicate allOf(List<CartPredicate> predicates) {
+        return switch (predicates.size()) {
+            case 0 -> ALWAYS;
+            case 1 -> predicates.get(0);
+            case 2 -> {
+                CartPredicate first = predicates.get(0);
+                CartPredicate second = predicates.get(1);
+                yield context -> first.test(context) && second.test(context);
+            }
+            default -> {
+                CartPredicate[] parts = predicates.toArray(new CartPredicate[0]);
+                yield context -> {
+                    for (CartPredicate part : parts) {
+                        if (!part.test(context)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+        };
+    }
+
+    static CartPredicate anyOf(List<CartPredicate> predicates) {
+        return switch (predicates.size()) {
+            case 0 -> context -> false;
+            case 1 -> predicates.get(0);
+            case 2 -> {
+                CartPredicate first = predicates.get(0);
+                CartPredicate second = predicates.get(1);
+                yield context -> first.test(context) || second.test(context);
+            }
+            default -> {
+                CartPredicate[] parts = predicates.toArray(new CartPredicate[0]);
+                yield context -> {
+                    for (CartPredicate part : parts) {
+                        if (part.test(context)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cart total within {@code [min, max]}; either bound may be omitted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CartTotalCondition extends Condition {
+
+    @PositiveOrZero(message = "Min cart total cannot be negative")
+    private Double min;
+
+    @PositiveOrZero(message = "Max cart total cannot be negative")
+    private Double max;
+
+    @JsonIgnore
+    @AssertTrue(message = "Cart total condition needs min or max, with min not above max")
+    public boolean isRangeValid() {
+        return (min != null || max != null) && (min == null || max == null || min <= max);
+    }
+
+    @Override
+    public CartPredicate compile() {
+        if (max == null) {
+            double lower = min;
+            return context -> context.getTotalPrice() >= lower;
+        }
+        double lower = min != null ? min : 0.0;
+        double upper = max;
+        return context -> context.getTotalPrice() >= lower && context.getTotalPrice() <= upper;
+    }
+}
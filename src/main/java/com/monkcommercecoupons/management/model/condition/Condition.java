@@ -0,0 +1,33 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * A node of the coupon condition language stored under {@code details.conditions}.
+ * The {@code op} property selects the node type, for example:
+ * <pre>
+ * {"op": "all", "conditions": [
+ *     {"op": "cart_total", "min": 500},
+ *     {"op": "products", "match": "ANY", "productIds": [1, 2]},
+ *     {"op": "time_window", "daysOfWeek": ["SATURDAY", "SUNDAY"]}
+ * ]}
+ * </pre>
+ * Conditions are validated when the coupon is written and compiled once into a
+ * {@link CartPredicate} tree for evaluation.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "op")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = AllCondition.class, name = "all"),
+        @JsonSubTypes.Type(value = AnyCondition.class, name = "any"),
+        @JsonSubTypes.Type(value = NotCondition.class, name = "not"),
+        @JsonSubTypes.Type(value = CartTotalCondition.class, name = "cart_total"),
+        @JsonSubTypes.Type(value = ItemCountCondition.class, name = "item_count"),
+        @JsonSubTypes.Type(value = ProductSetCondition.class, name = "products"),
+        @JsonSubTypes.Type(value = ProductQuantityCondition.class, name = "product_quantity"),
+        @JsonSubTypes.Type(value = TimeWindowCondition.class, name = "time_window")
+})
+public abstract class Condition {
+
+    public abstract CartPredicate compile();
+}
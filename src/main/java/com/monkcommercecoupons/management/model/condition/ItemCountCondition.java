@@ -0,0 +1,42 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Total number of units in the cart within {@code [min, max]}; either bound may be omitted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemCountCondition extends Condition {
+
+    @PositiveOrZero(message = "Min item count cannot be negative")
+    private Integer min;
+
+    @PositiveOrZero(message = "Max item count cannot be negative")
+    private Integer max;
+
+    @JsonIgnore
+    @AssertTrue(message = "Item count condition needs min or max, with min not above max")
+    public boolean isRangeValid() {
+        return (min != null || max != null) && (min == null || max == null || min <= max);
+    }
+
+    @Override
+    public CartPredicate compile() {
+        int lower = min != null ? min : 0;
+        int upper = max != null ? max : Integer.MAX_VALUE;
+        return context -> context.getTotalItems() >= lower && context.getTotalItems() <= upper;
+    }
+}
@@ -0,0 +1,27 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class NotCondition extends Condition {
+
+    @NotNull(message = "Condition is required")
+    @Valid
+    private Condition condition;
+
+    @Override
+    public CartPredicate compile() {
+        CartPredicate inner = condition.compile();
+        return context -> !inner.test(context);
+    }
+}
@@ -0,0 +1,50 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Quantity of a single product within {@code [min, max]}; either bound may be omitted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductQuantityCondition extends Condition {
+
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+
+    @PositiveOrZero(message = "Min quantity cannot be negative")
+    private Integer min;
+
+    @PositiveOrZero(message = "Max quantity cannot be negative")
+    private Integer max;
+
+    @JsonIgnore
+    @AssertTrue(message = "Product quantity condition needs min or max, with min not above max")
+    public boolean isRangeValid() {
+        return (min != null || max != null) && (min == null || max == null || min <= max);
+    }
+
+    @Override
+    public CartPredicate compile() {
+        Long id = productId;
+        int lower = min != null ? min : 0;
+        int upper = max != null ? max : Integer.MAX_VALUE;
+        return context -> {
+            int quantity = context.getCart().getQuantityOf(id);
+            return quantity >= lower && quantity <= upper;
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Presence of products in the cart: any of them, all of them or none of them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class ProductSetCondition extends Condition {
+
+    public enum Match {
+        ANY,
+        ALL,
+        NONE
+    }
+
+    @NotEmpty(message = "Product IDs are required")
+    private Set<@NotNull Long> productIds;
+
+    @NotNull(message = "Match is required")
+    @Builder.Default
+    private Match match = Match.ANY;
+
+    @Override
+    public CartPredicate compile() {
+        Long[] ids = productIds.toArray(new Long[0]);
+        return switch (match) {
+            case ANY -> context -> containsAny(context, ids);
+            case ALL -> context -> {
+                for (Long id : ids) {
+                    if (context.getCart().findItem(id).isEmpty()) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+            case NONE -> context -> !containsAny(context, ids);
+        };
+    }
+
+    private static boolean containsAny(CartContext context, Long[] ids) {
+        for (Long id : ids) {
+            if (context.getCart().findItem(id).isPresent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evaluation time within an absolute range ({@code from} inclusive, {@code to} exclusive),
+ * on the given days of the week and within a daily {@code startTime}-{@code endTime} slot.
+ * A slot whose start is after its end wraps past midnight.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TimeWindowCondition extends Condition {
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+
+    private Set<DayOfWeek> daysOfWeek;
+
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+    @JsonIgnore
+    @AssertTrue(message = "Time window needs at least one bound, a from before its to and both or neither of startTime/endTime")
+    public boolean isWindowValid() {
+        boolean anyBound = from != null || to != null
+                || (daysOfWeek != null && !daysOfWeek.isEmpty()) || startTime != null;
+        boolean rangeOrdered = from == null || to == null || from.isBefore(to);
+        boolean slotComplete = (startTime == null) == (endTime == null);
+        return anyBound && rangeOrdered && slotComplete;
+    }
+
+    @Override
+    public CartPredicate compile() {
+        List<CartPredicate> parts = new ArrayList<>();
+        if (from != null) {
+            LocalDateTime start = from;
+            parts.add(context -> !context.getNow().isBefore(start));
+        }
+        if (to != null) {
+            LocalDateTime end = to;
+            parts.add(context -> context.getNow().isBefore(end));
+        }
+        if (daysOfWeek != null && !daysOfWeek.isEmpty()) {
+            Set<DayOfWeek> days = EnumSet.copyOf(daysOfWeek);
+            parts.add(context -> days.contains(context.getNow().getDayOfWeek()));
+        }
+        if (startTime != null) {
+            LocalTime slotStart = startTime;
+            LocalTime slotEnd = endTime;
+            if (slotStart.isAfter(slotEnd)) {
+                parts.add(context -> {
+                    LocalTime time = context.getNow().toLocalTime();
+                    return !time.isBefore(slotStart) || time.isBefore(slotEnd);
+                });
+            } else {
+                parts.add(context -> {
+                    LocalTime time = context.getNow().toLocalTime();
+                    return !time.isBefore(slotStart) && time.isBefore(slotEnd);
+                });
+            }
+        }
+        return CartPredicate.allOf(parts);
+    }
+}
@@ -0,0 +1,35 @@
+package com.monkcommercecoupons.management.model.details;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+import java.util.List;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BxGyDetails extends CouponDetails {
+
+    @NotEmpty(message = "Buy products are required")
+    @Valid
+    private List<ProductQuantity> buyProducts;
+
+    @NotEmpty(message = "Get products are required")
+    @Valid
+    private List<ProductQuantity> getProducts;
+
+    @NotNull(message = "Repetition limit is required")
+    @Positive(message = "Repetition limit must be at least 1")
+    @Builder.Default
+    private Integer repetitionLimit = 1;
+}
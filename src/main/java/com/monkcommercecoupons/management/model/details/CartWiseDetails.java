@@ -0,0 +1,46 @@
+package com.monkcommercecoupons.management.model.details;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.monkcommercecoupons.management.model.enums.DiscountType;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CartWiseDetails extends CouponDetails {
+
+    @NotNull(message = "Threshold is required")
+    @PositiveOrZero(message = "Threshold cannot be negative")
+    private Double threshold;
+
+    @NotNull(message = "Discount is required")
+    @Positive(message = "Discount must be positive")
+    private Double discount;
+
+    @NotNull(message = "Discount type is required")
+    @Builder.Default
+    private DiscountType discountType = DiscountType.PERCENTAGE;
+
+    @Positive(message = "Max discount must be positive")
+    private Double maxDiscount;
+
+    @Positive(message = "Min items must be at least 1")
+    private Integer minItems;
+
+    @JsonIgnore
+    @AssertTrue(message = "Percentage discount cannot exceed 100")
+    public boolean isPercentageInRange() {
+        return discountType != DiscountType.PERCENTAGE || discount == null || discount <= 100.0;
+    }
+}
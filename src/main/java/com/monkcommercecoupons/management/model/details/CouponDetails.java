@@ -0,0 +1,61 @@
+package com.monkcommercecoupons.management.model.details;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.condition.CartPredicate;
+import com.monkcommercecoupons.management.model.condition.Condition;
+import jakarta.validation.Valid;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Typed form of the {@code details} JSON stored with a coupon. Each {@code CouponType}
+ * maps to exactly one subclass, which is validated when the coupon is written so that
+ * evaluators can rely on every stored coupon being well-formed.
+ */
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public abstract class CouponDetails {
+
+    /**
+     * Optional extra conditions the cart must satisfy, on top of the type-specific rules.
+     */
+    @Valid
+    private Condition conditions;
+
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private CartPredicate compiledConditions;
+
+    public void setConditions(Condition conditions) {
+        this.conditions = conditions;
+        this.compiledConditions = null;
+    }
+
+    /**
+     * Evaluates {@link #conditions} against the cart, compiling them on first use.
+     */
+    public boolean conditionsMet(CartContext context) {
+        if (conditions == null) {
+            return true;
+        }
+        CartPredicate predicate = compiledConditions;
+        if (predicate == null) {
+            predicate = conditions.compile();
+            compiledConditions = predicate;
+        }
+        return predicate.test(context);
+    }
+}
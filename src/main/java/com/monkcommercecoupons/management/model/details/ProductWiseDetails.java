@@ -0,0 +1,44 @@
+package com.monkcommercecoupons.management.model.details;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.monkcommercecoupons.management.model.enums.DiscountType;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductWiseDetails extends CouponDetails {
+
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+
+    @NotNull(message = "Discount is required")
+    @Positive(message = "Discount must be positive")
+    private Double discount;
+
+    @NotNull(message = "Discount type is required")
+    @Builder.Default
+    private DiscountType discountType = DiscountType.PERCENTAGE;
+
+    @Positive(message = "Max discount must be positive")
+    private Double maxDiscount;
+
+    @Positive(message = "Min quantity must be at least 1")
+    private Integer minQuantity;
+
+    @JsonIgnore
+    @AssertTrue(message = "Percentage discount cannot exceed 100")
+    public boolean isPercentageInRange() {
+        return discountType != DiscountType.PERCENTAGE || discount == null || discount <= 100.0;
+    }
+}
@@ -9,6 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Optional;
 
 @Data
 @Builder
@@ -20,6 +21,13 @@ public class CartDTO {
     @Valid
     private List<CartItemDTO> items;
 
+    /**
+     * Stable hash of the cart contents, set by {@code CartNormalizer}.
+     * A non-null value means items hold one line per product, sorted by product id.
+     */
+    @JsonIgnore
+    private Long cartHash;
+
     @JsonIgnore
     public double getTotalPrice() {
         return items.stream()
@@ -33,4 +41,50 @@ public class CartDTO {
                 .mapToInt(CartItemDTO::getQuantity)
                 .sum();
     }
+
+    @JsonIgnore
+    public boolean isNormalized() {
+        return cartHash != null;
+    }
+
+    /**
+     * Looks up the line for a product. Normalized carts are searched by binary search,
+     * anything else falls back to a linear scan returning the first matching line.
+     */
+    public Optional<CartItemDTO> findItem(Long productId) {
+        if (isNormalized()) {
+            int low = 0;
+            int high = items.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                CartItemDTO item = items.get(mid);
+                int cmp = item.getProductId().compareTo(productId);
+                if (cmp == 0) {
+                    return Optional.of(item);
+                } else if (cmp < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return Optional.empty();
+        }
+        return items.stream()
+                .filter(item -> item.getProductId().equals(productId))
+                .findFirst();
+    }
+
+    /**
+     * Total quantity of a product in the cart, summed across lines for carts
+     * that have not been normalized.
+     */
+    public int getQuantityOf(Long productId) {
+        if (isNormalized()) {
+            return findItem(productId).map(CartItemDTO::getQuantity).orElse(0);
+        }
+        return items.stream()
+                .filter(item -> item.getProductId().equals(productId))
+                .mapToInt(CartItemDTO::getQuantity)
+                .sum();
+    }
 }
@@ -1,10 +1,12 @@
 package com.monkcommercecoupons.management.model.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.monkcommercecoupons.management.model.enums.CouponType;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,6 +23,9 @@ public class CouponDTO {
 
     private Long id;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String merchantId;
+
     @NotBlank(message = "Coupon code is required")
     private String code;
 
@@ -36,7 +41,32 @@ public class CouponDTO {
 
     private Boolean isActive;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Boolean singleUse;
+
+    /**
+     * At most one coupon of a group is offered for a cart. On update, a blank group removes it.
+     */
+    @Size(max = 50, message = "Exclusivity group must be at most 50 characters")
+    private String exclusivityGroup;
+
+    /**
+     * Whether the coupon is offered next to others, true when omitted.
+     */
+    private Boolean stackable;
+
+    /**
+     * Precedence when coupons conflict, higher first; 0 when omitted.
+     */
+    private Integer priority;
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
+
+    /**
+     * Set on coupons read from the archive.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime archivedAt;
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponSearchResponse {
+
+    private List<CouponDTO> coupons;
+
+    /**
+     * Passed back as {@code cursor} to fetch the next page; null on the last page.
+     */
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+}
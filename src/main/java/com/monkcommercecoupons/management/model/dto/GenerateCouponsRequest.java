@@ -0,0 +1,43 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mints {@code count} single-use coupons sharing one definition, with codes drawn from
+ * {@code pattern}: every {@code ?} is replaced by a random letter or digit, the rest is kept.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerateCouponsRequest {
+
+    @NotNull(message = "Count is required")
+    @Min(value = 1, message = "Count must be at least 1")
+    private Integer count;
+
+    @NotBlank(message = "Pattern is required")
+    @Size(max = 50, message = "Pattern must be at most 50 characters")
+    private String pattern;
+
+    @NotNull(message = "Coupon type is required")
+    private CouponType type;
+
+    private String description;
+
+    @NotNull(message = "Details are required")
+    private JsonNode details;
+
+    private LocalDateTime expirationDate;
+}
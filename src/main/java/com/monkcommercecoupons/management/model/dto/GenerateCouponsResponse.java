@@ -0,0 +1,38 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerateCouponsResponse {
+
+    private int generated;
+
+    private String pattern;
+
+    /**
+     * Shared start of the generated codes, to list them through {@code /coupons/search}.
+     */
+    @JsonProperty("search_prefix")
+    private String searchPrefix;
+
+    /**
+     * Candidates the Bloom filter flagged as possibly taken, each checked against the database.
+     */
+    @JsonProperty("filter_hits")
+    private long filterHits;
+
+    /**
+     * Flagged candidates the database confirmed as taken.
+     */
+    private long collisions;
+
+    @JsonProperty("elapsed_ms")
+    private long elapsedMs;
+}
@@ -0,0 +1,23 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricePreviewRequest {
+
+    @NotEmpty(message = "Products cannot be empty")
+    @Size(max = 500, message = "At most 500 products can be previewed at once")
+    @Valid
+    private List<ProductPriceDTO> products;
+}
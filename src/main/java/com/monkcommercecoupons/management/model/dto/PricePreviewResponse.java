@@ -0,0 +1,17 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricePreviewResponse {
+
+    private List<ProductPreviewDTO> previews;
+}
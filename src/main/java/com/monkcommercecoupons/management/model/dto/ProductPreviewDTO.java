@@ -0,0 +1,33 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPreviewDTO {
+
+    @JsonProperty("product_id")
+    private Long productId;
+
+    private Double price;
+
+    private Integer quantity;
+
+    /**
+     * Product-wise coupon with the largest discount, or null when none applies.
+     */
+    @JsonProperty("best_product_wise")
+    private ApplicableCouponDTO bestProductWise;
+
+    /**
+     * BxGy coupon with the largest discount, or null when none applies.
+     */
+    @JsonProperty("best_bxgy")
+    private ApplicableCouponDTO bestBxGy;
+}
@@ -0,0 +1,31 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPriceDTO {
+
+    @NotNull(message = "Product ID is required")
+    @JsonProperty("product_id")
+    private Long productId;
+
+    @NotNull(message = "Price is required")
+    @Min(value = 0, message = "Price must be positive")
+    private Double price;
+
+    /**
+     * Quantity the offers are previewed for; one unless the listing shows a multi-buy.
+     */
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Builder.Default
+    private Integer quantity = 1;
+}
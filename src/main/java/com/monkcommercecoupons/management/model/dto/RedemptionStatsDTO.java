@@ -0,0 +1,25 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RedemptionStatsDTO {
+
+    @JsonProperty("coupon_id")
+    private Long couponId;
+
+    private Long redemptions;
+
+    @JsonProperty("total_discount")
+    private Double totalDiscount;
+
+    @JsonProperty("average_discount")
+    private Double averageDiscount;
+}
@@ -0,0 +1,75 @@
+package com.monkcommercecoupons.management.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * What a draft coupon would have cost over the cart corpus.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationResponse {
+
+    private long carts;
+
+    /**
+     * Lines that are not a usable cart, or belong to another merchant.
+     */
+    private long skipped;
+
+    /**
+     * Carts the coupon gives a discount on.
+     */
+    private long hits;
+
+    @JsonProperty("hit_rate")
+    private double hitRate;
+
+    @JsonProperty("total_discount")
+    private double totalDiscount;
+
+    @JsonProperty("total_cart_value")
+    private double totalCartValue;
+
+    /**
+     * Average discount over the carts hit.
+     */
+    @JsonProperty("average_discount")
+    private double averageDiscount;
+
+    @JsonProperty("max_discount")
+    private double maxDiscount;
+
+    /**
+     * Hits per discount range.
+     */
+    private List<Bucket> distribution;
+
+    @JsonProperty("elapsed_ms")
+    private long elapsedMs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Bucket {
+
+        private double from;
+
+        /**
+         * Exclusive upper bound, absent for the last bucket.
+         */
+        private Double to;
+
+        private long carts;
+    }
+}
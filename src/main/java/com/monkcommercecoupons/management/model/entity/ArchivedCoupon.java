@@ -0,0 +1,66 @@
+package com.monkcommercecoupons.management.model.entity;
+
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * A coupon moved out of the {@code coupons} table after staying inactive for the retention
+ * period. It keeps the id it had there; {@link #details} holds the deflated details JSON.
+ * Codes are free again once archived, so one code can appear more than once.
+ */
+@Entity
+@Table(name = "coupon_archive", indexes = {
+        @Index(name = "idx_archive_merchant_code", columnList = "merchant_id, code")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedCoupon {
+
+    @Id
+    private Long id;
+
+    @Column(name = "merchant_id", nullable = false, length = 50)
+    private String merchantId;
+
+    @Column(nullable = false, length = 50)
+    private String code;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private CouponType type;
+
+    @Column(length = 500)
+    private String description;
+
+    @Lob
+    @ToString.Exclude
+    @Column(nullable = false)
+    private byte[] details;
+
+    @Column(name = "expiration_date")
+    private LocalDateTime expirationDate;
+
+    @Column(name = "single_use", nullable = false)
+    private Boolean singleUse;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Last write before archival, normally the deactivation.
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -1,11 +1,15 @@
 package com.monkcommercecoupons.management.model.entity;
 
+import com.monkcommercecoupons.management.model.details.CouponDetails;
 import com.monkcommercecoupons.management.model.enums.CouponType;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -13,9 +17,10 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "coupons", indexes = {
-        @Index(name = "idx_code", columnList = "code", unique = true),
-        @Index(name = "idx_type", columnList = "type"),
-        @Index(name = "idx_active", columnList = "is_active")
+        @Index(name = "idx_merchant_code", columnList = "merchant_id, code", unique = true),
+        @Index(name = "idx_merchant_type", columnList = "merchant_id, type"),
+        @Index(name = "idx_merchant_active", columnList = "merchant_id, is_active"),
+        @Index(name = "idx_expiration", columnList = "expiration_date")
 })
 @Data
 @Builder
@@ -23,11 +28,26 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Coupon {
 
+    /**
+     * Merchant that owns coupons created without an {@code X-Merchant-Id} header.
+     */
+    public static final String DEFAULT_MERCHANT_ID = "default";
+
+    /**
+     * Longest merchant id, in the {@code X-Merchant-Id} header as in the column.
+     */
+    public static final int MERCHANT_ID_LENGTH = 50;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 50)
+    @Builder.Default
+    @ColumnDefault("'" + DEFAULT_MERCHANT_ID + "'")
+    @Column(name = "merchant_id", nullable = false, length = MERCHANT_ID_LENGTH)
+    private String merchantId = DEFAULT_MERCHANT_ID;
+
+    @Column(nullable = false, length = 50)
     private String code;
 
     @Enumerated(EnumType.STRING)
@@ -47,6 +67,39 @@ public class Coupon {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
 
+    /**
+     * Redeemable once: the first successful apply deactivates it. Single-use coupons are minted in
+     * bulk and stay out of the evaluation catalog, so they are only found by their code.
+     */
+    @Builder.Default
+    @ColumnDefault("false")
+    @Column(name = "single_use", nullable = false)
+    private Boolean singleUse = false;
+
+    /**
+     * Coupons sharing an exclusivity group are never offered together; the one with the highest
+     * {@link #priority}, then the largest discount, is.
+     */
+    @Column(name = "exclusivity_group", length = 50)
+    private String exclusivityGroup;
+
+    /**
+     * A coupon that doesn't stack is only offered alone: it wins over every other applicable
+     * coupon or is dropped in favour of one with precedence.
+     */
+    @Builder.Default
+    @ColumnDefault("true")
+    @Column(nullable = false)
+    private Boolean stackable = true;
+
+    /**
+     * Precedence when applicable coupons conflict, higher first.
+     */
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer priority = 0;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -55,6 +108,23 @@ public class Coupon {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    /**
+     * Parsed form of {@link #details}, filled lazily by {@code CouponDetailsMapper}.
+     */
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private CouponDetails parsedDetails;
+
+    public void setDetails(String details) {
+        this.details = details;
+        this.parsedDetails = null;
+    }
+
     public boolean isExpired() {
         if (expirationDate == null) {
             return false;
@@ -0,0 +1,44 @@
+package com.monkcommercecoupons.management.model.entity;
+
+import com.monkcommercecoupons.management.model.enums.ChangeType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per coupon write. Ids only grow, so instances sharing the database can tail the
+ * table from the last id they have seen.
+ */
+@Entity
+@Table(name = "coupon_changes", indexes = {
+        @Index(name = "idx_change_coupon", columnList = "coupon_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "merchant_id", nullable = false, length = 50)
+    private String merchantId;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 10)
+    private ChangeType changeType;
+
+    @CreationTimestamp
+    @Column(name = "changed_at", nullable = false, updatable = false)
+    private LocalDateTime changedAt;
+}
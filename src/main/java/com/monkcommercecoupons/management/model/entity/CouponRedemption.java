@@ -0,0 +1,46 @@
+package com.monkcommercecoupons.management.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Audit row for one successful coupon application. Rows are inserted in groups by
+ * {@code RedemptionLedger} and never updated.
+ */
+@Entity
+@Table(name = "coupon_redemptions", indexes = {
+        @Index(name = "idx_redemption_merchant_coupon", columnList = "merchant_id, coupon_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponRedemption {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "merchant_id", nullable = false, length = 50)
+    private String merchantId;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "total_price", nullable = false)
+    private double totalPrice;
+
+    @Column(name = "total_discount", nullable = false)
+    private double totalDiscount;
+
+    @Column(name = "final_price", nullable = false)
+    private double finalPrice;
+
+    @Column(name = "redeemed_at", nullable = false)
+    private LocalDateTime redeemedAt;
+}
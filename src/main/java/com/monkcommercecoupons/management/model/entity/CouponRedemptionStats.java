@@ -0,0 +1,40 @@
+package com.monkcommercecoupons.management.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running redemption totals per coupon. Rows are written in batches by
+ * {@code RedemptionStatsServiceImpl}, never on the checkout path.
+ */
+@Entity
+@Table(name = "coupon_redemption_stats", indexes = {
+        @Index(name = "idx_stats_merchant", columnList = "merchant_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponRedemptionStats {
+
+    @Id
+    @Column(name = "coupon_id")
+    private Long couponId;
+
+    @Column(name = "merchant_id", nullable = false, length = 50)
+    private String merchantId;
+
+    @Column(nullable = false)
+    private long redemptions;
+
+    @Column(name = "total_discount", nullable = false)
+    private double totalDiscount;
+
+    @Column(name = "last_flushed_at")
+    private LocalDateTime lastFlushedAt;
+}
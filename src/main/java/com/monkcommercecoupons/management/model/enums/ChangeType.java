@@ -0,0 +1,7 @@
+package com.monkcommercecoupons.management.model.enums;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
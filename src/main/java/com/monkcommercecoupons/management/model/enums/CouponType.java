@@ -1,7 +1,22 @@
 package com.monkcommercecoupons.management.model.enums;
 
+import com.monkcommercecoupons.management.model.details.BxGyDetails;
+import com.monkcommercecoupons.management.model.details.CartWiseDetails;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.details.ProductWiseDetails;
+
 public enum CouponType {
-    CART_WISE,
-    PRODUCT_WISE,
-    BXGY
+    CART_WISE(CartWiseDetails.class),
+    PRODUCT_WISE(ProductWiseDetails.class),
+    BXGY(BxGyDetails.class);
+
+    private final Class<? extends CouponDetails> detailsType;
+
+    CouponType(Class<? extends CouponDetails> detailsType) {
+        this.detailsType = detailsType;
+    }
+
+    public Class<? extends CouponDetails> getDetailsType() {
+        return detailsType;
+    }
 }
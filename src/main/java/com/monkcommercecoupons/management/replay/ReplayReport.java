@@ -0,0 +1,76 @@
+package com.monkcommercecoupons.management.replay;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Outcome of a {@link TrafficReplay} run. Replayed latencies are measured by the client, from the
+ * moment the schedule meant to send the request; recorded latencies are the ones the capture took
+ * inside the original instance, so they leave out the network and the JSON read and write.
+ */
+@Value
+@Builder
+public class ReplayReport {
+
+    String input;
+
+    /**
+     * Target requests per second, 0 when requests were sent as fast as the connections allowed.
+     */
+    double rate;
+
+    long requests;
+
+    /**
+     * Input lines that were not a request with a cart.
+     */
+    long skipped;
+
+    /**
+     * Requests that timed out or never got a response.
+     */
+    long failed;
+
+    long matched;
+
+    long mismatched;
+
+    /**
+     * Requests whose line had no recorded status or response to compare with.
+     */
+    long unrecorded;
+
+    long elapsedMillis;
+
+    double throughput;
+
+    double p50Micros;
+
+    double p99Micros;
+
+    double p999Micros;
+
+    double maxMicros;
+
+    double recordedP50Micros;
+
+    double recordedP99Micros;
+
+    double recordedP999Micros;
+
+    List<Mismatch> mismatches;
+
+    @Value
+    public static class Mismatch {
+
+        String file;
+
+        long line;
+
+        String path;
+
+        List<String> differences;
+    }
+}
@@ -0,0 +1,96 @@
+package com.monkcommercecoupons.management.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Structural comparison of a recorded response body with a replayed one. Differences are
+ * reported as JSON pointers with both values; numbers are compared within a tolerance so
+ * rounding of discounts does not count as a change.
+ */
+final class ResponseDiff {
+
+    /**
+     * Differences listed for one response; past this the rest are summarized.
+     */
+    static final int MAX_DIFFERENCES = 10;
+
+    private final Set<String> ignoredFields;
+    private final double tolerance;
+
+    ResponseDiff(Collection<String> ignoredFields, double tolerance) {
+        this.ignoredFields = Set.copyOf(ignoredFields);
+        this.tolerance = tolerance;
+    }
+
+    List<String> compare(JsonNode expected, JsonNode actual) {
+        List<String> differences = new ArrayList<>();
+        compare("", expected, actual, differences);
+        return differences;
+    }
+
+    private void compare(String pointer, JsonNode expected, JsonNode actual, List<String> differences) {
+        if (differences.size() > MAX_DIFFERENCES) {
+            return;
+        }
+        if (isMissing(expected) || isMissing(actual)) {
+            if (isMissing(expected) != isMissing(actual)) {
+                add(differences, pointer, expected, actual);
+            }
+        } else if (expected.isNumber() && actual.isNumber()) {
+            if (Math.abs(expected.doubleValue() - actual.doubleValue()) > tolerance) {
+                add(differences, pointer, expected, actual);
+            }
+        } else if (expected.isObject() && actual.isObject()) {
+            Set<String> fields = new LinkedHashSet<>();
+            expected.fieldNames().forEachRemaining(fields::add);
+            actual.fieldNames().forEachRemaining(fields::add);
+            for (String field : fields) {
+                if (!ignoredFields.contains(field)) {
+                    compare(pointer + "/" + escape(field), expected.get(field), actual.get(field), differences);
+                }
+            }
+        } else if (expected.isArray() && actual.isArray()) {
+            if (expected.size() != actual.size()) {
+                add(differences, pointer, expected.size() + " elements", actual.size() + " elements");
+            }
+            Iterator<JsonNode> left = expected.elements();
+            Iterator<JsonNode> right = actual.elements();
+            for (int i = 0; left.hasNext() && right.hasNext(); i++) {
+                compare(pointer + "/" + i, left.next(), right.next(), differences);
+            }
+        } else if (!expected.equals(actual)) {
+            add(differences, pointer, expected, actual);
+        }
+    }
+
+    private static boolean isMissing(JsonNode node) {
+        return node == null || node.isNull() || node.isMissingNode();
+    }
+
+    private static void add(List<String> differences, String pointer, JsonNode expected, JsonNode actual) {
+        add(differences, pointer, render(expected), render(actual));
+    }
+
+    private static void add(List<String> differences, String pointer, String expected, String actual) {
+        if (differences.size() == MAX_DIFFERENCES) {
+            differences.add("...");
+        } else if (differences.size() < MAX_DIFFERENCES) {
+            differences.add((pointer.isEmpty() ? "/" : pointer) + ": " + expected + " != " + actual);
+        }
+    }
+
+    private static String render(JsonNode node) {
+        return isMissing(node) ? "(absent)" : node.toString();
+    }
+
+    private static String escape(String field) {
+        return field.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -0,0 +1,299 @@
+package com.monkcommercecoupons.management.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.monkcommercecoupons.management.config.ReplayProperties;
+import com.monkcommercecoupons.management.controller.CouponController;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Sends the requests of capture files, or any NDJSON file of {@code {"path", "merchant", "cart"}}
+ * lines, to a running instance and compares each answer with the status and response recorded
+ * next to it. Lines without a path go to {@code /applicable-coupons}; a bare {@code items} array
+ * is accepted in place of {@code cart}.
+ *
+ * <p>With a rate the schedule is open: request {@code n} is due at {@code n / rate} seconds and its
+ * latency counts from then, so time spent waiting for a free connection behind a slow response
+ * shows up in the percentiles instead of quietly lowering the offered load.
+ */
+public class TrafficReplay {
+
+    private static final String DEFAULT_PATH = "/applicable-coupons";
+
+    private final ReplayProperties properties;
+    private final ObjectMapper objectMapper;
+    private final URI baseUri;
+    private final ResponseDiff responseDiff;
+
+    /**
+     * @param baseUri scheme, host, port and context path of the instance, e.g. {@code http://localhost:8080/api/v1}
+     */
+    public TrafficReplay(ReplayProperties properties, ObjectMapper objectMapper, URI baseUri) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.baseUri = baseUri;
+        this.responseDiff = new ResponseDiff(properties.getIgnoredFields(), properties.getTolerance());
+    }
+
+    public ReplayReport run() throws IOException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(properties.getRequestTimeout()).build();
+        int concurrency = Math.max(1, properties.getConcurrency());
+        Semaphore slots = new Semaphore(concurrency);
+        long intervalNanos = properties.getRate() > 0 ? (long) (1_000_000_000L / properties.getRate()) : 0;
+        Results results = new Results(properties.getMaxReportedMismatches());
+
+        long start = System.nanoTime();
+        long sent = 0;
+        try {
+            files:
+            for (Path file : inputFiles()) {
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    String line;
+                    long lineNumber = 0;
+                    while ((line = reader.readLine()) != null) {
+                        lineNumber++;
+                        if (line.isBlank()) {
+                            continue;
+                        }
+                        ReplayedRequest request = parse(file, lineNumber, line);
+                        if (request == null) {
+                            results.skip();
+                            continue;
+                        }
+                        if (properties.getLimit() > 0 && sent >= properties.getLimit()) {
+                            break files;
+                        }
+                        long due = start + sent * intervalNanos;
+                        for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        slots.acquire();
+                        long begin = intervalNanos > 0 ? due : System.nanoTime();
+                        sent++;
+                        client.sendAsync(httpRequest(request), HttpResponse.BodyHandlers.ofByteArray())
+                                .whenComplete((response, error) -> {
+                                    try {
+                                        long latencyNanos = System.nanoTime() - begin;
+                                        if (error != null) {
+                                            results.fail(latencyNanos);
+                                        } else {
+                                            results.complete(request, latencyNanos, compare(request, response));
+                                        }
+                                    } finally {
+                                        slots.release();
+                                    }
+                                });
+                    }
+                }
+            }
+            slots.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Replay interrupted after " + sent + " requests", e);
+        }
+        return results.report(String.valueOf(properties.getInput()), properties.getRate(),
+                System.nanoTime() - start);
+    }
+
+    private List<Path> inputFiles() throws IOException {
+        Path input = properties.getInput();
+        if (input == null) {
+            throw new IOException("No replay input configured (coupons.replay.input)");
+        }
+        if (!Files.isDirectory(input)) {
+            return List.of(input);
+        }
+        try (Stream<Path> files = Files.list(input)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private ReplayedRequest parse(Path file, long lineNumber, String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            return null;
+        }
+        JsonNode cart = node.get("cart");
+        if (cart == null && node.has("items")) {
+            cart = objectMapper.createObjectNode().set("items", node.get("items"));
+        }
+        if (cart == null || !cart.isObject()) {
+            return null;
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        body.set("cart", cart);
+
+        String path = node.path("path").asText(null);
+        if (path == null) {
+            String endpoint = node.path("endpoint").asText(DEFAULT_PATH);
+            path = endpoint.contains("{") ? DEFAULT_PATH : endpoint;
+        }
+        JsonNode status = node.get("status");
+        JsonNode recordedLatency = node.get("latency_micros");
+        return new ReplayedRequest(
+                file.getFileName().toString(),
+                lineNumber,
+                path,
+                node.path("merchant").asText(Coupon.DEFAULT_MERCHANT_ID),
+                body.toString(),
+                status != null && status.canConvertToInt() ? status.intValue() : 0,
+                node.get("response"),
+                recordedLatency != null && recordedLatency.isNumber() ? recordedLatency.longValue() : -1);
+    }
+
+    private HttpRequest httpRequest(ReplayedRequest request) {
+        return HttpRequest.newBuilder(URI.create(baseUri + request.path()))
+                .timeout(properties.getRequestTimeout())
+                .header("Content-Type", "application/json")
+                .header(CouponController.MERCHANT_HEADER, request.merchant())
+                .POST(HttpRequest.BodyPublishers.ofString(request.body()))
+                .build();
+    }
+
+    /**
+     * @return the differences, empty when the response matches, or null when nothing was recorded
+     */
+    private List<String> compare(ReplayedRequest request, HttpResponse<byte[]> response) {
+        if (request.status() == 0 && request.response() == null) {
+            return null;
+        }
+        List<String> differences = new ArrayList<>();
+        if (request.status() != 0 && request.status() != response.statusCode()) {
+            differences.add("status: " + request.status() + " != " + response.statusCode());
+        }
+        if (request.response() != null) {
+            JsonNode actual;
+            try {
+                actual = response.body().length > 0 ? objectMapper.readTree(response.body()) : MissingNode.getInstance();
+            } catch (IOException e) {
+                differences.add("/: response is not JSON");
+                return differences;
+            }
+            differences.addAll(responseDiff.compare(request.response(), actual));
+        }
+        return differences;
+    }
+
+    private static double percentile(long[] sorted, int count, double quantile) {
+        if (count == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    private record ReplayedRequest(String file, long line, String path, String merchant, String body,
+                                   int status, JsonNode response, long recordedLatencyMicros) {
+    }
+
+    /**
+     * Tallies completions, which arrive on the HTTP client's threads.
+     */
+    private static final class Results {
+
+        private final int maxMismatches;
+        private final List<ReplayReport.Mismatch> mismatches = new ArrayList<>();
+        private long[] latencies = new long[1024];
+        private int latencyCount;
+        private long[] recordedLatencies = new long[1024];
+        private int recordedCount;
+        private long requests;
+        private long skipped;
+        private long failed;
+        private long matched;
+        private long mismatched;
+        private long unrecorded;
+
+        private Results(int maxMismatches) {
+            this.maxMismatches = maxMismatches;
+        }
+
+        synchronized void skip() {
+            skipped++;
+        }
+
+        synchronized void fail(long latencyNanos) {
+            requests++;
+            failed++;
+            addLatency(latencyNanos / 1_000);
+        }
+
+        synchronized void complete(ReplayedRequest request, long latencyNanos, List<String> differences) {
+            requests++;
+            addLatency(latencyNanos / 1_000);
+            if (request.recordedLatencyMicros() >= 0) {
+                if (recordedCount == recordedLatencies.length) {
+                    recordedLatencies = Arrays.copyOf(recordedLatencies, recordedCount * 2);
+                }
+                recordedLatencies[recordedCount++] = request.recordedLatencyMicros();
+            }
+            if (differences == null) {
+                unrecorded++;
+            } else if (differences.isEmpty()) {
+                matched++;
+            } else {
+                mismatched++;
+                if (mismatches.size() < maxMismatches) {
+                    mismatches.add(new ReplayReport.Mismatch(request.file(), request.line(), request.path(),
+                            List.copyOf(differences)));
+                }
+            }
+        }
+
+        private void addLatency(long micros) {
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = micros;
+        }
+
+        synchronized ReplayReport report(String input, double rate, long elapsedNanos) {
+            Arrays.sort(latencies, 0, latencyCount);
+            Arrays.sort(recordedLatencies, 0, recordedCount);
+            return ReplayReport.builder()
+                    .input(input)
+                    .rate(rate)
+                    .requests(requests)
+                    .skipped(skipped)
+                    .failed(failed)
+                    .matched(matched)
+                    .mismatched(mismatched)
+                    .unrecorded(unrecorded)
+                    .elapsedMillis(elapsedNanos / 1_000_000)
+                    .throughput(elapsedNanos > 0 ? Math.round(requests * 1e10 / elapsedNanos) / 10.0 : 0.0)
+                    .p50Micros(percentile(latencies, latencyCount, 0.50))
+                    .p99Micros(percentile(latencies, latencyCount, 0.99))
+                    .p999Micros(percentile(latencies, latencyCount, 0.999))
+                    .maxMicros(latencyCount > 0 ? latencies[latencyCount - 1] : 0.0)
+                    .recordedP50Micros(percentile(recordedLatencies, recordedCount, 0.50))
+                    .recordedP99Micros(percentile(recordedLatencies, recordedCount, 0.99))
+                    .recordedP999Micros(percentile(recordedLatencies, recordedCount, 0.999))
+                    .mismatches(List.copyOf(mismatches))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.monkcommercecoupons.management.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommercecoupons.management.config.ReplayProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Replays {@code coupons.replay.input} against this instance once it is ready, i.e. after the
+ * warm-up, and reports latency, throughput and every response that differs from the recording.
+ * Started with the replay profile, e.g. on top of a copy of the durable store the traffic was
+ * captured against:
+ * <pre>
+ * java -Dspring.profiles.active=durable,replay -Dcoupons.store.directory=./snapshot \
+ *      -Dcoupons.replay.input=./capture -Dcoupons.replay.rate=500 -jar app.jar
+ * </pre>
+ * Running the same input through two builds gives comparable reports.
+ */
+@Component
+@ConditionalOnProperty(name = "coupons.replay.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class TrafficReplayRunner implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final ReplayProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        if (!(context instanceof WebServerApplicationContext webContext) || webContext.getWebServer() == null) {
+            log.warn("Replay needs the embedded web server, skipping");
+            return;
+        }
+        URI baseUri = URI.create("http://localhost:" + webContext.getWebServer().getPort()
+                + environment.getProperty("server.servlet.context-path", ""));
+
+        int exitCode;
+        try {
+            ReplayReport report = new TrafficReplay(properties, objectMapper, baseUri).run();
+            log.info("Replayed {} requests from {} in {} ms ({} req/s): latency p50={}us p99={}us p999={}us "
+                            + "(recorded p50={}us p99={}us); {} matched, {} mismatched, {} unrecorded, {} failed, {} skipped",
+                    report.getRequests(), report.getInput(), report.getElapsedMillis(), report.getThroughput(),
+                    Math.round(report.getP50Micros()), Math.round(report.getP99Micros()),
+                    Math.round(report.getP999Micros()), Math.round(report.getRecordedP50Micros()),
+                    Math.round(report.getRecordedP99Micros()), report.getMatched(), report.getMismatched(),
+                    report.getUnrecorded(), report.getFailed(), report.getSkipped());
+            for (ReplayReport.Mismatch mismatch : report.getMismatches()) {
+                log.info("Mismatch at {}:{} {} {}", mismatch.getFile(), mismatch.getLine(), mismatch.getPath(),
+                        mismatch.getDifferences());
+            }
+            if (properties.getReportFile() != null) {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(properties.getReportFile().toFile(), report);
+            }
+            exitCode = report.getMismatched() > 0 || report.getFailed() > 0 ? 1 : 0;
+        } catch (IOException e) {
+            log.error("Replay of {} failed", properties.getInput(), e);
+            exitCode = 2;
+        }
+
+        if (properties.isExitWhenDone()) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(context, () -> code));
+        }
+    }
+}
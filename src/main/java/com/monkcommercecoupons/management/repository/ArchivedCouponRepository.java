@@ -0,0 +1,16 @@
+package com.monkcommercecoupons.management.repository;
+
+import com.monkcommercecoupons.management.model.entity.ArchivedCoupon;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedCouponRepository extends JpaRepository<ArchivedCoupon, Long> {
+
+    Optional<ArchivedCoupon> findByIdAndMerchantId(Long id, String merchantId);
+
+    List<ArchivedCoupon> findByMerchantIdAndCodeOrderByIdAsc(String merchantId, String code);
+}
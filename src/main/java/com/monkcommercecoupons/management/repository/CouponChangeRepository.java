@@ -0,0 +1,26 @@
+package com.monkcommercecoupons.management.repository;
+
+import com.monkcommercecoupons.management.model.entity.CouponChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CouponChangeRepository extends JpaRepository<CouponChange, Long> {
+
+    List<CouponChange> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM CouponChange c")
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CouponChange c WHERE c.changedAt < :changedBefore AND c.id <= :upToId")
+    int deleteChangedBefore(LocalDateTime changedBefore, long upToId);
+}
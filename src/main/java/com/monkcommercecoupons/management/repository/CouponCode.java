@@ -0,0 +1,11 @@
+package com.monkcommercecoupons.management.repository;
+
+/**
+ * Id and code of a coupon, used to build the code index without loading whole entities.
+ */
+public interface CouponCode {
+
+    Long getId();
+
+    String getCode();
+}
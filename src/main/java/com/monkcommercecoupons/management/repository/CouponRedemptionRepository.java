@@ -0,0 +1,13 @@
+package com.monkcommercecoupons.management.repository;
+
+import com.monkcommercecoupons.management.model.entity.CouponRedemption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CouponRedemptionRepository extends JpaRepository<CouponRedemption, Long> {
+
+    List<CouponRedemption> findByMerchantIdAndCouponIdOrderByIdAsc(String merchantId, Long couponId);
+}
@@ -0,0 +1,16 @@
+package com.monkcommercecoupons.management.repository;
+
+import com.monkcommercecoupons.management.model.entity.CouponRedemptionStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CouponRedemptionStatsRepository extends JpaRepository<CouponRedemptionStats, Long> {
+
+    List<CouponRedemptionStats> findByMerchantId(String merchantId);
+
+    Optional<CouponRedemptionStats> findByCouponIdAndMerchantId(Long couponId, String merchantId);
+}
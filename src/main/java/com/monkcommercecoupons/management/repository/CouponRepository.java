@@ -3,25 +3,61 @@ package com.monkcommercecoupons.management.repository;
 import com.monkcommercecoupons.management.model.entity.Coupon;
 import com.monkcommercecoupons.management.model.enums.CouponType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
 
-    Optional<Coupon> findByCode(String code);
+    Optional<Coupon> findByIdAndMerchantId(Long id, String merchantId);
 
-    boolean existsByCode(String code);
+    Optional<Coupon> findByMerchantIdAndCode(String merchantId, String code);
 
-    List<Coupon> findByType(CouponType type);
+    boolean existsByIdAndMerchantId(Long id, String merchantId);
 
-    @Query("SELECT c FROM Coupon c WHERE c.isActive = true AND (c.expirationDate IS NULL OR c.expirationDate > :now)")
-    List<Coupon> findAllActiveCoupons(LocalDateTime now);
+    boolean existsByMerchantIdAndCode(String merchantId, String code);
 
-    @Query("SELECT c FROM Coupon c WHERE c.isActive = true AND c.type = :type AND (c.expirationDate IS NULL OR c.expirationDate > :now)")
-    List<Coupon> findActiveByType(CouponType type, LocalDateTime now);
+    List<Coupon> findByMerchantId(String merchantId);
+
+    @Query("SELECT c.id AS id, c.code AS code FROM Coupon c WHERE c.merchantId = :merchantId")
+    List<CouponCode> findCodesByMerchantId(String merchantId);
+
+    @Query("SELECT c.id AS id, c.code AS code FROM Coupon c WHERE c.merchantId = :merchantId AND c.id IN :ids")
+    List<CouponCode> findCodesByMerchantIdAndIdIn(String merchantId, Collection<Long> ids);
+
+    List<Coupon> findByMerchantIdAndType(String merchantId, CouponType type);
+
+    @Query("SELECT c FROM Coupon c WHERE c.merchantId = :merchantId AND c.isActive = true AND c.singleUse = false AND (c.expirationDate IS NULL OR c.expirationDate > :now)")
+    List<Coupon> findAllActiveCoupons(String merchantId, LocalDateTime now);
+
+    @Query("SELECT c FROM Coupon c WHERE c.merchantId = :merchantId AND c.isActive = true AND c.singleUse = false AND c.type = :type AND (c.expirationDate IS NULL OR c.expirationDate > :now)")
+    List<Coupon> findActiveByType(String merchantId, CouponType type, LocalDateTime now);
+
+    @Query("SELECT c.id AS id, c.version AS version FROM Coupon c WHERE c.merchantId = :merchantId AND c.isActive = true AND c.singleUse = false AND (c.expirationDate IS NULL OR c.expirationDate > :now)")
+    List<CouponVersion> findActiveCouponVersions(String merchantId, LocalDateTime now);
+
+    /**
+     * Deactivates a single-use coupon unless another apply got there first.
+     *
+     * @return 1 if this call used the coupon, 0 if it was already used
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Coupon c SET c.isActive = false, c.version = c.version + 1, c.updatedAt = CURRENT_TIMESTAMP WHERE c.id = :id AND c.singleUse = true AND c.isActive = true")
+    int markUsed(Long id);
+
+    /**
+     * Makes a single-use coupon usable again after its redemption could not be recorded.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Coupon c SET c.isActive = true, c.version = c.version + 1, c.updatedAt = CURRENT_TIMESTAMP WHERE c.id = :id AND c.singleUse = true AND c.isActive = false")
+    int release(Long id);
 }
@@ -0,0 +1,12 @@
+package com.monkcommercecoupons.management.repository;
+
+/**
+ * Id and optimistic-lock version of a coupon, used to detect which in-memory
+ * entries are stale without loading whole entities.
+ */
+public interface CouponVersion {
+
+    Long getId();
+
+    Long getVersion();
+}
@@ -0,0 +1,79 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Brings an incoming cart into canonical form before any coupon is evaluated:
+ * duplicate product lines are merged, lines are ordered by product id and a
+ * stable content hash is computed once for downstream caches.
+ */
+@Component
+public class CartNormalizer {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public CartDTO normalize(CartDTO cart) {
+        if (cart == null || cart.isNormalized()) {
+            return cart;
+        }
+
+        Map<Long, CartItemDTO> merged = new TreeMap<>();
+        for (CartItemDTO item : cart.getItems()) {
+            merged.merge(item.getProductId(), copyOf(item), CartNormalizer::mergeLines);
+        }
+
+        List<CartItemDTO> items = new ArrayList<>(merged.values());
+        return CartDTO.builder()
+                .items(items)
+                .cartHash(hash(items))
+                .build();
+    }
+
+    private static CartItemDTO copyOf(CartItemDTO item) {
+        return CartItemDTO.builder()
+                .productId(item.getProductId())
+                .quantity(item.getQuantity())
+                .price(item.getPrice())
+                .build();
+    }
+
+    /**
+     * Merges two lines of the same product. When the lines disagree on price the
+     * merged unit price is the quantity-weighted average, which keeps the cart total unchanged.
+     */
+    private static CartItemDTO mergeLines(CartItemDTO existing, CartItemDTO addition) {
+        int quantity = existing.getQuantity() + addition.getQuantity();
+        double price = existing.getPrice().equals(addition.getPrice())
+                ? existing.getPrice()
+                : (existing.getTotalPrice() + addition.getTotalPrice()) / quantity;
+        existing.setQuantity(quantity);
+        existing.setPrice(price);
+        return existing;
+    }
+
+    private static long hash(List<CartItemDTO> items) {
+        long hash = FNV_OFFSET_BASIS;
+        for (CartItemDTO item : items) {
+            hash = mix(hash, item.getProductId());
+            hash = mix(hash, item.getQuantity());
+            hash = mix(hash, Double.doubleToLongBits(item.getPrice()));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
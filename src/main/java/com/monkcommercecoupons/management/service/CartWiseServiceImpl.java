@@ -1,14 +1,14 @@
 package com.monkcommercecoupons.management.service;
 
 import com.monkcommercecoupons.management.exception.CouponNotApplicableException;
+import com.monkcommercecoupons.management.model.details.CartWiseDetails;
 import com.monkcommercecoupons.management.model.dto.CartDTO;
 import com.monkcommercecoupons.management.model.dto.CartItemDTO;
 import com.monkcommercecoupons.management.model.dto.UpdatedCartDTO;
 import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.enums.DiscountType;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,55 +21,42 @@ import java.util.List;
 @Slf4j
 public class CartWiseServiceImpl implements CartWiseService{
 
-    private final ObjectMapper objectMapper;
+    private final CouponDetailsMapper couponDetailsMapper;
 
     @Override
     public double calculateDiscount(Coupon coupon, CartDTO cart) {
-        try {
-            JsonNode details = objectMapper.readTree(coupon.getDetails());
+        CartWiseDetails details = couponDetailsMapper.read(coupon, CartWiseDetails.class);
 
-            double threshold = details.get("threshold").asDouble();
-            double discount = details.get("discount").asDouble();
-            String discountType = details.has("discountType") ?
-                    details.get("discountType").asText() : "PERCENTAGE";
+        double threshold = details.getThreshold();
+        double cartTotal = cart.getTotalPrice();
 
-            double cartTotal = cart.getTotalPrice();
+        if (cartTotal < threshold) {
+            throw new CouponNotApplicableException(
+                    "Cart total ₹" + cartTotal + " is below threshold ₹" + threshold);
+        }
 
-            if (cartTotal < threshold) {
+        if (details.getMinItems() != null) {
+            int minItems = details.getMinItems();
+            if (cart.getTotalItems() < minItems) {
                 throw new CouponNotApplicableException(
-                        "Cart total ₹" + cartTotal + " is below threshold ₹" + threshold);
-            }
-
-            if (details.has("minItems")) {
-                int minItems = details.get("minItems").asInt();
-                if (cart.getTotalItems() < minItems) {
-                    throw new CouponNotApplicableException(
-                            "Cart has " + cart.getTotalItems() + " items, minimum required: " + minItems);
-                }
-            }
-
-            double calculatedDiscount;
-            if ("PERCENTAGE".equals(discountType)) {
-                calculatedDiscount = (cartTotal * discount) / 100.0;
-            } else {
-                calculatedDiscount = discount;
+                        "Cart has " + cart.getTotalItems() + " items, minimum required: " + minItems);
             }
+        }
 
-            if (details.has("maxDiscount")) {
-                double maxDiscount = details.get("maxDiscount").asDouble();
-                calculatedDiscount = Math.min(calculatedDiscount, maxDiscount);
-            }
+        double calculatedDiscount;
+        if (details.getDiscountType() == DiscountType.PERCENTAGE) {
+            calculatedDiscount = (cartTotal * details.getDiscount()) / 100.0;
+        } else {
+            calculatedDiscount = details.getDiscount();
+        }
 
-            calculatedDiscount = Math.min(calculatedDiscount, cartTotal);
+        if (details.getMaxDiscount() != null) {
+            calculatedDiscount = Math.min(calculatedDiscount, details.getMaxDiscount());
+        }
 
-            return calculatedDiscount;
+        calculatedDiscount = Math.min(calculatedDiscount, cartTotal);
 
-        } catch (CouponNotApplicableException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Error calculating cart-wise discount", e);
-            throw new RuntimeException("Error processing coupon details", e);
-        }
+        return calculatedDiscount;
     }
 
     @Override
@@ -0,0 +1,21 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.model.dto.CouponDTO;
+
+import java.util.List;
+
+public interface CouponArchiveService {
+
+    /**
+     * Deactivates expired coupons, then archives coupons inactive for longer than the retention
+     * period, then deletes change rows older than the change retention.
+     */
+    SweepResult sweep();
+
+    CouponDTO getArchivedCoupon(String merchantId, Long id);
+
+    List<CouponDTO> getArchivedCoupons(String merchantId, String code);
+
+    record SweepResult(int deactivated, int archived, int prunedChanges) {
+    }
+}
@@ -0,0 +1,221 @@
+package com.monkcommercecoupons.management.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommercecoupons.management.config.ArchiveProperties;
+import com.monkcommercecoupons.management.engine.CouponChangeFeed;
+import com.monkcommercecoupons.management.engine.CouponCodeIndex;
+import com.monkcommercecoupons.management.exception.CouponNotFoundException;
+import com.monkcommercecoupons.management.model.dto.CouponDTO;
+import com.monkcommercecoupons.management.model.entity.ArchivedCoupon;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.repository.ArchivedCouponRepository;
+import com.monkcommercecoupons.management.util.Compression;
+import com.monkcommercecoupons.management.util.CouponCodes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Keeps the {@code coupons} table sized to live coupons. Expired coupons are deactivated with
+ * UPDATEs over id ranges, each committed on its own, and coupons inactive for longer than the
+ * retention period are moved to {@code coupon_archive} a batch per transaction.
+ *
+ * <p>Neither step writes change rows: the evaluation network already drops coupons when they
+ * expire and never holds inactive ones. The code index of each merchant that lost coupons is
+ * reset so its searches stop listing them. The sweep also trims {@code coupon_changes}, which
+ * only has to reach back as far as the slowest reader.
+ */
+@Service
+@Slf4j
+public class CouponArchiveServiceImpl implements CouponArchiveService {
+
+    private static final String EXPIRED_RANGE_SQL = "SELECT MIN(id), MAX(id) FROM coupons "
+            + "WHERE is_active = TRUE AND expiration_date <= ?";
+    private static final String DEACTIVATE_SQL = "UPDATE coupons SET is_active = FALSE, version = version + 1, updated_at = ? "
+            + "WHERE id >= ? AND id < ? AND is_active = TRUE AND expiration_date <= ?";
+    private static final String SELECT_ARCHIVABLE_SQL = "SELECT id, merchant_id, code, type, description, details, "
+            + "expiration_date, single_use, created_at, updated_at FROM coupons "
+            + "WHERE id > ? AND is_active = FALSE AND COALESCE(updated_at, created_at) < ? "
+            + "ORDER BY id FETCH FIRST ? ROWS ONLY FOR UPDATE";
+    private static final String INSERT_ARCHIVE_SQL = "INSERT INTO coupon_archive "
+            + "(id, merchant_id, code, type, description, details, expiration_date, single_use, created_at, updated_at, archived_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_ARCHIVED_SQL = "DELETE FROM coupons "
+            + "WHERE id >= ? AND id <= ? AND is_active = FALSE AND COALESCE(updated_at, created_at) < ?";
+
+    private static final RowMapper<ArchivedCoupon> ARCHIVABLE_ROW = (row, rowNum) -> ArchivedCoupon.builder()
+            .id(row.getLong("id"))
+            .merchantId(row.getString("merchant_id"))
+            .code(row.getString("code"))
+            .type(CouponType.valueOf(row.getString("type")))
+            .description(row.getString("description"))
+            .details(Compression.deflate(row.getString("details")))
+            .expirationDate(toLocalDateTime(row.getTimestamp("expiration_date")))
+            .singleUse(row.getBoolean("single_use"))
+            .createdAt(toLocalDateTime(row.getTimestamp("created_at")))
+            .updatedAt(toLocalDateTime(row.getTimestamp("updated_at")))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ArchivedCouponRepository archivedCouponRepository;
+    private final CouponCodeIndex couponCodeIndex;
+    private final CouponChangeFeed couponChangeFeed;
+    private final ObjectMapper objectMapper;
+    private final ArchiveProperties properties;
+
+    public CouponArchiveServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                    ArchivedCouponRepository archivedCouponRepository, CouponCodeIndex couponCodeIndex,
+                                    CouponChangeFeed couponChangeFeed, ObjectMapper objectMapper,
+                                    ArchiveProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archivedCouponRepository = archivedCouponRepository;
+        this.couponCodeIndex = couponCodeIndex;
+        this.couponChangeFeed = couponChangeFeed;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${coupons.archive.sweep-interval:PT1H}", initialDelayString = "${coupons.archive.sweep-interval:PT1H}")
+    public void scheduledSweep() {
+        if (properties.isEnabled()) {
+            sweep();
+        }
+    }
+
+    @Override
+    public synchronized SweepResult sweep() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int deactivated = deactivateExpired(now);
+        int archived = archiveInactive(now);
+        int prunedChanges = couponChangeFeed.prune(now.minus(properties.getChangeRetention()));
+        if (deactivated > 0 || archived > 0 || prunedChanges > 0) {
+            log.info("Expiry sweep deactivated {} and archived {} coupons, pruned {} change rows in {} ms",
+                    deactivated, archived, prunedChanges, (System.nanoTime() - start) / 1_000_000);
+        }
+        return new SweepResult(deactivated, archived, prunedChanges);
+    }
+
+    private int deactivateExpired(LocalDateTime now) {
+        Timestamp cutoff = Timestamp.valueOf(now);
+        long[] range = jdbcTemplate.queryForObject(EXPIRED_RANGE_SQL,
+                (row, rowNum) -> new long[]{row.getLong(1), row.getLong(2)}, cutoff);
+        if (range == null || range[1] == 0) {
+            return 0;
+        }
+        int deactivated = 0;
+        for (long from = range[0]; from <= range[1]; from += properties.getBatchSize()) {
+            deactivated += jdbcTemplate.update(DEACTIVATE_SQL, cutoff, from, from + properties.getBatchSize(), cutoff);
+        }
+        return deactivated;
+    }
+
+    private int archiveInactive(LocalDateTime now) {
+        Timestamp inactiveBefore = Timestamp.valueOf(now.minus(properties.getRetention()));
+        Timestamp archivedAt = Timestamp.valueOf(now);
+        Set<String> merchantIds = new HashSet<>();
+        int archived = 0;
+        long after = 0;
+        while (true) {
+            long lastId = after;
+            List<ArchivedCoupon> batch = transactionTemplate.execute(status -> archiveBatch(lastId, inactiveBefore, archivedAt));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            batch.forEach(coupon -> merchantIds.add(coupon.getMerchantId()));
+            archived += batch.size();
+            after = batch.get(batch.size() - 1).getId();
+        }
+        merchantIds.forEach(couponCodeIndex::invalidate);
+        return archived;
+    }
+
+    /**
+     * Copies the next batch of archivable coupons after {@code after} into the archive and
+     * deletes them. The rows stay locked in between, so a coupon reactivated meanwhile is
+     * neither copied nor deleted.
+     */
+    private List<ArchivedCoupon> archiveBatch(long after, Timestamp inactiveBefore, Timestamp archivedAt) {
+        List<ArchivedCoupon> batch = jdbcTemplate.query(SELECT_ARCHIVABLE_SQL, ARCHIVABLE_ROW,
+                after, inactiveBefore, properties.getBatchSize());
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ARCHIVE_SQL, batch, batch.size(), (statement, coupon) -> {
+            statement.setLong(1, coupon.getId());
+            statement.setString(2, coupon.getMerchantId());
+            statement.setString(3, coupon.getCode());
+            statement.setString(4, coupon.getType().name());
+            statement.setString(5, coupon.getDescription());
+            statement.setBytes(6, coupon.getDetails());
+            statement.setTimestamp(7, toTimestamp(coupon.getExpirationDate()));
+            statement.setBoolean(8, coupon.getSingleUse());
+            statement.setTimestamp(9, toTimestamp(coupon.getCreatedAt()));
+            statement.setTimestamp(10, toTimestamp(coupon.getUpdatedAt()));
+            statement.setTimestamp(11, archivedAt);
+        });
+        int deleted = jdbcTemplate.update(DELETE_ARCHIVED_SQL,
+                batch.get(0).getId(), batch.get(batch.size() - 1).getId(), inactiveBefore);
+        if (deleted != batch.size()) {
+            throw new IllegalStateException("Archived " + batch.size() + " coupons but deleted " + deleted);
+        }
+        return batch;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CouponDTO getArchivedCoupon(String merchantId, Long id) {
+        return archivedCouponRepository.findByIdAndMerchantId(id, merchantId)
+                .map(this::convertToDTO)
+                .orElseThrow(() -> new CouponNotFoundException("Archived coupon not found with id: " + id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CouponDTO> getArchivedCoupons(String merchantId, String code) {
+        return archivedCouponRepository.findByMerchantIdAndCodeOrderByIdAsc(merchantId, CouponCodes.normalize(code)).stream()
+                .map(this::convertToDTO)
+                .toList();
+    }
+
+    private CouponDTO convertToDTO(ArchivedCoupon coupon) {
+        try {
+            return CouponDTO.builder()
+                    .id(coupon.getId())
+                    .merchantId(coupon.getMerchantId())
+                    .code(coupon.getCode())
+                    .type(coupon.getType())
+                    .description(coupon.getDescription())
+                    .details(objectMapper.readTree(Compression.inflate(coupon.getDetails())))
+                    .expirationDate(coupon.getExpirationDate())
+                    .isActive(false)
+                    .singleUse(coupon.getSingleUse())
+                    .createdAt(coupon.getCreatedAt())
+                    .updatedAt(coupon.getUpdatedAt())
+                    .archivedAt(coupon.getArchivedAt())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error parsing coupon details", e);
+        }
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
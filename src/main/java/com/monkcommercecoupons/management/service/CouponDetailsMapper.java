@@ -0,0 +1,89 @@
+package com.monkcommercecoupons.management.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommercecoupons.management.exception.InvalidCouponException;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Converts coupon details between their stored JSON form and the typed
+ * {@link CouponDetails} model. Details are fully validated on the write path,
+ * so the read path used by the evaluators does no defensive checking.
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponDetailsMapper {
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    /**
+     * Deserializes request details into the class for the given coupon type and validates them.
+     *
+     * @throws InvalidCouponException if the details are missing, malformed or violate a constraint
+     */
+    public CouponDetails parseAndValidate(CouponType type, JsonNode details) {
+        if (details == null || details.isNull()) {
+            throw new InvalidCouponException("Coupon details cannot be null");
+        }
+
+        CouponDetails parsed;
+        try {
+            parsed = objectMapper.treeToValue(details, type.getDetailsType());
+        } catch (JsonProcessingException e) {
+            throw new InvalidCouponException("Invalid coupon details: " + e.getOriginalMessage());
+        }
+
+        Set<ConstraintViolation<CouponDetails>> violations = validator.validate(parsed);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .collect(Collectors.joining(", "));
+            throw new InvalidCouponException("Invalid coupon details: " + message);
+        }
+        return parsed;
+    }
+
+    public String toJson(CouponDetails details) {
+        try {
+            return objectMapper.writeValueAsString(details);
+        } catch (JsonProcessingException e) {
+            throw new InvalidCouponException("Invalid coupon details format");
+        }
+    }
+
+    /**
+     * Returns the typed details of a stored coupon, parsing them at most once per entity instance.
+     */
+    public <T extends CouponDetails> T read(Coupon coupon, Class<T> detailsType) {
+        CouponDetails details = coupon.getParsedDetails();
+        if (details == null) {
+            details = read(coupon.getCode(), coupon.getType(), coupon.getDetails());
+            coupon.setParsedDetails(details);
+        }
+        return detailsType.cast(details);
+    }
+
+    /**
+     * Parses stored details read without an entity, such as a row streamed over JDBC.
+     */
+    public CouponDetails read(String code, CouponType type, String details) {
+        try {
+            return objectMapper.readValue(details, type.getDetailsType());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored details of coupon " + code + " are unreadable", e);
+        }
+    }
+}
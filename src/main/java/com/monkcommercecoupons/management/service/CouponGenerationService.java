@@ -0,0 +1,9 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.model.dto.GenerateCouponsRequest;
+import com.monkcommercecoupons.management.model.dto.GenerateCouponsResponse;
+
+public interface CouponGenerationService {
+
+    GenerateCouponsResponse generateCoupons(String merchantId, GenerateCouponsRequest request);
+}
@@ -0,0 +1,220 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.config.CodeGenerationProperties;
+import com.monkcommercecoupons.management.engine.CouponCodeIndex;
+import com.monkcommercecoupons.management.exception.InvalidCouponException;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.dto.GenerateCouponsRequest;
+import com.monkcommercecoupons.management.model.dto.GenerateCouponsResponse;
+import com.monkcommercecoupons.management.util.BloomFilter;
+import com.monkcommercecoupons.management.util.CouponCodes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Mints single-use coupons in bulk without a per-code existence query. The merchant's existing
+ * codes are streamed once into a Bloom filter; a random candidate the filter doesn't know is
+ * certainly free, and only the few it flags are checked, in batched {@code IN} queries. Each
+ * chunk is then inserted as JDBC batches in its own transaction, and the unique index on
+ * (merchant_id, code) still guards against codes created concurrently.
+ */
+@Service
+@Slf4j
+public class CouponGenerationServiceImpl implements CouponGenerationService {
+
+    /**
+     * Letters and digits without the look-alikes 0/O and 1/I; 32 symbols, so each is 5 random bits.
+     */
+    private static final char[] ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789".toCharArray();
+    private static final char SLOT = '?';
+    private static final int MAX_CODES_PER_QUERY = 1_000;
+    /**
+     * Patterns must leave this many unused codes per requested one, so collisions stay rare.
+     */
+    private static final int MIN_SPARE_CAPACITY = 10;
+
+    private static final String INSERT_SQL = "INSERT INTO coupons "
+            + "(merchant_id, code, type, description, details, expiration_date, is_active, single_use, created_at, updated_at, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, TRUE, TRUE, ?, ?, 0)";
+    private static final String FIND_TAKEN_SQL = "SELECT c.code FROM UNNEST(?) AS t(code) "
+            + "JOIN coupons c ON c.merchant_id = ? AND c.code = t.code";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CouponDetailsMapper couponDetailsMapper;
+    private final CouponCodeIndex couponCodeIndex;
+    private final UnknownCouponCodes unknownCouponCodes;
+    private final CodeGenerationProperties properties;
+    private final SecureRandom random = new SecureRandom();
+
+    public CouponGenerationServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                       CouponDetailsMapper couponDetailsMapper, CouponCodeIndex couponCodeIndex,
+                                       UnknownCouponCodes unknownCouponCodes, CodeGenerationProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.couponDetailsMapper = couponDetailsMapper;
+        this.couponCodeIndex = couponCodeIndex;
+        this.unknownCouponCodes = unknownCouponCodes;
+        this.properties = properties;
+    }
+
+    @Override
+    public GenerateCouponsResponse generateCoupons(String merchantId, GenerateCouponsRequest request) {
+        long start = System.nanoTime();
+        int count = request.getCount();
+        String pattern = CouponCodes.normalize(request.getPattern());
+        checkCapacity(pattern, count);
+        CouponDetails details = couponDetailsMapper.parseAndValidate(request.getType(), request.getDetails());
+        Template template = new Template(merchantId, request.getType().name(), request.getDescription(),
+                couponDetailsMapper.toJson(details), request.getExpirationDate());
+
+        BloomFilter existingCodes = loadExistingCodes(merchantId, count);
+        char[] code = pattern.toCharArray();
+        int[] slots = slotsOf(code);
+        byte[] randomBytes = new byte[slots.length];
+        long maxDraws = (long) MIN_SPARE_CAPACITY * count + properties.getChunkSize();
+        long draws = 0;
+        long filterHits = 0;
+        long collisions = 0;
+        int generated = 0;
+
+        try {
+            while (generated < count) {
+                int chunkSize = Math.min(properties.getChunkSize(), count - generated);
+                Set<String> candidates = new LinkedHashSet<>(chunkSize * 2);
+                List<String> flagged = new ArrayList<>();
+                while (candidates.size() < chunkSize) {
+                    if (++draws > maxDraws) {
+                        throw new InvalidCouponException("Pattern " + pattern + " is running out of unused codes after "
+                                + generated + " were generated; add '?' slots");
+                    }
+                    random.nextBytes(randomBytes);
+                    for (int i = 0; i < slots.length; i++) {
+                        code[slots[i]] = ALPHABET[randomBytes[i] & 31];
+                    }
+                    String candidate = new String(code);
+                    if (candidates.add(candidate) && existingCodes.mightContain(candidate)) {
+                        flagged.add(candidate);
+                    }
+                }
+
+                filterHits += flagged.size();
+                List<String> taken = findTaken(merchantId, flagged);
+                collisions += taken.size();
+                taken.forEach(candidates::remove);
+                if (candidates.isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    insert(template, candidates);
+                } catch (DuplicateKeyException e) {
+                    // A code created meanwhile; the chunk rolled back and is drawn again.
+                    log.warn("Generated chunk for merchant {} collided with a concurrent write, retrying", merchantId);
+                    collisions++;
+                    continue;
+                }
+                candidates.forEach(existingCodes::add);
+                generated += candidates.size();
+            }
+        } finally {
+            if (generated > 0) {
+                couponCodeIndex.invalidate(merchantId);
+                unknownCouponCodes.forget(merchantId);
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Generated {} coupons for merchant {} from pattern {} in {} ms ({} filter hits, {} collisions)",
+                generated, merchantId, pattern, elapsedMs, filterHits, collisions);
+        return GenerateCouponsResponse.builder()
+                .generated(generated)
+                .pattern(pattern)
+                .searchPrefix(pattern.substring(0, pattern.indexOf(SLOT)))
+                .filterHits(filterHits)
+                .collisions(collisions)
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+
+    private void checkCapacity(String pattern, int count) {
+        if (count > properties.getMaxCount()) {
+            throw new InvalidCouponException("At most " + properties.getMaxCount() + " coupons can be generated at once");
+        }
+        long slots = pattern.chars().filter(c -> c == SLOT).count();
+        if (slots == 0) {
+            throw new InvalidCouponException("Pattern must contain at least one '?' slot");
+        }
+        // 5 bits per slot; 12 slots already exceed any allowed count.
+        if (slots < 12 && (1L << (5 * slots)) < (long) MIN_SPARE_CAPACITY * count) {
+            throw new InvalidCouponException("Pattern " + pattern + " has too few '?' slots for " + count + " codes");
+        }
+    }
+
+    private BloomFilter loadExistingCodes(String merchantId, int count) {
+        Long existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM coupons WHERE merchant_id = ?", Long.class, merchantId);
+        BloomFilter filter = new BloomFilter(Objects.requireNonNullElse(existing, 0L) + count,
+                properties.getFalsePositiveRate());
+        jdbcTemplate.query("SELECT code FROM coupons WHERE merchant_id = ?",
+                (RowCallbackHandler) row -> filter.add(row.getString(1)), merchantId);
+        return filter;
+    }
+
+    /**
+     * Joins each batch against an array parameter: H2 plans {@code code IN (?, ?, ...)} without
+     * the (merchant_id, code) index, while the join probes it once per code.
+     */
+    private List<String> findTaken(String merchantId, List<String> codes) {
+        List<String> taken = new ArrayList<>();
+        for (int from = 0; from < codes.size(); from += MAX_CODES_PER_QUERY) {
+            Object[] batch = codes.subList(from, Math.min(from + MAX_CODES_PER_QUERY, codes.size())).toArray();
+            taken.addAll(jdbcTemplate.query(FIND_TAKEN_SQL, statement -> {
+                statement.setArray(1, statement.getConnection().createArrayOf("VARCHAR", batch));
+                statement.setString(2, merchantId);
+            }, (row, rowNum) -> row.getString(1)));
+        }
+        return taken;
+    }
+
+    private void insert(Template template, Collection<String> codes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expirationDate = template.expirationDate() != null ? Timestamp.valueOf(template.expirationDate()) : null;
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, codes, properties.getBatchSize(), (statement, code) -> {
+                    statement.setString(1, template.merchantId());
+                    statement.setString(2, code);
+                    statement.setString(3, template.type());
+                    statement.setString(4, template.description());
+                    statement.setString(5, template.details());
+                    statement.setTimestamp(6, expirationDate);
+                    statement.setTimestamp(7, now);
+                    statement.setTimestamp(8, now);
+                }));
+    }
+
+    private static int[] slotsOf(char[] pattern) {
+        int[] slots = new int[pattern.length];
+        int count = 0;
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i] == SLOT) {
+                slots[count++] = i;
+            }
+        }
+        return Arrays.copyOf(slots, count);
+    }
+
+    private record Template(String merchantId, String type, String description, String details,
+                            LocalDateTime expirationDate) {
+    }
+}
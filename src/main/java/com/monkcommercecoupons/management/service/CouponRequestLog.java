@@ -0,0 +1,54 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.config.RequestLogProperties;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes one key=value summary line per sampled evaluation request to the
+ * {@value #LOGGER_NAME} logger. Unsampled requests cost a single random draw;
+ * nothing is formatted or boxed for them.
+ */
+@Component
+public class CouponRequestLog {
+
+    public static final String LOGGER_NAME = "com.monkcommercecoupons.management.requests";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final double sampleRate;
+
+    public CouponRequestLog(RequestLogProperties properties) {
+        this.sampleRate = properties.getRequestSampleRate();
+    }
+
+    public void applicableCoupons(String merchantId, CartDTO cart, int candidates, int applicable, long startNanos) {
+        if (!sampled()) {
+            return;
+        }
+        log.info("endpoint=applicable-coupons merchant={} items={} cartHash={} candidates={} applicable={} micros={}",
+                merchantId, cart.getItems().size(), cart.getCartHash(), candidates, applicable, elapsedMicros(startNanos));
+    }
+
+    public void applyCoupon(String merchantId, Long couponId, CartDTO cart, String outcome, long startNanos) {
+        if (!sampled()) {
+            return;
+        }
+        log.info("endpoint=apply-coupon merchant={} couponId={} items={} cartHash={} outcome={} micros={}",
+                merchantId, couponId, cart.getItems().size(), cart.getCartHash(), outcome, elapsedMicros(startNanos));
+    }
+
+    private boolean sampled() {
+        return sampleRate > 0
+                && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)
+                && log.isInfoEnabled();
+    }
+
+    private static long elapsedMicros(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000;
+    }
+}
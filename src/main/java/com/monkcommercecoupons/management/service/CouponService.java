@@ -4,23 +4,35 @@ import com.monkcommercecoupons.management.model.dto.ApplicableCouponsResponse;
 import com.monkcommercecoupons.management.model.dto.ApplyCouponResponse;
 import com.monkcommercecoupons.management.model.dto.CartRequest;
 import com.monkcommercecoupons.management.model.dto.CouponDTO;
+import com.monkcommercecoupons.management.model.dto.CouponSearchResponse;
+import com.monkcommercecoupons.management.model.dto.PricePreviewRequest;
+import com.monkcommercecoupons.management.model.dto.PricePreviewResponse;
 
 import java.util.List;
 
 public interface CouponService {
 
-    CouponDTO createCoupon(CouponDTO couponDTO);
+    CouponDTO createCoupon(String merchantId, CouponDTO couponDTO);
 
-    List<CouponDTO> getAllCoupons();
+    List<CouponDTO> getAllCoupons(String merchantId);
 
-    CouponDTO getCouponById(Long id);
+    CouponDTO getCouponById(String merchantId, Long id);
 
-    CouponDTO updateCoupon(Long id, CouponDTO couponDTO);
+    CouponSearchResponse searchCoupons(String merchantId, String prefix, String from, String to, String cursor, int limit);
 
-    void deleteCoupon(Long id);
+    CouponDTO updateCoupon(String merchantId, Long id, CouponDTO couponDTO);
 
-    ApplicableCouponsResponse getApplicableCoupons(CartRequest request);
+    void deleteCoupon(String merchantId, Long id);
 
-    ApplyCouponResponse applyCoupon(Long couponId, CartRequest request);
+    ApplicableCouponsResponse getApplicableCoupons(String merchantId, CartRequest request);
+
+    PricePreviewResponse previewPrices(String merchantId, PricePreviewRequest request);
+
+    /**
+     * @param clientKey caller of the apply; only its own duplicates share a result
+     */
+    ApplyCouponResponse applyCoupon(String merchantId, String clientKey, Long couponId, CartRequest request);
+
+    ApplyCouponResponse applyCouponByCode(String merchantId, String clientKey, String code, CartRequest request);
 
 }
@@ -2,14 +2,25 @@ package com.monkcommercecoupons.management.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommercecoupons.management.engine.CompactCouponCatalog;
+import com.monkcommercecoupons.management.engine.CouponChangeFeed;
+import com.monkcommercecoupons.management.engine.CouponCodeIndex;
+import com.monkcommercecoupons.management.engine.CouponEvaluationNetwork;
+import com.monkcommercecoupons.management.engine.ShadowEvaluation;
 import com.monkcommercecoupons.management.exception.CouponNotApplicableException;
 import com.monkcommercecoupons.management.exception.CouponNotFoundException;
 import com.monkcommercecoupons.management.exception.DuplicateCouponCodeException;
 import com.monkcommercecoupons.management.exception.InvalidCouponException;
+import com.monkcommercecoupons.management.exception.InvalidSearchException;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
 import com.monkcommercecoupons.management.model.dto.*;
 import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.enums.ChangeType;
 import com.monkcommercecoupons.management.model.enums.CouponType;
 import com.monkcommercecoupons.management.repository.CouponRepository;
+import com.monkcommercecoupons.management.util.CouponCodes;
+import com.monkcommercecoupons.management.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -17,7 +28,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 
 @Service
@@ -30,28 +44,51 @@ public class CouponServiceImpl implements CouponService{
     private final ProductWiseService productWiseService;
     private final BxGyService bxGyService;
     private final ObjectMapper objectMapper;
+    private final CouponDetailsMapper couponDetailsMapper;
+    private final CouponEvaluationNetwork couponEvaluationNetwork;
+    private final CouponChangeFeed couponChangeFeed;
+    private final CouponRequestLog couponRequestLog;
+    private final RedemptionStatsService redemptionStatsService;
+    private final RedemptionLedger redemptionLedger;
+    private final UnknownCouponCodes unknownCouponCodes;
+    private final CouponCodeIndex couponCodeIndex;
+    private final ShadowEvaluation shadowEvaluation;
+    private final CompactCouponCatalog compactCouponCatalog;
+
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    private final SingleFlight<ApplyKey, ApplyCouponResponse> applyFlights = new SingleFlight<>();
 
     @Override
     @Transactional
-    public CouponDTO createCoupon(CouponDTO couponDTO) {
-        log.info("Creating coupon with code: {}", couponDTO.getCode());
+    public CouponDTO createCoupon(String merchantId, CouponDTO couponDTO) {
+        log.info("Creating coupon with code: {} for merchant: {}", couponDTO.getCode(), merchantId);
 
-        if (couponRepository.existsByCode(couponDTO.getCode())) {
-            throw new DuplicateCouponCodeException(couponDTO.getCode());
+        // Codes are stored normalized, so the unique index also rejects "deal10" next to "DEAL10".
+        String code = CouponCodes.normalize(couponDTO.getCode());
+        if (couponRepository.existsByMerchantIdAndCode(merchantId, code)) {
+            throw new DuplicateCouponCodeException(code);
         }
 
-        validateCouponDetails(couponDTO.getType(), couponDTO.getDetails());
+        CouponDetails details = couponDetailsMapper.parseAndValidate(couponDTO.getType(), couponDTO.getDetails());
 
         Coupon coupon = Coupon.builder()
-                .code(couponDTO.getCode())
+                .merchantId(merchantId)
+                .code(code)
                 .type(couponDTO.getType())
                 .description(couponDTO.getDescription())
-                .details(convertDetailsToJson(couponDTO.getDetails()))
+                .details(couponDetailsMapper.toJson(details))
                 .expirationDate(couponDTO.getExpirationDate())
                 .isActive(couponDTO.getIsActive() != null ? couponDTO.getIsActive() : true)
+                .exclusivityGroup(exclusivityGroup(couponDTO.getExclusivityGroup()))
+                .stackable(couponDTO.getStackable() != null ? couponDTO.getStackable() : true)
+                .priority(couponDTO.getPriority() != null ? couponDTO.getPriority() : 0)
                 .build();
 
         Coupon savedCoupon = couponRepository.save(coupon);
+        couponChangeFeed.record(merchantId, savedCoupon.getId(), ChangeType.CREATED);
+        unknownCouponCodes.forget(merchantId, savedCoupon.getCode());
+        couponCodeIndex.added(merchantId, savedCoupon.getId(), savedCoupon.getCode());
         log.info("Coupon created successfully with id: {}", savedCoupon.getId());
 
         return convertToDTO(savedCoupon);
@@ -59,34 +96,61 @@ public class CouponServiceImpl implements CouponService{
 
     @Override
     @Transactional(readOnly = true)
-    public List<CouponDTO> getAllCoupons() {
-        log.info("Fetching all coupons");
-        return couponRepository.findAll().stream()
+    public List<CouponDTO> getAllCoupons(String merchantId) {
+        log.info("Fetching all coupons for merchant: {}", merchantId);
+        return couponRepository.findByMerchantId(merchantId).stream()
                 .map(this::convertToDTO)
                 .toList();
     }
 
     @Override
     @Transactional(readOnly = true)
-    public CouponDTO getCouponById(Long id) {
+    public CouponDTO getCouponById(String merchantId, Long id) {
         log.info("Fetching coupon with id: {}", id);
-        Coupon coupon = couponRepository.findById(id)
+        Coupon coupon = couponRepository.findByIdAndMerchantId(id, merchantId)
                 .orElseThrow(() -> new CouponNotFoundException(id));
         return convertToDTO(coupon);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CouponSearchResponse searchCoupons(String merchantId, String prefix, String from, String to,
+                                              String cursor, int limit) {
+        if (prefix != null && (from != null || to != null)) {
+            throw new InvalidSearchException("Search either by prefix or by from/to range, not both");
+        }
+        CouponCodeIndex.CodePage page = couponCodeIndex.search(merchantId, prefix, from, to, cursor,
+                Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT)));
+
+        Map<Long, Coupon> coupons = new HashMap<>();
+        couponRepository.findAllById(page.couponIds()).forEach(coupon -> coupons.put(coupon.getId(), coupon));
+        // The index follows code order; a coupon deleted on another instance is simply skipped.
+        List<CouponDTO> results = page.couponIds().stream()
+                .map(coupons::get)
+                .filter(coupon -> coupon != null && merchantId.equals(coupon.getMerchantId()))
+                .map(this::convertToDTO)
+                .toList();
+        return CouponSearchResponse.builder()
+                .coupons(results)
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+
     @Override
     @Transactional
-    public CouponDTO updateCoupon(Long id, CouponDTO couponDTO) {
+    public CouponDTO updateCoupon(String merchantId, Long id, CouponDTO couponDTO) {
         log.info("Updating coupon with id: {}", id);
-        Coupon existingCoupon = couponRepository.findById(id)
+        Coupon existingCoupon = couponRepository.findByIdAndMerchantId(id, merchantId)
                 .orElseThrow(() -> new CouponNotFoundException(id));
 
-        if (couponDTO.getCode() != null && !couponDTO.getCode().equals(existingCoupon.getCode())) {
-            if (couponRepository.existsByCode(couponDTO.getCode())) {
-                throw new DuplicateCouponCodeException(couponDTO.getCode());
+        String code = couponDTO.getCode() != null ? CouponCodes.normalize(couponDTO.getCode()) : null;
+        if (code != null && !code.equals(existingCoupon.getCode())) {
+            if (couponRepository.existsByMerchantIdAndCode(merchantId, code)) {
+                throw new DuplicateCouponCodeException(code);
             }
-            existingCoupon.setCode(couponDTO.getCode());
+            couponCodeIndex.renamed(merchantId, id, existingCoupon.getCode(), code);
+            existingCoupon.setCode(code);
+            unknownCouponCodes.forget(merchantId, code);
         }
 
         if (couponDTO.getDescription() != null) {
@@ -94,8 +158,8 @@ public class CouponServiceImpl implements CouponService{
         }
 
         if (couponDTO.getDetails() != null) {
-            validateCouponDetails(existingCoupon.getType(), couponDTO.getDetails());
-            existingCoupon.setDetails(convertDetailsToJson(couponDTO.getDetails()));
+            CouponDetails details = couponDetailsMapper.parseAndValidate(existingCoupon.getType(), couponDTO.getDetails());
+            existingCoupon.setDetails(couponDetailsMapper.toJson(details));
         }
 
         if (couponDTO.getExpirationDate() != null) {
@@ -106,7 +170,20 @@ public class CouponServiceImpl implements CouponService{
             existingCoupon.setIsActive(couponDTO.getIsActive());
         }
 
+        if (couponDTO.getExclusivityGroup() != null) {
+            existingCoupon.setExclusivityGroup(exclusivityGroup(couponDTO.getExclusivityGroup()));
+        }
+
+        if (couponDTO.getStackable() != null) {
+            existingCoupon.setStackable(couponDTO.getStackable());
+        }
+
+        if (couponDTO.getPriority() != null) {
+            existingCoupon.setPriority(couponDTO.getPriority());
+        }
+
         Coupon updatedCoupon = couponRepository.save(existingCoupon);
+        couponChangeFeed.record(merchantId, updatedCoupon.getId(), ChangeType.UPDATED);
         log.info("Coupon updated successfully with id: {}", updatedCoupon.getId());
 
         return convertToDTO(updatedCoupon);
@@ -114,42 +191,52 @@ public class CouponServiceImpl implements CouponService{
 
     @Override
     @Transactional
-    public void deleteCoupon(Long id) {
+    public void deleteCoupon(String merchantId, Long id) {
         log.info("Deleting coupon with id: {}", id);
-        if (!couponRepository.existsById(id)) {
-            throw new CouponNotFoundException(id);
-        }
+        Coupon coupon = couponRepository.findByIdAndMerchantId(id, merchantId)
+                .orElseThrow(() -> new CouponNotFoundException(id));
         couponRepository.deleteById(id);
+        couponChangeFeed.record(merchantId, id, ChangeType.DELETED);
+        couponCodeIndex.removed(merchantId, id, coupon.getCode());
         log.info("Coupon deleted successfully with id: {}", id);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public ApplicableCouponsResponse getApplicableCoupons(CartRequest request) {
-        log.info("Finding applicable coupons for cart with {} items",
-                request.getCart().getItems().size());
+    public ApplicableCouponsResponse getApplicableCoupons(String merchantId, CartRequest request) {
+        long start = System.nanoTime();
+        if (log.isDebugEnabled()) {
+            log.debug("Finding applicable coupons for cart with {} items", request.getCart().getItems().size());
+        }
 
-        List<Coupon> activeCoupons = couponRepository.findAllActiveCoupons(LocalDateTime.now());
-        List<ApplicableCouponDTO> applicableCoupons = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        if (compactCouponCatalog.isServing()) {
+            compactCouponCatalog.refresh(merchantId, now);
+            CartContext context = CartContext.of(request.getCart(), now);
+            List<ApplicableCouponDTO> applicableCoupons = compactCouponCatalog.applicableCoupons(merchantId, context);
+            couponRequestLog.applicableCoupons(merchantId, context.getCart(), applicableCoupons.size(),
+                    applicableCoupons.size(), start);
+            return ApplicableCouponsResponse.builder()
+                    .applicableCoupons(applicableCoupons)
+                    .build();
+        }
 
-        for (Coupon coupon : activeCoupons) {
-            try {
-                double discount = calculateDiscount(coupon, request.getCart());
-                if (discount > 0) {
-                    applicableCoupons.add(ApplicableCouponDTO.builder()
-                            .couponId(coupon.getId())
-                            .code(coupon.getCode())
-                            .type(coupon.getType())
-                            .discount(Math.round(discount * 100.0) / 100.0)
-                            .description(coupon.getDescription())
-                            .build());
-                }
-            } catch (CouponNotApplicableException e) {
-                log.debug("Coupon {} not applicable: {}", coupon.getCode(), e.getMessage());
+        couponEvaluationNetwork.refresh(merchantId, now);
+        long evaluationStart = System.nanoTime();
+        CartContext context = CartContext.of(request.getCart(), now);
+        List<Coupon> candidates = couponEvaluationNetwork.match(merchantId, context);
+        List<ApplicableCouponDTO> applicableCoupons = new ArrayList<>(candidates.size());
+
+        for (Coupon coupon : candidates) {
+            ApplicableCouponDTO applicable = toApplicableCoupon(coupon, context.getCart());
+            if (applicable != null) {
+                applicableCoupons.add(applicable);
             }
         }
+        applicableCoupons = couponEvaluationNetwork.resolveStacking(merchantId, applicableCoupons);
 
-        log.info("Found {} applicable coupons", applicableCoupons.size());
+        shadowEvaluation.submit(merchantId, context, applicableCoupons, System.nanoTime() - evaluationStart);
+        couponRequestLog.applicableCoupons(merchantId, context.getCart(), candidates.size(), applicableCoupons.size(), start);
         return ApplicableCouponsResponse.builder()
                 .applicableCoupons(applicableCoupons)
                 .build();
@@ -157,24 +244,188 @@ public class CouponServiceImpl implements CouponService{
 
     @Override
     @Transactional(readOnly = true)
-    public ApplyCouponResponse applyCoupon(Long couponId, CartRequest request) {
-        log.info("Applying coupon with id: {}", couponId);
+    public PricePreviewResponse previewPrices(String merchantId, PricePreviewRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean compact = compactCouponCatalog.isServing();
+        if (compact) {
+            compactCouponCatalog.refresh(merchantId, now);
+        } else {
+            couponEvaluationNetwork.refresh(merchantId, now);
+        }
 
-        Coupon coupon = couponRepository.findById(couponId)
-                .orElseThrow(() -> new CouponNotFoundException(couponId));
+        List<ProductPreviewDTO> previews = new ArrayList<>(request.getProducts().size());
+        for (ProductPriceDTO product : request.getProducts()) {
+            int quantity = Objects.requireNonNullElse(product.getQuantity(), 1);
+            CartDTO cart = CartDTO.builder()
+                    .items(List.of(CartItemDTO.builder()
+                            .productId(product.getProductId())
+                            .quantity(quantity)
+                            .price(product.getPrice())
+                            .build()))
+                    .build();
+            CartContext context = CartContext.of(cart, now);
+
+            ApplicableCouponDTO bestProductWise = null;
+            ApplicableCouponDTO bestBxGy = null;
+            List<ApplicableCouponDTO> offers = compact ? compactCouponCatalog.offers(merchantId, context)
+                    : productOffers(merchantId, product.getProductId(), context);
+            for (ApplicableCouponDTO offer : offers) {
+                switch (offer.getType()) {
+                    case PRODUCT_WISE -> bestProductWise = better(bestProductWise, offer);
+                    case BXGY -> bestBxGy = better(bestBxGy, offer);
+                    case CART_WISE -> {
+                        // Cart-wise coupons don't belong to a product.
+                    }
+                }
+            }
 
-        if (!coupon.isValid()) {
-            throw new InvalidCouponException("Coupon is either inactive or expired");
+            previews.add(ProductPreviewDTO.builder()
+                    .productId(product.getProductId())
+                    .price(product.getPrice())
+                    .quantity(quantity)
+                    .bestProductWise(bestProductWise)
+                    .bestBxGy(bestBxGy)
+                    .build());
         }
+        return PricePreviewResponse.builder()
+                .previews(previews)
+                .build();
+    }
 
-        UpdatedCartDTO updatedCart = applyDiscountToCart(coupon, request.getCart());
-        log.info("Coupon applied successfully. Final price: {}", updatedCart.getFinalPrice());
+    private List<ApplicableCouponDTO> productOffers(String merchantId, Long productId, CartContext context) {
+        List<ApplicableCouponDTO> offers = new ArrayList<>();
+        for (Coupon coupon : couponEvaluationNetwork.matchProduct(merchantId, productId, context)) {
+            ApplicableCouponDTO offer = toApplicableCoupon(coupon, context.getCart());
+            if (offer != null) {
+                offers.add(offer);
+            }
+        }
+        return offers;
+    }
 
-        return ApplyCouponResponse.builder()
-                .updatedCart(updatedCart)
-                .build();
+    private static ApplicableCouponDTO better(ApplicableCouponDTO best, ApplicableCouponDTO offer) {
+        return best == null || offer.getDiscount() > best.getDiscount() ? offer : best;
+    }
+
+    @Override
+    public ApplyCouponResponse applyCoupon(String merchantId, String clientKey, Long couponId, CartRequest request) {
+        long start = System.nanoTime();
+        CartDTO cart = request.getCart();
+        // A client's duplicates (retries, double clicks) share one computation and one redemption;
+        // other clients' applies of the same cart are redemptions of their own. Without a transaction here a
+        // waiting duplicate doesn't hold a connection; the repository call opens its own.
+        Long version = !cart.isNormalized() ? null : compactCouponCatalog.isServing()
+                ? compactCouponCatalog.versionOf(merchantId, couponId)
+                : couponEvaluationNetwork.versionOf(merchantId, couponId);
+        if (version == null) {
+            return apply(merchantId, couponId, cart, start);
+        }
+        return applyFlights.execute(new ApplyKey(merchantId, clientKey, couponId, version, cart),
+                () -> apply(merchantId, couponId, cart, start));
+    }
+
+    @Override
+    public ApplyCouponResponse applyCouponByCode(String merchantId, String clientKey, String code, CartRequest request) {
+        Long couponId;
+        if (compactCouponCatalog.isServing()) {
+            compactCouponCatalog.refresh(merchantId, LocalDateTime.now());
+            couponId = compactCouponCatalog.findCouponId(merchantId, code);
+        } else {
+            couponEvaluationNetwork.refresh(merchantId, LocalDateTime.now());
+            couponId = couponEvaluationNetwork.findCouponId(merchantId, code);
+        }
+        if (couponId == null) {
+            couponId = findCouponIdOutsideCatalog(merchantId, code);
+        }
+        return applyCoupon(merchantId, clientKey, couponId, request);
+    }
+
+    /**
+     * A code missing from the catalog belongs to a single-use, inactive or expired coupon, or to
+     * none. Only the last case is remembered, so guesses and typos stop reaching the database.
+     * Codes are stored normalized, so the lookup is an exact match on the merchant/code index.
+     */
+    private Long findCouponIdOutsideCatalog(String merchantId, String code) {
+        if (unknownCouponCodes.contains(merchantId, code)) {
+            throw new CouponNotFoundException("Coupon not found with code: " + code);
+        }
+        return couponRepository.findByMerchantIdAndCode(merchantId, CouponCodes.normalize(code))
+                .map(Coupon::getId)
+                .orElseThrow(() -> {
+                    unknownCouponCodes.add(merchantId, code);
+                    return new CouponNotFoundException("Coupon not found with code: " + code);
+                });
+    }
+
+    private ApplyCouponResponse apply(String merchantId, Long couponId, CartDTO cart, long start) {
+        String outcome = "not_found";
+        try {
+            Coupon coupon = couponRepository.findByIdAndMerchantId(couponId, merchantId)
+                    .orElseThrow(() -> new CouponNotFoundException(couponId));
+
+            if (!coupon.isValid()) {
+                outcome = "invalid";
+                throw new InvalidCouponException("Coupon is either inactive or expired");
+            }
+
+            outcome = "not_applicable";
+            UpdatedCartDTO updatedCart = applyDiscountToCart(coupon, CartContext.of(cart, LocalDateTime.now()));
+            boolean used = Boolean.TRUE.equals(coupon.getSingleUse());
+            if (used && couponRepository.markUsed(couponId) == 0) {
+                outcome = "used";
+                throw new InvalidCouponException("Coupon has already been used");
+            }
+            outcome = "unrecorded";
+            // Answer only once the redemption is committed; concurrent applies share the commit.
+            // A code used up by a redemption that wasn't recorded is released for the retry.
+            try {
+                redemptionLedger.recordAndWait(merchantId, couponId, updatedCart);
+            } catch (RuntimeException e) {
+                if (used) {
+                    couponRepository.release(couponId);
+                }
+                throw e;
+            }
+            redemptionStatsService.recordRedemption(merchantId, couponId, updatedCart.getTotalDiscount());
+            outcome = "applied";
+            if (log.isDebugEnabled()) {
+                log.debug("Coupon {} applied. Final price: {}", couponId, updatedCart.getFinalPrice());
+            }
+
+            return ApplyCouponResponse.builder()
+                    .updatedCart(updatedCart)
+                    .build();
+        } finally {
+            couponRequestLog.applyCoupon(merchantId, couponId, cart, outcome, start);
+        }
     }
 
+    /**
+     * Describes a matched coupon with its discount for the cart, or returns null when it gives none.
+     */
+    private ApplicableCouponDTO toApplicableCoupon(Coupon coupon, CartDTO cart) {
+        try {
+            double discount = calculateDiscount(coupon, cart);
+            if (discount > 0) {
+                return ApplicableCouponDTO.builder()
+                        .couponId(coupon.getId())
+                        .code(coupon.getCode())
+                        .type(coupon.getType())
+                        .discount(Math.round(discount * 100.0) / 100.0)
+                        .description(coupon.getDescription())
+                        .build();
+            }
+        } catch (CouponNotApplicableException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Coupon {} not applicable: {}", coupon.getCode(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes the discount of a coupon whose conditions have already been matched by the evaluation network.
+     */
     private double calculateDiscount(Coupon coupon, CartDTO cart) {
         return switch (coupon.getType()) {
             case CART_WISE -> cartWiseService.calculateDiscount(coupon, cart);
@@ -183,7 +434,9 @@ public class CouponServiceImpl implements CouponService{
         };
     }
 
-    private UpdatedCartDTO applyDiscountToCart(Coupon coupon, CartDTO cart) {
+    private UpdatedCartDTO applyDiscountToCart(Coupon coupon, CartContext context) {
+        checkConditions(coupon, context);
+        CartDTO cart = context.getCart();
         return switch (coupon.getType()) {
             case CART_WISE -> cartWiseService.applyDiscount(coupon, cart);
             case PRODUCT_WISE -> productWiseService.applyDiscount(coupon, cart);
@@ -191,30 +444,31 @@ public class CouponServiceImpl implements CouponService{
         };
     }
 
-    private void validateCouponDetails(CouponType type, Object details) {
-        if (details == null) {
-            throw new InvalidCouponException("Coupon details cannot be null");
+    private void checkConditions(Coupon coupon, CartContext context) {
+        if (!couponDetailsMapper.read(coupon, CouponDetails.class).conditionsMet(context)) {
+            throw new CouponNotApplicableException("Cart does not meet the conditions of coupon " + coupon.getCode());
         }
     }
 
-    private String convertDetailsToJson(Object details) {
-        try {
-            return objectMapper.writeValueAsString(details);
-        } catch (JsonProcessingException e) {
-            throw new InvalidCouponException("Invalid coupon details format");
-        }
+    private static String exclusivityGroup(String group) {
+        return group == null || group.isBlank() ? null : group.strip();
     }
 
     private CouponDTO convertToDTO(Coupon coupon) {
         try {
             return CouponDTO.builder()
                     .id(coupon.getId())
+                    .merchantId(coupon.getMerchantId())
                     .code(coupon.getCode())
                     .type(coupon.getType())
                     .description(coupon.getDescription())
                     .details(objectMapper.readTree(coupon.getDetails()))
                     .expirationDate(coupon.getExpirationDate())
                     .isActive(coupon.getIsActive())
+                    .singleUse(coupon.getSingleUse())
+                    .exclusivityGroup(coupon.getExclusivityGroup())
+                    .stackable(coupon.getStackable())
+                    .priority(coupon.getPriority())
                     .createdAt(coupon.getCreatedAt())
                     .updatedAt(coupon.getUpdatedAt())
                     .build();
@@ -222,4 +476,27 @@ public class CouponServiceImpl implements CouponService{
             throw new RuntimeException("Error parsing coupon details", e);
         }
     }
+
+    /**
+     * Identifies apply calls that must produce the same response. Hashing uses the normalized
+     * cart's content hash; equality still compares the lines so a hash collision can't share a result.
+     */
+    private record ApplyKey(String merchantId, String clientKey, Long couponId, Long version, CartDTO cart) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ApplyKey key
+                    && couponId.equals(key.couponId)
+                    && version.equals(key.version)
+                    && merchantId.equals(key.merchantId)
+                    && clientKey.equals(key.clientKey)
+                    && cart.getCartHash().equals(key.cart.getCartHash())
+                    && cart.getItems().equals(key.cart.getItems());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(couponId, clientKey, version, cart.getCartHash());
+        }
+    }
 }
@@ -0,0 +1,9 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.model.dto.CouponDTO;
+import com.monkcommercecoupons.management.model.dto.SimulationResponse;
+
+public interface CouponSimulationService {
+
+    SimulationResponse simulate(String merchantId, CouponDTO draft);
+}
@@ -0,0 +1,292 @@
+package com.monkcommercecoupons.management.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.monkcommercecoupons.management.config.SimulationProperties;
+import com.monkcommercecoupons.management.exception.CorpusUnavailableException;
+import com.monkcommercecoupons.management.exception.CouponNotApplicableException;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import com.monkcommercecoupons.management.model.dto.CouponDTO;
+import com.monkcommercecoupons.management.model.dto.SimulationResponse;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs a draft coupon through the regular evaluators against every cart of the corpus file.
+ * The file is streamed: the calling thread reads chunks of lines and hands them to a
+ * fork/join pool, which parses and evaluates them in parallel and sums per-chunk tallies.
+ * At most two chunks per worker are in flight, so memory stays flat however long the file is.
+ */
+@Service
+@Slf4j
+public class CouponSimulationServiceImpl implements CouponSimulationService {
+
+    /**
+     * Upper bounds of the discount ranges reported in the distribution; the last range is open.
+     */
+    private static final double[] BUCKET_BOUNDS = {1, 5, 10, 25, 50, 100, 250, 500, 1000};
+    /**
+     * Lines a worker evaluates without splitting the work further.
+     */
+    private static final int SPLIT_THRESHOLD = 256;
+
+    private final CouponDetailsMapper couponDetailsMapper;
+    private final CartWiseService cartWiseService;
+    private final ProductWiseService productWiseService;
+    private final BxGyService bxGyService;
+    private final CartNormalizer cartNormalizer;
+    private final SimulationProperties properties;
+    private final ObjectReader lineReader;
+    private final ForkJoinPool pool;
+
+    public CouponSimulationServiceImpl(CouponDetailsMapper couponDetailsMapper, CartWiseService cartWiseService,
+                                       ProductWiseService productWiseService, BxGyService bxGyService,
+                                       CartNormalizer cartNormalizer, ObjectMapper objectMapper,
+                                       SimulationProperties properties) {
+        this.couponDetailsMapper = couponDetailsMapper;
+        this.cartWiseService = cartWiseService;
+        this.productWiseService = productWiseService;
+        this.bxGyService = bxGyService;
+        this.cartNormalizer = cartNormalizer;
+        this.properties = properties;
+        this.lineReader = objectMapper.readerFor(CorpusLine.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.pool = new ForkJoinPool(properties.getParallelism() > 0
+                ? properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public SimulationResponse simulate(String merchantId, CouponDTO draft) {
+        long start = System.nanoTime();
+        Path corpus = properties.getCorpusFile();
+        if (corpus == null || !Files.isReadable(corpus)) {
+            throw new CorpusUnavailableException(corpus == null
+                    ? "No cart corpus configured (coupons.simulation.corpus-file)"
+                    : "Cart corpus " + corpus + " is not readable");
+        }
+
+        CouponDetails details = couponDetailsMapper.parseAndValidate(draft.getType(), draft.getDetails());
+        Coupon coupon = Coupon.builder()
+                .merchantId(merchantId)
+                .code(draft.getCode())
+                .type(draft.getType())
+                .details(couponDetailsMapper.toJson(details))
+                .build();
+        coupon.setParsedDetails(details);
+        Evaluation evaluation = new Evaluation(merchantId, coupon, details, LocalDateTime.now());
+
+        Tally total = new Tally();
+        Deque<ForkJoinTask<Tally>> inFlight = new ArrayDeque<>();
+        int maxInFlight = pool.getParallelism() * 2;
+        try (BufferedReader reader = Files.newBufferedReader(corpus)) {
+            List<String> chunk = new ArrayList<>(properties.getChunkSize());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(line);
+                if (chunk.size() == properties.getChunkSize()) {
+                    inFlight.add(pool.submit(new EvaluateLines(evaluation, chunk, 0, chunk.size())));
+                    chunk = new ArrayList<>(properties.getChunkSize());
+                    if (inFlight.size() >= maxInFlight) {
+                        total.merge(inFlight.poll().join());
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(pool.submit(new EvaluateLines(evaluation, chunk, 0, chunk.size())));
+            }
+            while (!inFlight.isEmpty()) {
+                total.merge(inFlight.poll().join());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read cart corpus " + corpus, e);
+        } finally {
+            inFlight.forEach(task -> task.cancel(true));
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Simulated {} coupon {} over {} carts in {} ms: {} hits, {} total discount",
+                draft.getType(), draft.getCode(), total.carts, elapsedMs, total.hits, round(total.discount));
+        return toResponse(total, elapsedMs);
+    }
+
+    private double discountOf(Evaluation evaluation, CartDTO cart, LocalDateTime at) {
+        if (!evaluation.details().conditionsMet(CartContext.of(cart, at))) {
+            return 0;
+        }
+        try {
+            return switch (evaluation.coupon().getType()) {
+                case CART_WISE -> cartWiseService.calculateDiscount(evaluation.coupon(), cart);
+                case PRODUCT_WISE -> productWiseService.calculateDiscount(evaluation.coupon(), cart);
+                case BXGY -> bxGyService.calculateDiscount(evaluation.coupon(), cart);
+            };
+        } catch (CouponNotApplicableException e) {
+            return 0;
+        }
+    }
+
+    private void evaluate(Evaluation evaluation, String line, Tally tally) {
+        CorpusLine parsed;
+        try {
+            parsed = lineReader.readValue(line);
+        } catch (IOException e) {
+            tally.skipped++;
+            return;
+        }
+        CartDTO cart = parsed.cart() != null ? parsed.cart() : CartDTO.builder().items(parsed.items()).build();
+        if (!isUsable(cart) || (parsed.merchant() != null && !parsed.merchant().equals(evaluation.merchantId()))) {
+            tally.skipped++;
+            return;
+        }
+        cart = cartNormalizer.normalize(cart);
+        LocalDateTime at = parsed.timestamp() != null ? parsed.timestamp() : evaluation.now();
+        tally.add(cart.getTotalPrice(), discountOf(evaluation, cart, at));
+    }
+
+    private static boolean isUsable(CartDTO cart) {
+        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+            return false;
+        }
+        for (CartItemDTO item : cart.getItems()) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() < 1
+                    || item.getPrice() == null || item.getPrice() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static SimulationResponse toResponse(Tally tally, long elapsedMs) {
+        List<SimulationResponse.Bucket> distribution = new ArrayList<>(tally.buckets.length);
+        for (int i = 0; i < tally.buckets.length; i++) {
+            distribution.add(SimulationResponse.Bucket.builder()
+                    .from(i == 0 ? 0 : BUCKET_BOUNDS[i - 1])
+                    .to(i < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[i] : null)
+                    .carts(tally.buckets[i])
+                    .build());
+        }
+        return SimulationResponse.builder()
+                .carts(tally.carts)
+                .skipped(tally.skipped)
+                .hits(tally.hits)
+                .hitRate(tally.carts > 0 ? Math.round(10_000.0 * tally.hits / tally.carts) / 10_000.0 : 0.0)
+                .totalDiscount(round(tally.discount))
+                .totalCartValue(round(tally.cartValue))
+                .averageDiscount(tally.hits > 0 ? round(tally.discount / tally.hits) : 0.0)
+                .maxDiscount(round(tally.maxDiscount))
+                .distribution(distribution)
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * Evaluates lines [from, to) of a chunk, splitting in halves down to {@link #SPLIT_THRESHOLD}.
+     */
+    private final class EvaluateLines extends RecursiveTask<Tally> {
+
+        private final Evaluation evaluation;
+        private final List<String> lines;
+        private final int from;
+        private final int to;
+
+        private EvaluateLines(Evaluation evaluation, List<String> lines, int from, int to) {
+            this.evaluation = evaluation;
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                EvaluateLines right = new EvaluateLines(evaluation, lines, mid, to);
+                right.fork();
+                Tally tally = new EvaluateLines(evaluation, lines, from, mid).compute();
+                tally.merge(right.join());
+                return tally;
+            }
+            Tally tally = new Tally();
+            for (int i = from; i < to; i++) {
+                evaluate(evaluation, lines.get(i), tally);
+            }
+            return tally;
+        }
+    }
+
+    private record Evaluation(String merchantId, Coupon coupon, CouponDetails details, LocalDateTime now) {
+    }
+
+    /**
+     * One corpus line: a bare cart, or a cart wrapped with where and when it was seen.
+     */
+    private record CorpusLine(CartDTO cart, List<CartItemDTO> items, String merchant, LocalDateTime timestamp) {
+    }
+
+    private static final class Tally {
+        private long carts;
+        private long skipped;
+        private long hits;
+        private double discount;
+        private double cartValue;
+        private double maxDiscount;
+        private final long[] buckets = new long[BUCKET_BOUNDS.length + 1];
+
+        void add(double cartTotal, double cartDiscount) {
+            carts++;
+            cartValue += cartTotal;
+            if (cartDiscount <= 0) {
+                return;
+            }
+            hits++;
+            discount += cartDiscount;
+            maxDiscount = Math.max(maxDiscount, cartDiscount);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && cartDiscount >= BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+
+        void merge(Tally other) {
+            carts += other.carts;
+            skipped += other.skipped;
+            hits += other.hits;
+            discount += other.discount;
+            cartValue += other.cartValue;
+            maxDiscount = Math.max(maxDiscount, other.maxDiscount);
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += other.buckets[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.config.LedgerProperties;
+import com.monkcommercecoupons.management.exception.ServiceOverloadedException;
+import com.monkcommercecoupons.management.model.dto.UpdatedCartDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Durable audit trail of applied coupons. Callers queue a redemption and get a future that
+ * completes once it is committed; a single writer thread inserts whatever is queued as one JDBC
+ * batch in one transaction, so concurrent applies share a commit instead of paying one each.
+ */
+@Component
+@Slf4j
+public class RedemptionLedger {
+
+    private static final String INSERT_SQL = "INSERT INTO coupon_redemptions "
+            + "(merchant_id, coupon_id, total_price, total_discount, final_price, redeemed_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerProperties properties;
+    private final BlockingQueue<Entry> queue;
+    private final DistributionSummary groupSizes;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public RedemptionLedger(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            LedgerProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Bounds the insert a caller past its commit timeout still waits for.
+        this.transactionTemplate.setTimeout((int) Math.max(1, properties.getCommitTimeout().toSeconds()));
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.groupSizes = DistributionSummary.builder("coupons.ledger.group.size")
+                .description("Redemptions committed together")
+                .register(meterRegistry);
+        Gauge.builder("coupons.ledger.queue.depth", queue, BlockingQueue::size)
+                .description("Redemptions waiting to be committed")
+                .register(meterRegistry);
+        this.writer = new Thread(this::run, "redemption-ledger");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        writer.start();
+    }
+
+    /**
+     * Drains the queue before the data source goes away.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queues a redemption, waiting up to {@code enqueue-timeout} for room when the writer is behind.
+     *
+     * @return completes when the redemption is committed, or exceptionally if the insert failed
+     */
+    public CompletableFuture<Void> record(String merchantId, Long couponId, UpdatedCartDTO cart) {
+        return enqueue(merchantId, couponId, cart).completion();
+    }
+
+    /**
+     * Queues a redemption and waits up to {@code commit-timeout} for it to be committed. A
+     * redemption still queued by then is withdrawn, so it is certain not to be committed later.
+     *
+     * @throws ServiceOverloadedException if the redemption couldn't be queued, was withdrawn or
+     *                                    failed to insert
+     */
+    public void recordAndWait(String merchantId, Long couponId, UpdatedCartDTO cart) {
+        Entry entry = enqueue(merchantId, couponId, cart);
+        try {
+            entry.completion().get(properties.getCommitTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            return;
+        } catch (ExecutionException e) {
+            throw notRecorded(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            // Withdrawn below unless the writer has taken it.
+        }
+        if (queue.remove(entry)) {
+            throw new ServiceOverloadedException("Redemption ledger is backlogged, retry shortly");
+        }
+        // The writer is inserting it, within the transaction timeout; the outcome has to be known
+        // before the caller answers.
+        try {
+            entry.completion().join();
+        } catch (CompletionException e) {
+            throw notRecorded(e.getCause());
+        }
+    }
+
+    private static ServiceOverloadedException notRecorded(Throwable cause) {
+        return new ServiceOverloadedException("Redemption could not be recorded, retry shortly", cause);
+    }
+
+    private Entry enqueue(String merchantId, Long couponId, UpdatedCartDTO cart) {
+        Entry entry = new Entry(merchantId, couponId, cart.getTotalPrice(), cart.getTotalDiscount(),
+                cart.getFinalPrice(), Timestamp.valueOf(LocalDateTime.now()), new CompletableFuture<>());
+        boolean queued;
+        try {
+            queued = running && queue.offer(entry, properties.getEnqueueTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            throw new ServiceOverloadedException("Redemption ledger is backlogged, retry shortly");
+        }
+        return entry;
+    }
+
+    private void run() {
+        int maxGroupSize = properties.getMaxGroupSize();
+        long maxGroupDelayNanos = properties.getMaxGroupDelay().toNanos();
+        List<Entry> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - group.size());
+                long deadline = System.nanoTime() + maxGroupDelayNanos;
+                while (running && group.size() < maxGroupSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    // Short polls so stop() is noticed even with a long group delay.
+                    Entry next = queue.poll(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        group.add(next);
+                        queue.drainTo(group, maxGroupSize - group.size());
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Only stop() ends the writer; whatever was collected is still committed below.
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Entry> group) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, group, group.size(), (statement, entry) -> {
+                        statement.setString(1, entry.merchantId());
+                        statement.setLong(2, entry.couponId());
+                        statement.setDouble(3, entry.totalPrice());
+                        statement.setDouble(4, entry.totalDiscount());
+                        statement.setDouble(5, entry.finalPrice());
+                        statement.setTimestamp(6, entry.redeemedAt());
+                    }));
+        } catch (RuntimeException e) {
+            log.error("Failed to commit {} redemptions", group.size(), e);
+            group.forEach(entry -> entry.completion().completeExceptionally(e));
+            return;
+        }
+        groupSizes.record(group.size());
+        group.forEach(entry -> entry.completion().complete(null));
+    }
+
+    private record Entry(String merchantId, Long couponId, double totalPrice, double totalDiscount,
+                         double finalPrice, Timestamp redeemedAt, CompletableFuture<Void> completion) {
+    }
+}
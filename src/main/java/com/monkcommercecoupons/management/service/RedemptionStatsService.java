@@ -0,0 +1,16 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.model.dto.RedemptionStatsDTO;
+
+import java.util.List;
+
+public interface RedemptionStatsService {
+
+    void recordRedemption(String merchantId, Long couponId, double discount);
+
+    int flush();
+
+    List<RedemptionStatsDTO> getStats(String merchantId);
+
+    RedemptionStatsDTO getStats(String merchantId, Long couponId);
+}
@@ -0,0 +1,212 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.config.RedemptionStatsProperties;
+import com.monkcommercecoupons.management.exception.CouponNotFoundException;
+import com.monkcommercecoupons.management.model.dto.RedemptionStatsDTO;
+import com.monkcommercecoupons.management.model.entity.CouponRedemptionStats;
+import com.monkcommercecoupons.management.repository.CouponRedemptionStatsRepository;
+import com.monkcommercecoupons.management.repository.CouponRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts redemptions in memory and writes them behind: recording is two adder increments, and
+ * the accumulated deltas are upserted in JDBC batches on a timer and at shutdown. Reads add the
+ * deltas not flushed yet, so the endpoint is current even between flushes.
+ *
+ * <p>A coupon's accumulator is dropped once two flushes in a row found nothing to write, so only
+ * recently redeemed coupons are held. A dropped accumulator is drained once more by the next
+ * flush, in case a redemption looked it up just before it was dropped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RedemptionStatsServiceImpl implements RedemptionStatsService {
+
+    private static final String UPSERT_SQL = """
+            MERGE INTO coupon_redemption_stats t
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR(50)), CAST(? AS BIGINT),
+                           CAST(? AS DOUBLE PRECISION), CAST(? AS TIMESTAMP)))
+                AS s(coupon_id, merchant_id, redemptions, total_discount, flushed_at)
+            ON t.coupon_id = s.coupon_id
+            WHEN MATCHED THEN UPDATE SET
+                redemptions = t.redemptions + s.redemptions,
+                total_discount = t.total_discount + s.total_discount,
+                last_flushed_at = s.flushed_at
+            WHEN NOT MATCHED THEN INSERT (coupon_id, merchant_id, redemptions, total_discount, last_flushed_at)
+                VALUES (s.coupon_id, s.merchant_id, s.redemptions, s.total_discount, s.flushed_at)
+            """;
+
+    private final CouponRedemptionStatsRepository statsRepository;
+    private final CouponRepository couponRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final RedemptionStatsProperties properties;
+
+    private final Map<Long, Accumulator> pending = new ConcurrentHashMap<>();
+    private List<Retired> retired = new ArrayList<>();
+
+    @Override
+    public void recordRedemption(String merchantId, Long couponId, double discount) {
+        Accumulator accumulator = pending.get(couponId);
+        if (accumulator == null) {
+            accumulator = pending.computeIfAbsent(couponId, id -> new Accumulator(merchantId));
+        }
+        accumulator.redemptions.increment();
+        accumulator.discount.add(discount);
+    }
+
+    @Scheduled(fixedDelayString = "${coupons.stats.flush-interval:PT5S}", initialDelayString = "${coupons.stats.flush-interval:PT5S}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        int flushed = flush();
+        log.info("Flushed redemption stats for {} coupons at shutdown", flushed);
+    }
+
+    /**
+     * Moves the accumulated deltas to the database. Deltas that fail to write are added back.
+     */
+    @Override
+    public synchronized int flush() {
+        List<Delta> deltas = new ArrayList<>();
+        List<Retired> draining = retired;
+        retired = new ArrayList<>();
+        draining.forEach(dropped -> drain(dropped.couponId(), dropped.accumulator(), deltas, true));
+        pending.forEach((couponId, accumulator) -> {
+            if (drain(couponId, accumulator, deltas, false)) {
+                accumulator.idle = false;
+            } else if (!accumulator.idle) {
+                accumulator.idle = true;
+            } else if (pending.remove(couponId, accumulator)) {
+                retired.add(new Retired(couponId, accumulator));
+            }
+        });
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp flushedAt = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, deltas, properties.getBatchSize(), (statement, delta) -> {
+                statement.setLong(1, delta.couponId());
+                statement.setString(2, delta.accumulator().merchantId);
+                statement.setLong(3, delta.redemptions());
+                statement.setDouble(4, delta.discount());
+                statement.setTimestamp(5, flushedAt);
+            });
+        } catch (DataAccessException e) {
+            deltas.forEach(delta -> {
+                delta.accumulator().redemptions.add(delta.redemptions());
+                delta.accumulator().discount.add(delta.discount());
+                if (delta.retired()) {
+                    retired.add(new Retired(delta.couponId(), delta.accumulator()));
+                }
+            });
+            log.warn("Redemption stats flush failed, keeping {} deltas for the next attempt", deltas.size(), e);
+            return 0;
+        }
+        log.debug("Flushed redemption stats for {} coupons", deltas.size());
+        return deltas.size();
+    }
+
+    /**
+     * Moves what the accumulator holds into a delta.
+     *
+     * @return whether there was anything to move
+     */
+    private static boolean drain(Long couponId, Accumulator accumulator, List<Delta> deltas, boolean retired) {
+        long redemptions = accumulator.redemptions.sumThenReset();
+        double discount = accumulator.discount.sumThenReset();
+        if (redemptions == 0 && discount == 0) {
+            return false;
+        }
+        deltas.add(new Delta(couponId, accumulator, redemptions, discount, retired));
+        return true;
+    }
+
+    @Override
+    public List<RedemptionStatsDTO> getStats(String merchantId) {
+        Map<Long, RedemptionStatsDTO> stats = new TreeMap<>();
+        for (CouponRedemptionStats row : statsRepository.findByMerchantId(merchantId)) {
+            stats.put(row.getCouponId(), toDTO(row.getCouponId(), row.getRedemptions(), row.getTotalDiscount()));
+        }
+        pending.forEach((couponId, accumulator) -> {
+            if (merchantId.equals(accumulator.merchantId)) {
+                RedemptionStatsDTO flushed = stats.get(couponId);
+                stats.put(couponId, withPending(couponId, flushed, accumulator));
+            }
+        });
+        stats.values().removeIf(dto -> dto.getRedemptions() == 0);
+        return List.copyOf(stats.values());
+    }
+
+    @Override
+    public RedemptionStatsDTO getStats(String merchantId, Long couponId) {
+        if (!couponRepository.existsByIdAndMerchantId(couponId, merchantId)) {
+            throw new CouponNotFoundException(couponId);
+        }
+        RedemptionStatsDTO flushed = statsRepository.findByCouponIdAndMerchantId(couponId, merchantId)
+                .map(row -> toDTO(couponId, row.getRedemptions(), row.getTotalDiscount()))
+                .orElse(null);
+        Accumulator accumulator = pending.get(couponId);
+        return accumulator != null
+                ? withPending(couponId, flushed, accumulator)
+                : Objects.requireNonNullElseGet(flushed, () -> toDTO(couponId, 0, 0));
+    }
+
+    private static RedemptionStatsDTO withPending(Long couponId, RedemptionStatsDTO flushed, Accumulator accumulator) {
+        long redemptions = accumulator.redemptions.sum();
+        double discount = accumulator.discount.sum();
+        if (flushed != null) {
+            redemptions += flushed.getRedemptions();
+            discount += flushed.getTotalDiscount();
+        }
+        return toDTO(couponId, redemptions, discount);
+    }
+
+    private static RedemptionStatsDTO toDTO(Long couponId, long redemptions, double totalDiscount) {
+        return RedemptionStatsDTO.builder()
+                .couponId(couponId)
+                .redemptions(redemptions)
+                .totalDiscount(round(totalDiscount))
+                .averageDiscount(redemptions > 0 ? round(totalDiscount / redemptions) : 0.0)
+                .build();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static final class Accumulator {
+        private final String merchantId;
+        private final LongAdder redemptions = new LongAdder();
+        private final DoubleAdder discount = new DoubleAdder();
+        /** The previous flush found nothing to write; only read and written by flushes. */
+        private boolean idle;
+
+        private Accumulator(String merchantId) {
+            this.merchantId = merchantId;
+        }
+    }
+
+    private record Delta(Long couponId, Accumulator accumulator, long redemptions, double discount, boolean retired) {
+    }
+
+    private record Retired(Long couponId, Accumulator accumulator) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.config.CouponCodeProperties;
+import com.monkcommercecoupons.management.util.CouponCodes;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, expiring memory of codes that matched no coupon, so repeated guesses and typos are
+ * answered without a database query. Writes on this instance forget the code at once.
+ */
+@Component
+public class UnknownCouponCodes {
+
+    private final long ttlNanos;
+    private final Map<String, Long> expiries;
+
+    public UnknownCouponCodes(CouponCodeProperties properties) {
+        this.ttlNanos = properties.getNegativeCacheTtl().toNanos();
+        int maxSize = properties.getNegativeCacheSize();
+        this.expiries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized boolean contains(String merchantId, String code) {
+        String key = key(merchantId, code);
+        Long expiry = expiries.get(key);
+        if (expiry == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiry > 0) {
+            expiries.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void add(String merchantId, String code) {
+        expiries.put(key(merchantId, code), System.nanoTime() + ttlNanos);
+    }
+
+    public synchronized void forget(String merchantId, String code) {
+        expiries.remove(key(merchantId, code));
+    }
+
+    /**
+     * Forgets every code of the merchant, after codes were created in bulk.
+     */
+    public synchronized void forget(String merchantId) {
+        String prefix = merchantId + '\u0000';
+        expiries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public synchronized int size() {
+        return expiries.size();
+    }
+
+    private static String key(String merchantId, String code) {
+        return merchantId + '\u0000' + CouponCodes.normalize(code);
+    }
+}
@@ -0,0 +1,30 @@
+package com.monkcommercecoupons.management.startup;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Outcome of the startup warm-up phase, exposed under {@code warmup} in {@code /actuator/info}.
+ */
+@Value
+@Builder
+public class WarmupReport {
+
+    long durationMillis;
+
+    int activeCoupons;
+
+    int evaluatorIterations;
+
+    /**
+     * Path the latency was measured on: {@code http} against the local server, or
+     * {@code service} when no web server is running (e.g. mock MVC tests).
+     */
+    String measuredPath;
+
+    double p50Micros;
+
+    double p99Micros;
+
+    double maxMicros;
+}
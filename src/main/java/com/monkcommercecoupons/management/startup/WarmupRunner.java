@@ -0,0 +1,266 @@
+package com.monkcommercecoupons.management.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommercecoupons.management.config.WarmupProperties;
+import com.monkcommercecoupons.management.engine.CompactCouponCatalog;
+import com.monkcommercecoupons.management.engine.CouponEvaluationNetwork;
+import com.monkcommercecoupons.management.exception.CouponNotApplicableException;
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponsResponse;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import com.monkcommercecoupons.management.model.dto.CartRequest;
+import com.monkcommercecoupons.management.model.dto.UpdatedCartDTO;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.service.BxGyService;
+import com.monkcommercecoupons.management.service.CartNormalizer;
+import com.monkcommercecoupons.management.service.CartWiseService;
+import com.monkcommercecoupons.management.service.CouponService;
+import com.monkcommercecoupons.management.service.ProductWiseService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Warms the checkout path before the application reports ready. Spring Boot only publishes
+ * {@code ReadinessState.ACCEPTING_TRAFFIC} after all application runners have returned, so the
+ * readiness probe stays OUT_OF_SERVICE while this runs.
+ *
+ * <p>The phase preloads the active catalog into the engine serving it, pushes synthetic carts
+ * through every evaluator so they get JIT-compiled, then drives {@code /applicable-coupons}
+ * through the real HTTP and Jackson stack and reports the latency it ends up with.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WarmupRunner implements ApplicationRunner, InfoContributor {
+
+    private static final long SEED = 42L;
+    private static final int PRODUCT_RANGE = 50;
+
+    private final WarmupProperties properties;
+    private final CouponEvaluationNetwork couponEvaluationNetwork;
+    private final CompactCouponCatalog compactCouponCatalog;
+    private final CartWiseService cartWiseService;
+    private final ProductWiseService productWiseService;
+    private final BxGyService bxGyService;
+    private final CouponService couponService;
+    private final CartNormalizer cartNormalizer;
+    private final ObjectMapper objectMapper;
+    private final ApplicationContext applicationContext;
+    private final Environment environment;
+    private final WarmupTraffic warmupTraffic;
+
+    private volatile WarmupReport report;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (compactCouponCatalog.isServing()) {
+                compactCouponCatalog.refresh(Coupon.DEFAULT_MERCHANT_ID, LocalDateTime.now());
+            } else {
+                couponEvaluationNetwork.refresh(Coupon.DEFAULT_MERCHANT_ID, LocalDateTime.now());
+            }
+            Random random = new Random(SEED);
+            warmEvaluators(random);
+
+            URI endpoint = applicableCouponsUri();
+            Consumer<CartRequest> call = endpoint != null ? httpCall(endpoint, warmupTraffic.begin()) : this::serviceCall;
+            for (int i = 0; i < properties.getRequests(); i++) {
+                call.accept(syntheticRequest(random));
+            }
+            double[] latencies = measure(call, random);
+
+            report = WarmupReport.builder()
+                    .durationMillis((System.nanoTime() - start) / 1_000_000)
+                    .activeCoupons(compactCouponCatalog.isServing()
+                            ? compactCouponCatalog.getCouponCount() : couponEvaluationNetwork.getCouponCount())
+                    .evaluatorIterations(properties.getIterations())
+                    .measuredPath(endpoint != null ? "http" : "service")
+                    .p50Micros(percentile(latencies, 0.50))
+                    .p99Micros(percentile(latencies, 0.99))
+                    .maxMicros(latencies.length > 0 ? latencies[latencies.length - 1] : 0.0)
+                    .build();
+            log.info("Warm-up completed in {} ms over {} active coupons; {} latency p50={}us p99={}us",
+                    report.getDurationMillis(), report.getActiveCoupons(), report.getMeasuredPath(),
+                    Math.round(report.getP50Micros()), Math.round(report.getP99Micros()));
+        } catch (Exception e) {
+            log.warn("Warm-up aborted after {} ms, continuing startup cold",
+                    (System.nanoTime() - start) / 1_000_000, e);
+        } finally {
+            warmupTraffic.end();
+        }
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        if (report != null) {
+            builder.withDetail("warmup", report);
+        }
+    }
+
+    private void warmEvaluators(Random random) {
+        List<Coupon> coupons = syntheticCoupons();
+        for (int i = 0; i < properties.getIterations(); i++) {
+            CartDTO cart = cartNormalizer.normalize(syntheticRequest(random).getCart());
+            for (Coupon coupon : coupons) {
+                try {
+                    calculate(coupon, cart);
+                    UpdatedCartDTO updated = apply(coupon, cart);
+                    if (i % 100 == 0) {
+                        objectMapper.writeValueAsBytes(updated);
+                    }
+                } catch (CouponNotApplicableException e) {
+                    // Expected for a share of the synthetic carts; the rejection path needs warming too.
+                } catch (Exception e) {
+                    throw new IllegalStateException("Synthetic coupon " + coupon.getCode() + " failed", e);
+                }
+            }
+        }
+    }
+
+    private double calculate(Coupon coupon, CartDTO cart) {
+        return switch (coupon.getType()) {
+            case CART_WISE -> cartWiseService.calculateDiscount(coupon, cart);
+            case PRODUCT_WISE -> productWiseService.calculateDiscount(coupon, cart);
+            case BXGY -> bxGyService.calculateDiscount(coupon, cart);
+        };
+    }
+
+    private UpdatedCartDTO apply(Coupon coupon, CartDTO cart) {
+        return switch (coupon.getType()) {
+            case CART_WISE -> cartWiseService.applyDiscount(coupon, cart);
+            case PRODUCT_WISE -> productWiseService.applyDiscount(coupon, cart);
+            case BXGY -> bxGyService.applyDiscount(coupon, cart);
+        };
+    }
+
+    private double[] measure(Consumer<CartRequest> call, Random random) {
+        double[] latencies = new double[properties.getMeasuredRequests()];
+        for (int i = 0; i < latencies.length; i++) {
+            CartRequest request = syntheticRequest(random);
+            long begin = System.nanoTime();
+            call.accept(request);
+            latencies[i] = (System.nanoTime() - begin) / 1_000.0;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static double percentile(double[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private void serviceCall(CartRequest request) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            CartRequest parsed = objectMapper.readValue(body, CartRequest.class);
+            parsed.setCart(cartNormalizer.normalize(parsed.getCart()));
+            ApplicableCouponsResponse response = couponService.getApplicableCoupons(Coupon.DEFAULT_MERCHANT_ID, parsed);
+            objectMapper.writeValueAsBytes(response);
+        } catch (Exception e) {
+            throw new IllegalStateException("Warm-up request failed", e);
+        }
+    }
+
+    private Consumer<CartRequest> httpCall(URI endpoint, String token) {
+        HttpClient client = HttpClient.newHttpClient();
+        return request -> {
+            try {
+                HttpRequest httpRequest = HttpRequest.newBuilder(endpoint)
+                        .header("Content-Type", "application/json")
+                        .header(WarmupTraffic.HEADER, token)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(request)))
+                        .build();
+                HttpResponse<byte[]> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Warm-up request returned HTTP " + response.statusCode());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Warm-up interrupted", e);
+            } catch (IOException e) {
+                throw new IllegalStateException("Warm-up request failed", e);
+            }
+        };
+    }
+
+    private URI applicableCouponsUri() {
+        if (!(applicationContext instanceof WebServerApplicationContext webContext)
+                || webContext.getWebServer() == null || webContext.getWebServer().getPort() <= 0) {
+            return null;
+        }
+        String contextPath = environment.getProperty("server.servlet.context-path", "");
+        return URI.create("http://localhost:" + webContext.getWebServer().getPort()
+                + contextPath + "/applicable-coupons");
+    }
+
+    private static CartRequest syntheticRequest(Random random) {
+        int lines = 1 + random.nextInt(6);
+        List<CartItemDTO> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(CartItemDTO.builder()
+                    .productId(1L + random.nextInt(PRODUCT_RANGE))
+                    .quantity(1 + random.nextInt(4))
+                    .price(10.0 * (1 + random.nextInt(50)))
+                    .build());
+        }
+        return CartRequest.builder()
+                .cart(CartDTO.builder().items(items).build())
+                .build();
+    }
+
+    private static List<Coupon> syntheticCoupons() {
+        return List.of(
+                syntheticCoupon(-1L, CouponType.CART_WISE,
+                        "{\"threshold\":200.0,\"discount\":10.0,\"discountType\":\"PERCENTAGE\",\"maxDiscount\":50.0,"
+                                + "\"conditions\":{\"op\":\"item_count\",\"min\":2}}"),
+                syntheticCoupon(-2L, CouponType.CART_WISE,
+                        "{\"threshold\":100.0,\"discount\":25.0,\"discountType\":\"FIXED\",\"minItems\":3}"),
+                syntheticCoupon(-3L, CouponType.PRODUCT_WISE,
+                        "{\"productId\":1,\"discount\":20.0,\"discountType\":\"PERCENTAGE\",\"minQuantity\":2}"),
+                syntheticCoupon(-4L, CouponType.PRODUCT_WISE,
+                        "{\"productId\":2,\"discount\":15.0,\"discountType\":\"FIXED\",\"maxDiscount\":40.0}"),
+                syntheticCoupon(-5L, CouponType.BXGY,
+                        "{\"buyProducts\":[{\"productId\":1,\"quantity\":2},{\"productId\":2,\"quantity\":2}],"
+                                + "\"getProducts\":[{\"productId\":3,\"quantity\":1},{\"productId\":4,\"quantity\":1}],"
+                                + "\"repetitionLimit\":3}")
+        );
+    }
+
+    private static Coupon syntheticCoupon(Long id, CouponType type, String details) {
+        return Coupon.builder()
+                .id(id)
+                .code("WARMUP" + (-id))
+                .type(type)
+                .details(details)
+                .build();
+    }
+}
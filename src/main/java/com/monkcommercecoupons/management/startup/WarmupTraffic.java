@@ -0,0 +1,35 @@
+package com.monkcommercecoupons.management.startup;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Tells the warm-up's own HTTP calls apart from real traffic, which admission control and traffic
+ * capture must see even before the instance reports ready or while it drains. The warm-up marks
+ * its calls with a token drawn for the run and dropped when it ends, so the header is worthless
+ * to anyone else.
+ */
+@Component
+public class WarmupTraffic {
+
+    static final String HEADER = "X-Warmup-Token";
+
+    private volatile String token;
+
+    String begin() {
+        String drawn = UUID.randomUUID().toString();
+        token = drawn;
+        return drawn;
+    }
+
+    void end() {
+        token = null;
+    }
+
+    public boolean isWarmup(HttpServletRequest request) {
+        String current = token;
+        return current != null && current.equals(request.getHeader(HEADER));
+    }
+}
@@ -0,0 +1,71 @@
+package com.monkcommercecoupons.management.util;
+
+/**
+ * Set of strings that answers "definitely absent" or "probably present" from a fixed bit array.
+ * Sized for an expected number of entries and false positive rate; past that number the rate
+ * degrades gracefully. Not thread-safe.
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long entries = Math.max(1, expectedEntries);
+        long bits = Math.max(64, (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (LN2 * LN2)));
+        this.words = new long[Math.toIntExact((bits + 63) >>> 6)];
+        this.bitCount = (long) words.length << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / entries * LN2));
+    }
+
+    public void add(CharSequence value) {
+        long hash = hash(value);
+        long first = hash & 0xFFFFFFFFL;
+        long second = (hash >>> 32) | 1;
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = ((first + i * second) & Long.MAX_VALUE) % bitCount;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long hash = hash(value);
+        long first = hash & 0xFFFFFFFFL;
+        long second = (hash >>> 32) | 1;
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = ((first + i * second) & Long.MAX_VALUE) % bitCount;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    /**
+     * 64-bit FNV-1a over the chars, finished with the MurmurHash3 mixer so both halves are
+     * usable as independent hashes.
+     */
+    private static long hash(CharSequence value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
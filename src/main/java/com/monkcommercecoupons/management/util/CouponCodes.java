@@ -0,0 +1,16 @@
+package com.monkcommercecoupons.management.util;
+
+import java.util.Locale;
+
+/**
+ * Coupon codes as shoppers type them: surrounding spaces and letter case don't matter.
+ */
+public final class CouponCodes {
+
+    private CouponCodes() {
+    }
+
+    public static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,103 @@
+package com.monkcommercecoupons.management.admission;
+
+import com.monkcommercecoupons.management.config.AdmissionProperties;
+import com.monkcommercecoupons.management.exception.RateLimitExceededException;
+import com.monkcommercecoupons.management.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdmissionProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AdmissionProperties();
+        properties.setPermitsPerSecond(10);
+        properties.setBurst(5);
+        properties.setMaxInFlight(100);
+    }
+
+    @Test
+    void acquire_BeyondBurst_ShouldRejectUntilTokensRefill() {
+        AdmissionControl admissionControl = newAdmissionControl();
+        for (int i = 0; i < 5; i++) {
+            admissionControl.acquire("client-a");
+            admissionControl.release();
+        }
+
+        assertThatThrownBy(() -> admissionControl.acquire("client-a"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting("retryAfterSeconds").isEqualTo(1L);
+        admissionControl.acquire("client-b");
+        admissionControl.release();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        admissionControl.acquire("client-a");
+        admissionControl.release();
+        assertThat(meterRegistry.get("coupons.admission.rejected").tag("reason", "rate_limited").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void properties_WithoutAPositiveRate_ShouldBeRejected() {
+        properties.setPermitsPerSecond(0);
+        properties.setBurst(0);
+
+        assertThat(Validation.buildDefaultValidatorFactory().getValidator().validate(properties))
+                .extracting(violation -> violation.getPropertyPath().toString())
+                .containsExactlyInAnyOrder("permitsPerSecond", "burst");
+    }
+
+    @Test
+    void acquire_BeyondMaxInFlight_ShouldShedLoad() {
+        properties.setMaxInFlight(2);
+        AdmissionControl admissionControl = newAdmissionControl();
+        admissionControl.acquire("client-a");
+        admissionControl.acquire("client-b");
+
+        assertThatThrownBy(() -> admissionControl.acquire("client-c"))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(admissionControl.getInFlight()).isEqualTo(2);
+        assertThat(meterRegistry.get("coupons.admission.in.flight").gauge().value()).isEqualTo(2.0);
+
+        admissionControl.release();
+        admissionControl.acquire("client-c");
+        assertThat(meterRegistry.get("coupons.admission.rejected").tag("reason", "overloaded").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void acquire_ManyClients_ShouldKeepBucketMapBounded() {
+        properties.setMaxClients(3);
+        AdmissionControl admissionControl = newAdmissionControl();
+        for (int i = 0; i < 8; i++) {
+            admissionControl.acquire("client-" + i);
+            admissionControl.release();
+        }
+        assertThat(admissionControl.getTrackedClients()).isEqualTo(3);
+        // Clients past the limit share one bucket, which the last five have just drained
+        assertThatThrownBy(() -> admissionControl.acquire("client-8"))
+                .isInstanceOf(RateLimitExceededException.class);
+
+        // Once the early clients are idle their full buckets are dropped to make room
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        admissionControl.acquire("late-client");
+        admissionControl.release();
+        assertThat(admissionControl.getTrackedClients()).isEqualTo(1);
+    }
+
+    private AdmissionControl newAdmissionControl() {
+        return new AdmissionControl(properties, meterRegistry, clock::get);
+    }
+}
@@ -0,0 +1,222 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommercecoupons.management.exception.CouponNotApplicableException;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.details.CouponDetails;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.service.BxGyServiceImpl;
+import com.monkcommercecoupons.management.service.CartNormalizer;
+import com.monkcommercecoupons.management.service.CartWiseServiceImpl;
+import com.monkcommercecoupons.management.service.CouponDetailsMapper;
+import com.monkcommercecoupons.management.service.ProductWiseServiceImpl;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactSegmentTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    private final CouponDetailsMapper couponDetailsMapper =
+            new CouponDetailsMapper(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator());
+    private final CartWiseServiceImpl cartWiseService = new CartWiseServiceImpl(couponDetailsMapper);
+    private final ProductWiseServiceImpl productWiseService = new ProductWiseServiceImpl(couponDetailsMapper);
+    private final BxGyServiceImpl bxGyService = new BxGyServiceImpl(couponDetailsMapper);
+    private final CartNormalizer cartNormalizer = new CartNormalizer();
+
+    @Test
+    void match_ShouldGiveTheSameDiscountsAsTheEvaluators() {
+        Random random = new Random(7);
+        List<Coupon> coupons = new ArrayList<>();
+        for (long id = 1; id <= 400; id++) {
+            coupons.add(randomCoupon(id, random));
+        }
+        CompactSegment segment = build(coupons, true);
+        assertThat(segment.size()).isEqualTo(coupons.size());
+
+        for (int i = 0; i < 500; i++) {
+            CartContext context = CartContext.of(randomCart(random), NOW);
+            Map<Long, Double> actual = new HashMap<>();
+            segment.match(context, CompactSegment.toEpochMillis(NOW), (matched, record, discount) ->
+                    assertThat(actual.put(matched.id(record), cents(discount))).isNull());
+
+            assertThat(actual).isEqualTo(evaluate(coupons, context));
+        }
+        for (Coupon coupon : coupons) {
+            assertThat(segment.id(segment.findCode(coupon.getCode()))).isEqualTo(coupon.getId());
+        }
+    }
+
+    @Test
+    void readers_ShouldReturnWhatWasAdded() {
+        Coupon grouped = coupon(8L, CouponType.PRODUCT_WISE, "{\"productId\":5,\"discount\":10.0}", null);
+        grouped.setExclusivityGroup("summer");
+        grouped.setPriority(3);
+        CompactSegment segment = build(List.of(
+                coupon(3L, CouponType.CART_WISE, "{\"threshold\":100.0,\"discount\":10.0}", null), grouped), false);
+
+        assertThat(segment.find(8L)).isEqualTo(1);
+        assertThat(segment.find(5L)).isEqualTo(-1);
+        assertThat(segment.code(1)).isEqualTo("CODE-8-É");
+        assertThat(segment.findCode("CODE-8-É")).isEqualTo(1);
+        assertThat(segment.findCode("CODE-3-É")).isZero();
+        assertThat(segment.findCode("CODE-8")).isEqualTo(-1);
+        assertThat(segment.type(0)).isEqualTo(CouponType.CART_WISE);
+        assertThat(segment.version(1)).isEqualTo(80L);
+        assertThat(segment.priority(1)).isEqualTo(3);
+        assertThat(segment.stackingMask(0)).isSameAs(StackingMasks.STACKS_FREELY);
+        assertThat(segment.stackingMask(1)).isNotSameAs(StackingMasks.STACKS_FREELY);
+    }
+
+    @Test
+    void build_WithoutCoupons_ShouldAllocateNoBuffers() {
+        CompactSegment segment = new CompactSegment.Builder(true).build();
+
+        assertThat(segment.size()).isZero();
+        assertThat(segment.bufferBytes()).isZero();
+        assertThat(segment.find(1L)).isEqualTo(-1);
+        assertThat(segment.findCode("CODE")).isEqualTo(-1);
+        segment.match(CartContext.of(randomCart(new Random(7)), NOW), CompactSegment.toEpochMillis(NOW),
+                (matched, record, discount) -> {
+                    throw new AssertionError("matched record " + record);
+                });
+    }
+
+    @Test
+    void builder_ShouldRejectIdsOutOfOrder() {
+        CompactSegment.Builder builder = new CompactSegment.Builder(false);
+        builder.add(2L, 0L, "B", details(CouponType.CART_WISE, "{\"threshold\":1.0,\"discount\":1.0}"), null,
+                StackingMasks.STACKS_FREELY, 0);
+
+        assertThatThrownBy(() -> builder.add(1L, 0L, "A",
+                details(CouponType.CART_WISE, "{\"threshold\":1.0,\"discount\":1.0}"), null,
+                StackingMasks.STACKS_FREELY, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Map<Long, Double> evaluate(List<Coupon> coupons, CartContext context) {
+        Map<Long, Double> expected = new HashMap<>();
+        for (Coupon coupon : coupons) {
+            boolean expired = coupon.getExpirationDate() != null && NOW.isAfter(coupon.getExpirationDate());
+            if (expired || !couponDetailsMapper.read(coupon, CouponDetails.class).conditionsMet(context)) {
+                continue;
+            }
+            try {
+                double discount = switch (coupon.getType()) {
+                    case CART_WISE -> cartWiseService.calculateDiscount(coupon, context.getCart());
+                    case PRODUCT_WISE -> productWiseService.calculateDiscount(coupon, context.getCart());
+                    case BXGY -> bxGyService.calculateDiscount(coupon, context.getCart());
+                };
+                if (discount > 0) {
+                    expected.put(coupon.getId(), cents(discount));
+                }
+            } catch (CouponNotApplicableException e) {
+                // Not applicable to this cart.
+            }
+        }
+        return expected;
+    }
+
+    private CompactSegment build(List<Coupon> coupons, boolean direct) {
+        CompactSegment.Builder builder = new CompactSegment.Builder(direct);
+        StackingMasks stackingMasks = new StackingMasks();
+        for (Coupon coupon : coupons) {
+            builder.add(coupon.getId(), coupon.getVersion(), coupon.getCode(),
+                    couponDetailsMapper.read(coupon, CouponDetails.class), coupon.getExpirationDate(),
+                    stackingMasks.maskOf(coupon), coupon.getPriority());
+        }
+        return builder.build();
+    }
+
+    private Coupon randomCoupon(long id, Random random) {
+        String conditions = switch (random.nextInt(6)) {
+            case 0 -> ",\"conditions\":{\"op\":\"item_count\",\"min\":" + (2 + random.nextInt(6)) + "}";
+            case 1 -> ",\"conditions\":{\"op\":\"products\",\"match\":\"ANY\",\"productIds\":["
+                    + product(random) + "," + product(random) + "]}";
+            default -> "";
+        };
+        LocalDateTime expirationDate = random.nextInt(10) == 0 ? NOW.minusDays(1)
+                : random.nextInt(4) == 0 ? NOW.plusDays(1) : null;
+        return switch (random.nextInt(3)) {
+            case 0 -> coupon(id, CouponType.CART_WISE, "{\"threshold\":" + 20 * random.nextInt(30)
+                    + ",\"discount\":" + (5 + random.nextInt(30)) + discountType(random) + maxDiscount(random)
+                    + (random.nextBoolean() ? ",\"minItems\":" + (1 + random.nextInt(5)) : "") + conditions + "}",
+                    expirationDate);
+            case 1 -> coupon(id, CouponType.PRODUCT_WISE, "{\"productId\":" + product(random)
+                    + ",\"discount\":" + (5 + random.nextInt(30)) + discountType(random) + maxDiscount(random)
+                    + (random.nextBoolean() ? ",\"minQuantity\":" + (1 + random.nextInt(3)) : "") + conditions + "}",
+                    expirationDate);
+            default -> coupon(id, CouponType.BXGY, "{\"buyProducts\":" + products(random)
+                    + ",\"getProducts\":" + products(random)
+                    + ",\"repetitionLimit\":" + (1 + random.nextInt(3)) + conditions + "}", expirationDate);
+        };
+    }
+
+    private CartDTO randomCart(Random random) {
+        int lines = 1 + random.nextInt(6);
+        List<CartItemDTO> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(CartItemDTO.builder()
+                    .productId((long) product(random))
+                    .quantity(1 + random.nextInt(5))
+                    .price(5.0 * (1 + random.nextInt(40)))
+                    .build());
+        }
+        return cartNormalizer.normalize(CartDTO.builder().items(items).build());
+    }
+
+    private static int product(Random random) {
+        return 1 + random.nextInt(12);
+    }
+
+    private static String products(Random random) {
+        StringBuilder json = new StringBuilder("[");
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "").append("{\"productId\":").append(product(random))
+                    .append(",\"quantity\":").append(1 + random.nextInt(3)).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String discountType(Random random) {
+        return random.nextInt(3) == 0 ? ",\"discountType\":\"FIXED\"" : "";
+    }
+
+    private static String maxDiscount(Random random) {
+        return random.nextInt(3) == 0 ? ",\"maxDiscount\":" + (10 + random.nextInt(40)) : "";
+    }
+
+    private CouponDetails details(CouponType type, String json) {
+        return couponDetailsMapper.read(coupon(0L, type, json, null), CouponDetails.class);
+    }
+
+    private static Coupon coupon(Long id, CouponType type, String details, LocalDateTime expirationDate) {
+        return Coupon.builder()
+                .id(id)
+                .version(id * 10)
+                .code("CODE-" + id + "-É")
+                .type(type)
+                .details(details)
+                .expirationDate(expirationDate)
+                .isActive(true)
+                .build();
+    }
+
+    private static double cents(double discount) {
+        return Math.round(discount * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,106 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.CatalogProperties;
+import com.monkcommercecoupons.management.model.entity.CouponChange;
+import com.monkcommercecoupons.management.model.enums.ChangeType;
+import com.monkcommercecoupons.management.repository.CouponChangeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponChangeFeedTest {
+
+    private static final String MERCHANT_ID = "merchant-1";
+
+    @Mock
+    private CouponChangeRepository couponChangeRepository;
+
+    private final List<CouponChangeFeed.Changes> received = new ArrayList<>();
+    private CouponChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        CatalogProperties properties = new CatalogProperties();
+        properties.setRefresh(CatalogProperties.RefreshMode.CHANGE_FEED);
+        properties.setPollInterval(Duration.ofHours(1));
+        feed = new CouponChangeFeed(couponChangeRepository, properties);
+        when(couponChangeRepository.findMaxId()).thenReturn(0L);
+        feed.subscribe(changes -> {
+            if (changes != CouponChangeFeed.Changes.NONE) {
+                received.add(changes);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void tail_AfterALocalWrite_ShouldSkipThePollIntervalOnceTheWriteCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        feed.record(MERCHANT_ID, 1L, ChangeType.CREATED);
+
+        // Not committed yet: polling now would miss the row and wait out the interval for it.
+        feed.tail();
+        assertThat(received).isEmpty();
+        verify(couponChangeRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class));
+
+        when(couponChangeRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(CouponChange.builder().id(1L).merchantId(MERCHANT_ID).couponId(1L)
+                        .changeType(ChangeType.CREATED).build()));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        feed.tail();
+        assertThat(received).singleElement().satisfies(changes ->
+                assertThat(changes.couponIds()).isEqualTo(Map.of(MERCHANT_ID, Set.of(1L))));
+        assertThat(feed.getWatermark()).isEqualTo(1L);
+    }
+
+    @Test
+    void tail_WhenTheListenerFails_ShouldReloadEverythingOnTheNextPoll() {
+        List<CouponChangeFeed.Changes> failed = new ArrayList<>();
+        feed.subscribe(changes -> {
+            if (changes == CouponChangeFeed.Changes.NONE) {
+                return;
+            }
+            failed.add(changes);
+            if (!changes.full()) {
+                throw new IllegalStateException("database unavailable");
+            }
+        });
+        when(couponChangeRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(CouponChange.builder().id(1L).merchantId(MERCHANT_ID).couponId(1L)
+                        .changeType(ChangeType.CREATED).build()));
+        feed.record(MERCHANT_ID, 1L, ChangeType.CREATED);
+        feed.tail();
+        feed.tail();
+
+        assertThat(failed).extracting(CouponChangeFeed.Changes::full).containsExactly(false, true);
+        // The other cursor isn't affected.
+        assertThat(received).extracting(CouponChangeFeed.Changes::full).containsExactly(false);
+    }
+}
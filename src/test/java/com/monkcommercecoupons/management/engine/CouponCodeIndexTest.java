@@ -0,0 +1,149 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.CatalogProperties;
+import com.monkcommercecoupons.management.config.CouponCodeProperties;
+import com.monkcommercecoupons.management.exception.InvalidSearchException;
+import com.monkcommercecoupons.management.model.entity.CouponChange;
+import com.monkcommercecoupons.management.model.enums.ChangeType;
+import com.monkcommercecoupons.management.repository.CouponChangeRepository;
+import com.monkcommercecoupons.management.repository.CouponCode;
+import com.monkcommercecoupons.management.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CouponCodeIndexTest {
+
+    private static final String MERCHANT_ID = "merchant-1";
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponChangeRepository couponChangeRepository;
+
+    private CatalogProperties catalogProperties;
+    private CouponChangeFeed feed;
+    private CouponCodeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        catalogProperties = new CatalogProperties();
+        catalogProperties.setRefresh(CatalogProperties.RefreshMode.VERSIONS);
+        feed = new CouponChangeFeed(couponChangeRepository, catalogProperties);
+        index = new CouponCodeIndex(couponRepository, feed, new CouponCodeProperties());
+        index.subscribe();
+    }
+
+    @Test
+    void search_ByPrefix_ShouldPageThroughMatchingCodesInOrder() {
+        when(couponRepository.findCodesByMerchantId(MERCHANT_ID)).thenReturn(List.of(
+                code(1L, "DIWALI24-C"), code(2L, "diwali24-a"), code(3L, "DIWALI23-A"),
+                code(4L, "DIWALI24-B"), code(5L, "SAVE10")));
+
+        CouponCodeIndex.CodePage first = index.search(MERCHANT_ID, "Diwali24-", null, null, null, 2);
+        CouponCodeIndex.CodePage second = index.search(MERCHANT_ID, "Diwali24-", null, null, first.nextCursor(), 2);
+
+        assertThat(first.couponIds()).containsExactly(2L, 4L);
+        assertThat(second.couponIds()).containsExactly(1L);
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void search_ByRange_ShouldIncludeFromAndExcludeTo() {
+        when(couponRepository.findCodesByMerchantId(MERCHANT_ID)).thenReturn(List.of(
+                code(1L, "A1"), code(2L, "B1"), code(3L, "B2"), code(4L, "C1")));
+
+        assertThat(index.search(MERCHANT_ID, null, "B1", "C1", null, 10).couponIds()).containsExactly(2L, 3L);
+        assertThat(index.search(MERCHANT_ID, null, "B", null, null, 10).couponIds()).containsExactly(2L, 3L, 4L);
+    }
+
+    @Test
+    void writes_ShouldBeVisibleAndSurviveCompaction() {
+        when(couponRepository.findCodesByMerchantId(MERCHANT_ID)).thenReturn(List.of(code(1L, "SAVE10")));
+        index.search(MERCHANT_ID, "X", null, null, null, 1);
+
+        index.added(MERCHANT_ID, 2L, "SAVE20");
+        index.renamed(MERCHANT_ID, 1L, "SAVE10", "OLD10");
+        assertThat(index.search(MERCHANT_ID, "SAVE", null, null, null, 10).couponIds()).containsExactly(2L);
+
+        List<Long> generated = new ArrayList<>();
+        IntStream.range(0, 5000).forEach(i -> {
+            index.added(MERCHANT_ID, 100L + i, String.format("GEN-%05d", i));
+            generated.add(100L + i);
+        });
+        index.removed(MERCHANT_ID, 100L, "GEN-00000");
+
+        assertThat(index.size(MERCHANT_ID)).isEqualTo(5001);
+        assertThat(index.search(MERCHANT_ID, "GEN-", null, null, null, 100).couponIds())
+                .containsExactlyElementsOf(generated.subList(1, 101));
+        assertThat(index.search(MERCHANT_ID, "OLD", null, null, null, 10).couponIds()).containsExactly(1L);
+    }
+
+    @Test
+    void search_ShouldFollowWritesOfOtherInstancesThroughTheChangeFeed() {
+        catalogProperties.setRefresh(CatalogProperties.RefreshMode.CHANGE_FEED);
+        catalogProperties.setPollInterval(Duration.ZERO);
+        when(couponChangeRepository.findMaxId()).thenReturn(0L);
+        feed.tail();
+        when(couponRepository.findCodesByMerchantId(MERCHANT_ID)).thenReturn(List.of(code(1L, "SAVE10"), code(2L, "SAVE20")));
+        assertThat(index.search(MERCHANT_ID, "SAVE", null, null, null, 10).couponIds()).containsExactly(1L, 2L);
+        // Written through this instance, then renamed elsewhere before the write is compacted.
+        index.added(MERCHANT_ID, 3L, "DRAFT30");
+
+        when(couponChangeRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(
+                change(1L, 1L, ChangeType.UPDATED), change(2L, 2L, ChangeType.DELETED), change(3L, 3L, ChangeType.CREATED)));
+        when(couponRepository.findCodesByMerchantIdAndIdIn(MERCHANT_ID, Set.of(1L, 2L, 3L)))
+                .thenReturn(List.of(code(1L, "WINTER10"), code(3L, "SAVE30")));
+        feed.tail();
+
+        assertThat(index.search(MERCHANT_ID, "SAVE", null, null, null, 10).couponIds()).containsExactly(3L);
+        assertThat(index.search(MERCHANT_ID, "WINTER", null, null, null, 10).couponIds()).containsExactly(1L);
+        assertThat(index.search(MERCHANT_ID, "DRAFT", null, null, null, 10).couponIds()).isEmpty();
+        assertThat(index.size(MERCHANT_ID)).isEqualTo(2);
+    }
+
+    @Test
+    void search_WithMalformedCursor_ShouldBeRejected() {
+        assertThatThrownBy(() -> index.search(MERCHANT_ID, "A", null, null, "not a cursor", 10))
+                .isInstanceOf(InvalidSearchException.class);
+    }
+
+    private static CouponCode code(Long id, String code) {
+        return new CouponCode() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCode() {
+                return code;
+            }
+        };
+    }
+
+    private static CouponChange change(Long id, Long couponId, ChangeType changeType) {
+        return CouponChange.builder()
+                .id(id)
+                .merchantId(MERCHANT_ID)
+                .couponId(couponId)
+                .changeType(changeType)
+                .build();
+    }
+}
@@ -0,0 +1,252 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommercecoupons.management.config.CatalogProperties;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.entity.CouponChange;
+import com.monkcommercecoupons.management.model.enums.ChangeType;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.repository.CouponChangeRepository;
+import com.monkcommercecoupons.management.repository.CouponRepository;
+import com.monkcommercecoupons.management.repository.CouponVersion;
+import com.monkcommercecoupons.management.service.CouponDetailsMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponEvaluationNetworkTest {
+
+    private static final String MERCHANT_ID = "merchant-1";
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponChangeRepository couponChangeRepository;
+
+    private CatalogProperties properties;
+    private CouponChangeFeed feed;
+    private CouponEvaluationNetwork network;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        properties = new CatalogProperties();
+        properties.setRefresh(CatalogProperties.RefreshMode.VERSIONS);
+        feed = new CouponChangeFeed(couponChangeRepository, properties);
+        network = new CouponEvaluationNetwork(couponRepository,
+                new CouponDetailsMapper(objectMapper, Validation.buildDefaultValidatorFactory().getValidator()),
+                feed, properties);
+    }
+
+    @Test
+    void refresh_CouponsWithSameThreshold_ShouldShareOneCondition() {
+        List<Coupon> coupons = List.of(
+                cartWise(1L, 0L, "{\"threshold\":100.0,\"discount\":10.0}"),
+                cartWise(2L, 0L, "{\"threshold\":100.0,\"discount\":20.0}"),
+                cartWise(3L, 0L, "{\"threshold\":100.0,\"discount\":5.0,\"discountType\":\"FIXED\"}")
+        );
+        when(couponRepository.findActiveCouponVersions(any(), any())).thenReturn(versionsOf(coupons));
+        when(couponRepository.findAllById(any())).thenReturn(coupons);
+
+        network.refresh(MERCHANT_ID, LocalDateTime.now());
+
+        assertThat(network.getCouponCount()).isEqualTo(3);
+        assertThat(network.getConditionCount()).isEqualTo(1);
+        assertThat(network.match(MERCHANT_ID, context(150.0))).extracting(Coupon::getId).containsExactly(1L, 2L, 3L);
+        assertThat(network.match(MERCHANT_ID, context(50.0))).isEmpty();
+    }
+
+    @Test
+    void refresh_UnchangedVersions_ShouldNotReloadCoupons() {
+        List<Coupon> coupons = List.of(cartWise(1L, 0L, "{\"threshold\":100.0,\"discount\":10.0}"));
+        when(couponRepository.findActiveCouponVersions(any(), any())).thenReturn(versionsOf(coupons));
+        when(couponRepository.findAllById(any())).thenReturn(coupons);
+
+        network.refresh(MERCHANT_ID, LocalDateTime.now());
+        network.refresh(MERCHANT_ID, LocalDateTime.now());
+
+        verify(couponRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void refresh_MerchantWithoutCoupons_ShouldNotKeepACatalog() {
+        when(couponRepository.findActiveCouponVersions(any(), any())).thenReturn(List.of());
+
+        for (int i = 0; i < 100; i++) {
+            network.refresh("unknown-" + i, LocalDateTime.now());
+        }
+
+        assertThat(network.getCatalogCount()).isZero();
+        assertThat(network.match("unknown-0", context(150.0))).isEmpty();
+    }
+
+    @Test
+    void refresh_WithTheChangeFeed_ShouldRememberMerchantsWithoutCouponsUntilTheyChange() {
+        properties.setRefresh(CatalogProperties.RefreshMode.CHANGE_FEED);
+        properties.setPollInterval(Duration.ZERO);
+        when(couponChangeRepository.findMaxId()).thenReturn(0L);
+        network.subscribe();
+        Coupon coupon = cartWise(1L, 0L, "{\"threshold\":100.0,\"discount\":10.0}");
+        when(couponRepository.findAllActiveCoupons(eq("idle"), any())).thenReturn(List.of(), List.of(coupon));
+
+        network.refresh("idle", LocalDateTime.now());
+        network.refresh("idle", LocalDateTime.now());
+
+        verify(couponRepository, times(1)).findAllActiveCoupons(eq("idle"), any());
+        assertThat(network.getCatalogCount()).isZero();
+        assertThat(network.getEmptyMerchantCount()).isEqualTo(1);
+
+        // A coupon created on another instance.
+        when(couponChangeRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(
+                CouponChange.builder().id(1L).merchantId("idle").couponId(1L).changeType(ChangeType.CREATED).build()));
+        feed.tail();
+        network.refresh("idle", LocalDateTime.now());
+
+        assertThat(network.match("idle", context(150.0))).extracting(Coupon::getId).containsExactly(1L);
+        assertThat(network.getEmptyMerchantCount()).isZero();
+    }
+
+    @Test
+    void tail_WithTheChangeFeed_ShouldDropExpiredCoupons() throws InterruptedException {
+        properties.setRefresh(CatalogProperties.RefreshMode.CHANGE_FEED);
+        properties.setPollInterval(Duration.ZERO);
+        when(couponChangeRepository.findMaxId()).thenReturn(0L);
+        network.subscribe();
+        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(1);
+        Coupon expiring = cartWise(1L, 0L, "{\"threshold\":100.0,\"discount\":10.0,\"minItems\":1}");
+        expiring.setExpirationDate(expiresAt);
+        Coupon active = cartWise(2L, 0L, "{\"threshold\":100.0,\"discount\":10.0}");
+        when(couponRepository.findAllActiveCoupons(eq(MERCHANT_ID), any())).thenReturn(List.of(expiring, active));
+        network.refresh(MERCHANT_ID, LocalDateTime.now());
+        assertThat(network.getCouponCount()).isEqualTo(2);
+        while (!LocalDateTime.now().isAfter(expiresAt)) {
+            Thread.sleep(20);
+        }
+
+        // Matching skips it before the poller gets to it.
+        assertThat(network.match(MERCHANT_ID, context(150.0))).extracting(Coupon::getId).containsExactly(2L);
+
+        feed.tail();
+        assertThat(network.getCouponCount()).isEqualTo(1);
+        assertThat(network.getConditionCount()).isEqualTo(1);
+
+        Coupon created = cartWise(3L, 0L, "{\"threshold\":200.0,\"discount\":10.0}");
+        created.setMerchantId(MERCHANT_ID);
+        when(couponChangeRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(
+                CouponChange.builder().id(1L).merchantId(MERCHANT_ID).couponId(3L).changeType(ChangeType.CREATED).build()));
+        when(couponRepository.findAllById(any())).thenReturn(List.of(created));
+        feed.tail();
+
+        assertThat(network.getCouponCount()).isEqualTo(2);
+        assertThat(network.match(MERCHANT_ID, context(250.0))).extracting(Coupon::getId).containsExactly(2L, 3L);
+        assertThat(network.activeCoupons(MERCHANT_ID)).extracting(Coupon::getId).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void refresh_ChangedAndRemovedCoupons_ShouldUpdateIncrementally() {
+        Coupon first = cartWise(1L, 0L, "{\"threshold\":100.0,\"discount\":10.0}");
+        Coupon second = cartWise(2L, 0L, "{\"threshold\":500.0,\"discount\":10.0}");
+        when(couponRepository.findActiveCouponVersions(any(), any())).thenReturn(versionsOf(List.of(first, second)));
+        when(couponRepository.findAllById(any())).thenReturn(List.of(first, second));
+        network.refresh(MERCHANT_ID, LocalDateTime.now());
+        assertThat(network.getConditionCount()).isEqualTo(2);
+
+        Coupon firstUpdated = cartWise(1L, 1L, "{\"threshold\":200.0,\"discount\":10.0,\"minItems\":1}");
+        when(couponRepository.findActiveCouponVersions(any(), any())).thenReturn(versionsOf(List.of(firstUpdated)));
+        when(couponRepository.findAllById(List.of(1L))).thenReturn(List.of(firstUpdated));
+        network.refresh(MERCHANT_ID, LocalDateTime.now());
+
+        assertThat(network.getCouponCount()).isEqualTo(1);
+        assertThat(network.getConditionCount()).isEqualTo(2);
+        assertThat(network.match(MERCHANT_ID, context(150.0))).isEmpty();
+        assertThat(network.match(MERCHANT_ID, context(250.0))).extracting(Coupon::getId).containsExactly(1L);
+    }
+
+    @Test
+    void match_ProductWiseAndBxGyCoupons_ShouldRequireTheirProducts() {
+        List<Coupon> coupons = List.of(
+                Coupon.builder().id(1L).version(0L).code("P1").type(CouponType.PRODUCT_WISE)
+                        .details("{\"productId\":1,\"discount\":10.0}").build(),
+                Coupon.builder().id(2L).version(0L).code("B2G1").type(CouponType.BXGY)
+                        .details("{\"buyProducts\":[{\"productId\":1,\"quantity\":2}],"
+                                + "\"getProducts\":[{\"productId\":3,\"quantity\":1}]}").build()
+        );
+        when(couponRepository.findActiveCouponVersions(any(), any())).thenReturn(versionsOf(coupons));
+        when(couponRepository.findAllById(any())).thenReturn(coupons);
+
+        network.refresh(MERCHANT_ID, LocalDateTime.now());
+
+        assertThat(network.match(MERCHANT_ID, context(150.0))).extracting(Coupon::getId).containsExactly(1L);
+    }
+
+    @Test
+    void matchProduct_ShouldOnlyCheckCouponsNamingTheProduct() {
+        List<Coupon> coupons = List.of(
+                cartWise(1L, 0L, "{\"threshold\":10.0,\"discount\":10.0}"),
+                Coupon.builder().id(2L).version(0L).code("P1").type(CouponType.PRODUCT_WISE)
+                        .details("{\"productId\":1,\"discount\":10.0}").build(),
+                Coupon.builder().id(3L).version(0L).code("P1MIN2").type(CouponType.PRODUCT_WISE)
+                        .details("{\"productId\":1,\"discount\":10.0,\"minQuantity\":2}").build(),
+                Coupon.builder().id(4L).version(0L).code("B1G1").type(CouponType.BXGY)
+                        .details("{\"buyProducts\":[{\"productId\":3,\"quantity\":1}],"
+                                + "\"getProducts\":[{\"productId\":1,\"quantity\":1}]}").build()
+        );
+        when(couponRepository.findActiveCouponVersions(any(), any())).thenReturn(versionsOf(coupons));
+        when(couponRepository.findAllById(any())).thenReturn(coupons);
+
+        network.refresh(MERCHANT_ID, LocalDateTime.now());
+
+        assertThat(network.matchProduct(MERCHANT_ID, 1L, context(150.0))).extracting(Coupon::getId).containsExactly(2L);
+        assertThat(network.matchProduct(MERCHANT_ID, 2L, context(150.0))).isEmpty();
+    }
+
+    private static Coupon cartWise(Long id, Long version, String details) {
+        return Coupon.builder()
+                .id(id)
+                .version(version)
+                .code("CART" + id)
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .build();
+    }
+
+    private static CartContext context(double total) {
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(1).price(total).build()))
+                .build();
+        return CartContext.of(cart, LocalDateTime.now());
+    }
+
+    private static List<CouponVersion> versionsOf(List<Coupon> coupons) {
+        return coupons.stream()
+                .map(coupon -> (CouponVersion) new CouponVersion() {
+                    @Override
+                    public Long getId() {
+                        return coupon.getId();
+                    }
+
+                    @Override
+                    public Long getVersion() {
+                        return coupon.getVersion();
+                    }
+                })
+                .toList();
+    }
+}
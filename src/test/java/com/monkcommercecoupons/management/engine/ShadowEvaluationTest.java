@@ -0,0 +1,177 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.config.ShadowProperties;
+import com.monkcommercecoupons.management.model.condition.CartContext;
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponDTO;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShadowEvaluationTest {
+
+    private static final String MERCHANT_ID = "merchant-1";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ShadowProperties properties;
+    private ShadowEvaluation shadowEvaluation;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ShadowProperties();
+        properties.setEnabled(true);
+        properties.setEngine("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (shadowEvaluation != null) {
+            shadowEvaluation.stop();
+        }
+    }
+
+    @Test
+    void submit_ShouldCountMatchesAndMismatchesWithRelativeLatency() throws InterruptedException {
+        shadowEvaluation = shadow((merchantId, context) -> context.getTotalPrice() > 100
+                ? List.of(coupon(1L, 10.0), coupon(2L, 5.0))
+                : List.of(coupon(1L, 10.0)));
+
+        shadowEvaluation.submit(MERCHANT_ID, context(50.0), List.of(coupon(1L, 10.0)), 1_000);
+        shadowEvaluation.submit(MERCHANT_ID, context(150.0), List.of(coupon(1L, 10.0)), 1_000);
+
+        awaitCount("coupons.shadow.evaluations", 2);
+        assertThat(count("match")).isEqualTo(1);
+        assertThat(count("mismatch")).isEqualTo(1);
+        assertThat(meterRegistry.get("coupons.shadow.latency").tag("path", "served").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("coupons.shadow.latency.ratio").summary().count()).isEqualTo(2);
+    }
+
+    @Test
+    void submit_WhenTheCandidateFallsBehind_ShouldDropInsteadOfQueueing() throws InterruptedException {
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        CountDownLatch release = new CountDownLatch(1);
+        shadowEvaluation = shadow((merchantId, context) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        });
+
+        for (int i = 0; i < 5; i++) {
+            shadowEvaluation.submit(MERCHANT_ID, context(50.0), List.of(), 1_000);
+        }
+
+        // One evaluation running, one queued, the rest dropped.
+        assertThat(meterRegistry.get("coupons.shadow.dropped").counter().count()).isEqualTo(3);
+        release.countDown();
+        awaitCount("coupons.shadow.evaluations", 2);
+        assertThat(count("match")).isEqualTo(2);
+    }
+
+    @Test
+    void submit_ShouldNotTimeTheCandidatesRefresh() throws InterruptedException {
+        CandidateEngine engine = new CandidateEngine() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public void refresh(String merchantId, LocalDateTime now) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public List<ApplicableCouponDTO> applicableCoupons(String merchantId, CartContext context) {
+                return List.of();
+            }
+        };
+        shadowEvaluation = new ShadowEvaluation(properties, List.of(engine), meterRegistry);
+
+        shadowEvaluation.submit(MERCHANT_ID, context(50.0), List.of(), 1_000);
+
+        awaitCount("coupons.shadow.evaluations", 1);
+        assertThat(meterRegistry.get("coupons.shadow.latency").tag("path", "candidate").timer()
+                .max(TimeUnit.MILLISECONDS)).isLessThan(200);
+    }
+
+    @Test
+    void differences_ShouldReportMissingExtraAndChangedDiscountsIgnoringOrder() {
+        List<String> differences = ShadowEvaluation.differences(
+                List.of(coupon(1L, 10.0), coupon(2L, 5.0), coupon(3L, 7.5)),
+                List.of(coupon(3L, 7.5), coupon(1L, 12.0), coupon(4L, 1.0)));
+
+        assertThat(differences).containsExactlyInAnyOrder(
+                "coupon 1: discount 10.0 served, 12.0 candidate",
+                "coupon 4: candidate only, discount 1.0",
+                "coupon 2: served only, discount 5.0");
+    }
+
+    @Test
+    void submit_WhenDisabled_ShouldDoNothing() {
+        properties.setEnabled(false);
+        shadowEvaluation = new ShadowEvaluation(properties, List.of(), meterRegistry);
+
+        shadowEvaluation.submit(MERCHANT_ID, context(50.0), List.of(), 1_000);
+
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    private ShadowEvaluation shadow(BiFunction<String, CartContext, List<ApplicableCouponDTO>> evaluation) {
+        CandidateEngine engine = new CandidateEngine() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public List<ApplicableCouponDTO> applicableCoupons(String merchantId, CartContext context) {
+                return evaluation.apply(merchantId, context);
+            }
+        };
+        return new ShadowEvaluation(properties, List.of(engine), meterRegistry);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("coupons.shadow.evaluations").tag("result", result).counter().count();
+    }
+
+    private void awaitCount(String name, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(name).counters().stream().mapToDouble(counter -> counter.count()).sum() < expected
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static CartContext context(double price) {
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(1).price(price).build()))
+                .build();
+        return CartContext.of(cart, LocalDateTime.now());
+    }
+
+    private static ApplicableCouponDTO coupon(Long couponId, double discount) {
+        return ApplicableCouponDTO.builder()
+                .couponId(couponId)
+                .discount(discount)
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.monkcommercecoupons.management.engine;
+
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StackingMasksTest {
+
+    private final StackingMasks stackingMasks = new StackingMasks();
+
+    @Test
+    void resolve_ShouldKeepOneCouponPerGroupByPriorityThenDiscount() {
+        List<Offer> offers = List.of(
+                new Offer(coupon(1L, 10.0), stackingMasks.maskOf("welcome", true), 0),
+                new Offer(coupon(2L, 5.0), stackingMasks.maskOf("welcome", true), 1),
+                new Offer(coupon(3L, 8.0), stackingMasks.maskOf("summer", true), 0),
+                new Offer(coupon(4L, 9.0), stackingMasks.maskOf("summer", true), 0),
+                new Offer(coupon(5L, 1.0), stackingMasks.maskOf(null, true), 0));
+
+        assertThat(couponIds(resolve(offers))).containsExactly(2L, 4L, 5L);
+        assertThat(stackingMasks.getGroupCount()).isEqualTo(2);
+    }
+
+    @Test
+    void resolve_CouponThatDoesNotStack_ShouldOnlyBeOfferedAlone() {
+        StackingMasks.Mask alone = stackingMasks.maskOf(null, false);
+
+        assertThat(couponIds(resolve(List.of(
+                new Offer(coupon(1L, 10.0), StackingMasks.STACKS_FREELY, 0),
+                new Offer(coupon(2L, 5.0), alone, 1),
+                new Offer(coupon(3L, 7.0), StackingMasks.STACKS_FREELY, 0)))))
+                .containsExactly(2L);
+        assertThat(couponIds(resolve(List.of(
+                new Offer(coupon(1L, 10.0), StackingMasks.STACKS_FREELY, 0),
+                new Offer(coupon(2L, 5.0), alone, 0),
+                new Offer(coupon(3L, 7.0), StackingMasks.STACKS_FREELY, 0)))))
+                .containsExactly(1L, 3L);
+    }
+
+    @Test
+    void resolve_WhenNothingConflicts_ShouldReturnTheListAsIs() {
+        List<Offer> offers = List.of(
+                new Offer(coupon(1L, 10.0), stackingMasks.maskOf(null, true), 3),
+                new Offer(coupon(2L, 5.0), stackingMasks.maskOf(null, true), 0));
+        List<ApplicableCouponDTO> applicable = offers.stream().map(Offer::coupon).toList();
+
+        assertThat(StackingMasks.resolve(applicable, i -> offers.get(i).mask(), i -> offers.get(i).priority()))
+                .isSameAs(applicable);
+    }
+
+    @Test
+    void maskOf_ShouldShareMasksOfTheSameGroupAndStacking() {
+        assertThat(stackingMasks.maskOf("welcome", true)).isSameAs(stackingMasks.maskOf("welcome", true));
+        assertThat(stackingMasks.maskOf("welcome", false)).isNotSameAs(stackingMasks.maskOf("welcome", true));
+        assertThat(stackingMasks.maskOf(null, true)).isSameAs(StackingMasks.STACKS_FREELY);
+    }
+
+    private static List<ApplicableCouponDTO> resolve(List<Offer> offers) {
+        return StackingMasks.resolve(offers.stream().map(Offer::coupon).toList(),
+                i -> offers.get(i).mask(), i -> offers.get(i).priority());
+    }
+
+    private static List<Long> couponIds(List<ApplicableCouponDTO> coupons) {
+        List<Long> ids = new ArrayList<>();
+        coupons.forEach(coupon -> ids.add(coupon.getCouponId()));
+        return ids;
+    }
+
+    private static ApplicableCouponDTO coupon(Long couponId, double discount) {
+        return ApplicableCouponDTO.builder()
+                .couponId(couponId)
+                .discount(discount)
+                .build();
+    }
+
+    private record Offer(ApplicableCouponDTO coupon, StackingMasks.Mask mask, int priority) {
+    }
+}
@@ -0,0 +1,203 @@
+package com.monkcommercecoupons.management.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.monkcommercecoupons.management.MonkCommerceCouponsManagementApplication;
+import com.monkcommercecoupons.management.engine.CompactCouponCatalog;
+import com.monkcommercecoupons.management.engine.CouponChangeFeed;
+import com.monkcommercecoupons.management.engine.CouponEvaluationNetwork;
+import com.monkcommercecoupons.management.model.dto.*;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.repository.CouponChangeRepository;
+import com.monkcommercecoupons.management.service.CouponService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application contexts on one file-based H2 database, standing in for two instances.
+ */
+class CouponChangeFeedTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path storeDirectory;
+
+    @Test
+    void writesOnOneInstance_ShouldReachTheOtherThroughTheChangeFeed() {
+        try (ConfigurableApplicationContext writer = start();
+             ConfigurableApplicationContext reader = start()) {
+            CouponService writerService = writer.getBean(CouponService.class);
+            CouponService readerService = reader.getBean(CouponService.class);
+            CouponEvaluationNetwork readerNetwork = reader.getBean(CouponEvaluationNetwork.class);
+
+            assertThat(applicableIds(readerService, 150.0)).isEmpty();
+
+            Long couponId = writerService.createCoupon(Coupon.DEFAULT_MERCHANT_ID, CouponDTO.builder()
+                    .code("FEED10")
+                    .type(CouponType.CART_WISE)
+                    .details(cartWise(100.0))
+                    .isActive(true)
+                    .build()).getId();
+            assertThat(awaitApplicableIds(readerService, 150.0, couponId)).containsExactly(couponId);
+
+            writerService.updateCoupon(Coupon.DEFAULT_MERCHANT_ID, couponId, CouponDTO.builder().details(cartWise(200.0)).build());
+            assertThat(awaitApplicableIds(readerService, 150.0)).isEmpty();
+            assertThat(applicableIds(readerService, 250.0)).containsExactly(couponId);
+
+            writerService.deleteCoupon(Coupon.DEFAULT_MERCHANT_ID, couponId);
+            assertThat(awaitApplicableIds(readerService, 250.0)).isEmpty();
+            assertThat(readerNetwork.getCouponCount()).isZero();
+            long maxId = writer.getBean(CouponChangeRepository.class).findMaxId();
+            CouponChangeFeed readerFeed = reader.getBean(CouponChangeFeed.class);
+            awaitUntil(() -> readerFeed.getWatermark() == maxId);
+            assertThat(readerFeed.getWatermark()).isEqualTo(maxId);
+        }
+    }
+
+    @Test
+    void writesOnOneInstance_ShouldReachTheCompactCatalogOfTheOther() throws InterruptedException {
+        try (ConfigurableApplicationContext writer = start();
+             ConfigurableApplicationContext reader = start("--coupons.catalog.engine=compact",
+                     "--coupons.catalog.compaction-threshold=1")) {
+            CouponService writerService = writer.getBean(CouponService.class);
+            CouponService readerService = reader.getBean(CouponService.class);
+            CompactCouponCatalog readerCatalog = reader.getBean(CompactCouponCatalog.class);
+
+            // A merchant owning no coupon keeps no catalog and isn't loaded again for a while.
+            assertThat(readerService.getApplicableCoupons("unknown", cartRequest(150.0)).getApplicableCoupons()).isEmpty();
+            assertThat(readerCatalog.getEmptyMerchantCount()).isEqualTo(1);
+            assertThat(readerCatalog.getBufferBytes()).isZero();
+
+            Long baseId = writerService.createCoupon(Coupon.DEFAULT_MERCHANT_ID, CouponDTO.builder()
+                    .code("BASE5")
+                    .type(CouponType.CART_WISE)
+                    .description("Loaded with the segment")
+                    .details(cartWise(50.0))
+                    .isActive(true)
+                    .build()).getId();
+            // Loaded after the reader has read this write, so only the writes below are masked.
+            long maxId = writer.getBean(CouponChangeRepository.class).findMaxId();
+            CouponChangeFeed readerFeed = reader.getBean(CouponChangeFeed.class);
+            awaitUntil(() -> readerFeed.getWatermark() == maxId);
+            assertThat(applicable(readerService, 150.0)).singleElement().satisfies(coupon -> {
+                assertThat(coupon.getCouponId()).isEqualTo(baseId);
+                assertThat(coupon.getDescription()).isEqualTo("Loaded with the segment");
+                assertThat(coupon.getDiscount()).isEqualTo(15.0);
+            });
+
+            Long couponId = writerService.createCoupon(Coupon.DEFAULT_MERCHANT_ID, CouponDTO.builder()
+                    .code("FEED10")
+                    .type(CouponType.CART_WISE)
+                    .details(cartWise(100.0))
+                    .isActive(true)
+                    .build()).getId();
+            assertThat(awaitApplicableIds(readerService, 150.0, baseId, couponId)).containsExactly(baseId, couponId);
+
+            writerService.updateCoupon(Coupon.DEFAULT_MERCHANT_ID, baseId, CouponDTO.builder().details(cartWise(200.0)).build());
+            assertThat(awaitApplicableIds(readerService, 150.0, couponId)).containsExactly(couponId);
+            assertThat(applicableIds(readerService, 250.0)).containsExactly(baseId, couponId);
+
+            // Two masked coupons exceed the threshold of one: the segment is rebuilt in the background.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (readerCatalog.getMaskedCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(readerCatalog.getMaskedCount()).isZero();
+            assertThat(readerCatalog.getCouponCount()).isEqualTo(2);
+
+            writerService.deleteCoupon(Coupon.DEFAULT_MERCHANT_ID, couponId);
+            assertThat(awaitApplicableIds(readerService, 250.0, baseId)).containsExactly(baseId);
+            assertThat(readerCatalog.getCouponCount()).isEqualTo(1);
+
+            // Code lookups and price previews are answered from the compact catalog as well.
+            ObjectNode productWise = objectMapper.createObjectNode();
+            productWise.put("productId", 1);
+            productWise.put("discount", 20.0);
+            Long productWiseId = writerService.createCoupon(Coupon.DEFAULT_MERCHANT_ID, CouponDTO.builder()
+                    .code("P20")
+                    .type(CouponType.PRODUCT_WISE)
+                    .details(productWise)
+                    .isActive(true)
+                    .build()).getId();
+            awaitUntil(() -> readerCatalog.versionOf(Coupon.DEFAULT_MERCHANT_ID, productWiseId) != null);
+            assertThat(readerService.applyCouponByCode(Coupon.DEFAULT_MERCHANT_ID, "client-1", " base5 ", cartRequest(250.0))
+                    .getUpdatedCart().getTotalDiscount()).isEqualTo(25.0);
+            assertThat(readerCatalog.versionOf(Coupon.DEFAULT_MERCHANT_ID, baseId)).isNotNull();
+            assertThat(readerService.previewPrices(Coupon.DEFAULT_MERCHANT_ID, PricePreviewRequest.builder()
+                    .products(List.of(ProductPriceDTO.builder().productId(1L).price(100.0).build()))
+                    .build()).getPreviews()).singleElement().satisfies(preview -> {
+                assertThat(preview.getBestProductWise().getCouponId()).isEqualTo(productWiseId);
+                assertThat(preview.getBestProductWise().getDiscount()).isEqualTo(20.0);
+                assertThat(preview.getBestBxGy()).isNull();
+            });
+            assertThat(reader.getBean(CouponEvaluationNetwork.class).getCouponCount()).isZero();
+        }
+    }
+
+    private List<ApplicableCouponDTO> applicable(CouponService couponService, double price) {
+        return couponService.getApplicableCoupons(Coupon.DEFAULT_MERCHANT_ID, cartRequest(price)).getApplicableCoupons();
+    }
+
+    private static CartRequest cartRequest(double price) {
+        CartRequest request = new CartRequest();
+        request.setCart(CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(1).price(price).build()))
+                .build());
+        return request;
+    }
+
+    private List<Long> applicableIds(CouponService couponService, double price) {
+        return applicable(couponService, price).stream()
+                .map(ApplicableCouponDTO::getCouponId)
+                .toList();
+    }
+
+    /**
+     * Repeats the request until it returns the expected coupons, as the reader applies changes
+     * on its poller thread, and returns what it last got.
+     */
+    private List<Long> awaitApplicableIds(CouponService couponService, double price, Long... expected) {
+        awaitUntil(() -> applicableIds(couponService, price).equals(List.of(expected)));
+        return applicableIds(couponService, price);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private ObjectNode cartWise(double threshold) {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", threshold);
+        details.put("discount", 10.0);
+        return details;
+    }
+
+    private ConfigurableApplicationContext start(String... arguments) {
+        List<String> args = new ArrayList<>(List.of("--coupons.store.directory=" + storeDirectory,
+                "--coupons.catalog.refresh=change-feed",
+                "--coupons.catalog.poll-interval=20ms",
+                "--coupons.warmup.enabled=false"));
+        args.addAll(List.of(arguments));
+        return new SpringApplicationBuilder(MonkCommerceCouponsManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test", "durable")
+                .run(args.toArray(String[]::new));
+    }
+}
@@ -8,22 +8,29 @@ import com.monkcommercecoupons.management.model.dto.CartItemDTO;
 import com.monkcommercecoupons.management.model.dto.CartRequest;
 import com.monkcommercecoupons.management.model.dto.CouponDTO;
 import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.repository.CouponRedemptionRepository;
+import com.monkcommercecoupons.management.repository.CouponRedemptionStatsRepository;
 import com.monkcommercecoupons.management.repository.CouponRepository;
+import com.monkcommercecoupons.management.service.CouponArchiveService;
+import com.monkcommercecoupons.management.service.RedemptionStatsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -43,6 +50,21 @@ class CouponControllerIntegrationTest {
     @Autowired
     private CouponRepository couponRepository;
 
+    @Autowired
+    private RedemptionStatsService redemptionStatsService;
+
+    @Autowired
+    private CouponRedemptionStatsRepository redemptionStatsRepository;
+
+    @Autowired
+    private CouponRedemptionRepository redemptionRepository;
+
+    @Autowired
+    private CouponArchiveService couponArchiveService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         couponRepository.deleteAll();
@@ -154,6 +176,32 @@ class CouponControllerIntegrationTest {
                         .content(objectMapper.writeValueAsString(couponDTO)))
                 .andExpect(status().isConflict())
                 .andExpect(jsonPath("$.message").value(containsString("DUPLICATE")));
+
+        couponDTO.setCode(" duplicate ");
+        mockMvc.perform(post("/coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(couponDTO)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void createCoupon_MalformedDetails_ShouldReturn400() throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", "not-a-number");
+        details.put("discount", 10.0);
+
+        CouponDTO couponDTO = CouponDTO.builder()
+                .code("BROKEN")
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .isActive(true)
+                .build();
+
+        mockMvc.perform(post("/coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(couponDTO)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("Invalid coupon details")));
     }
 
     @Test
@@ -180,6 +228,44 @@ class CouponControllerIntegrationTest {
                 .andExpect(jsonPath("$.code").value("SAVE10"));
     }
 
+    @Test
+    void searchCoupons_ByPrefix_ShouldReturnPagesInCodeOrder() throws Exception {
+        for (String code : List.of("DIWALI24-B", "SAVE10", "DIWALI24-A")) {
+            ObjectNode details = objectMapper.createObjectNode();
+            details.put("threshold", 100.0);
+            details.put("discount", 10.0);
+            CouponDTO couponDTO = CouponDTO.builder()
+                    .code(code)
+                    .type(CouponType.CART_WISE)
+                    .details(details)
+                    .build();
+            mockMvc.perform(post("/coupons").header("X-Merchant-Id", "search-merchant")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(couponDTO)))
+                    .andExpect(status().isCreated());
+        }
+
+        MvcResult firstPage = mockMvc.perform(get("/coupons/search").header("X-Merchant-Id", "search-merchant")
+                        .param("prefix", "diwali24-")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.coupons[*].code").value(contains("DIWALI24-A")))
+                .andExpect(jsonPath("$.next_cursor").exists())
+                .andReturn();
+        String cursor = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("next_cursor").asText();
+
+        mockMvc.perform(get("/coupons/search").header("X-Merchant-Id", "search-merchant")
+                        .param("prefix", "diwali24-")
+                        .param("limit", "1")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.coupons[*].code").value(contains("DIWALI24-B")))
+                .andExpect(jsonPath("$.next_cursor").doesNotExist());
+
+        mockMvc.perform(get("/coupons/search").param("prefix", "A").param("from", "B"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getCouponById_NonExistingCoupon_ShouldReturn404() throws Exception {
         mockMvc.perform(get("/coupons/999"))
@@ -245,6 +331,175 @@ class CouponControllerIntegrationTest {
                 .andExpect(jsonPath("$.applicable_coupons[0].discount").exists());
     }
 
+    @Test
+    void coupons_OfDifferentMerchants_ShouldBeIsolated() throws Exception {
+        Long acmeId = createMerchantCoupon("acme", 100.0);
+        Long globexId = createMerchantCoupon("globex", 500.0);
+
+        mockMvc.perform(get("/coupons").header("X-Merchant-Id", "acme"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(acmeId))
+                .andExpect(jsonPath("$[0].merchantId").value("acme"));
+
+        mockMvc.perform(get("/coupons/" + acmeId).header("X-Merchant-Id", "globex"))
+                .andExpect(status().isNotFound());
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("cart", CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(1).price(600.0).build()))
+                .build());
+        String body = objectMapper.writeValueAsString(request);
+
+        mockMvc.perform(post("/applicable-coupons").header("X-Merchant-Id", "globex")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applicable_coupons", hasSize(1)))
+                .andExpect(jsonPath("$.applicable_coupons[0].coupon_id").value(globexId));
+
+        mockMvc.perform(post("/apply-coupon/" + globexId).header("X-Merchant-Id", "acme")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/applicable-coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applicable_coupons", hasSize(0)));
+    }
+
+    @Test
+    void requests_WithTooLongMerchantId_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/coupons").header("X-Merchant-Id", "m".repeat(51)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.validationErrors.merchantId").exists());
+        mockMvc.perform(get("/coupons").header("X-Merchant-Id", "m".repeat(50)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void applyCoupon_BxGyWithDuplicateCartLines_ShouldMergeLines() throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        ArrayNode buyProducts = details.putArray("buyProducts");
+        buyProducts.addObject().put("productId", 1).put("quantity", 2);
+        ArrayNode getProducts = details.putArray("getProducts");
+        getProducts.addObject().put("productId", 3).put("quantity", 1);
+        details.put("repetitionLimit", 1);
+
+        CouponDTO couponDTO = CouponDTO.builder()
+                .code("B2G1")
+                .type(CouponType.BXGY)
+                .details(details)
+                .isActive(true)
+                .build();
+
+        MvcResult result = mockMvc.perform(post("/coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(couponDTO)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long couponId = objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(
+                        CartItemDTO.builder().productId(1L).quantity(1).price(100.0).build(),
+                        CartItemDTO.builder().productId(3L).quantity(1).price(50.0).build(),
+                        CartItemDTO.builder().productId(1L).quantity(1).price(100.0).build()
+                ))
+                .build();
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("cart", cart);
+
+        mockMvc.perform(post("/apply-coupon/" + couponId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated_cart.items", hasSize(2)))
+                .andExpect(jsonPath("$.updated_cart.items[0].quantity").value(2))
+                .andExpect(jsonPath("$.updated_cart.total_discount").value(50.0));
+    }
+
+    @Test
+    void getApplicableCoupons_WithConditions_ShouldOnlyReturnMatchingCoupons() throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", 100.0);
+        details.put("discount", 10.0);
+        ObjectNode conditions = details.putObject("conditions");
+        conditions.put("op", "products");
+        conditions.put("match", "ALL");
+        conditions.putArray("productIds").add(1).add(2);
+
+        CouponDTO couponDTO = CouponDTO.builder()
+                .code("BUNDLE10")
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .isActive(true)
+                .build();
+
+        mockMvc.perform(post("/coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(couponDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.details.conditions.op").value("products"));
+
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(
+                        CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build()
+                ))
+                .build();
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("cart", cart);
+
+        mockMvc.perform(post("/applicable-coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applicable_coupons[?(@.code == 'BUNDLE10')]").isEmpty());
+
+        cart.setItems(List.of(
+                CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build(),
+                CartItemDTO.builder().productId(2L).quantity(1).price(40.0).build()
+        ));
+
+        mockMvc.perform(post("/applicable-coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applicable_coupons[?(@.code == 'BUNDLE10')].discount").value(16.0));
+    }
+
+    @Test
+    void getApplicableCoupons_WithExclusivityGroupsAndStacking_ShouldOfferACompatibleSet() throws Exception {
+        createCoupon(stackingCoupon("WELCOME10", 10.0, "welcome", null, null));
+        createCoupon(stackingCoupon("WELCOME5", 5.0, "welcome", null, 1));
+        createCoupon(stackingCoupon("EXTRA5", 5.0, null, null, null));
+
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build()))
+                .build();
+        Map<String, Object> request = new HashMap<>();
+        request.put("cart", cart);
+
+        // WELCOME5 has precedence in its group despite the smaller discount; EXTRA5 stacks with it.
+        mockMvc.perform(post("/applicable-coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applicable_coupons[*].code", contains("WELCOME5", "EXTRA5")));
+
+        createCoupon(stackingCoupon("SOLO20", 20.0, null, false, 5));
+
+        mockMvc.perform(post("/applicable-coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applicable_coupons[*].code", contains("SOLO20")));
+    }
+
     @Test
     void applyCoupon_ValidCartWiseCoupon_ShouldReturnUpdatedCart() throws Exception {
         MvcResult result = createTestCoupon("SAVE10", CouponType.CART_WISE);
@@ -274,6 +529,275 @@ class CouponControllerIntegrationTest {
                 .andExpect(jsonPath("$.updated_cart.final_price").value(108.0));
     }
 
+    @Test
+    void applyCoupon_ShouldBeRecordedInLedgerAndStats() throws Exception {
+        MvcResult result = createTestCoupon("STATS10", CouponType.CART_WISE);
+        Long couponId = objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build()))
+                .build();
+        Map<String, Object> request = new HashMap<>();
+        request.put("cart", cart);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/apply-coupon/" + couponId)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/coupons/" + couponId + "/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.redemptions").value(2))
+                .andExpect(jsonPath("$.total_discount").value(24.0))
+                .andExpect(jsonPath("$.average_discount").value(12.0));
+
+        // The ledger commits on its own thread before the response is sent.
+        assertThat(redemptionRepository.findByMerchantIdAndCouponIdOrderByIdAsc("default", couponId))
+                .hasSize(2)
+                .allSatisfy(redemption -> assertThat(redemption.getFinalPrice()).isEqualTo(108.0));
+
+        redemptionStatsService.flush();
+
+        assertThat(redemptionStatsRepository.findById(couponId))
+                .hasValueSatisfying(stats -> assertThat(stats.getRedemptions()).isEqualTo(2));
+        mockMvc.perform(get("/coupons/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.coupon_id == " + couponId + ")].redemptions").value(contains(2)));
+
+        // Two idle flushes drop the coupon's accumulator; the next redemption starts a new one.
+        redemptionStatsService.flush();
+        redemptionStatsService.flush();
+        mockMvc.perform(post("/apply-coupon/" + couponId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/coupons/" + couponId + "/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.redemptions").value(3));
+        redemptionStatsService.flush();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT redemptions FROM coupon_redemption_stats WHERE coupon_id = ?", Long.class, couponId))
+                .isEqualTo(3L);
+    }
+
+    @Test
+    void previewPrices_ShouldReturnBestOfferPerProduct() throws Exception {
+        MvcResult productWise = createTestCoupon("P20", CouponType.PRODUCT_WISE);
+        Long productWiseId = objectMapper.readTree(productWise.getResponse().getContentAsString()).get("id").asLong();
+
+        ObjectNode details = objectMapper.createObjectNode();
+        details.putArray("buyProducts").addObject().put("productId", 2).put("quantity", 2);
+        details.putArray("getProducts").addObject().put("productId", 2).put("quantity", 1);
+        CouponDTO bxGy = CouponDTO.builder()
+                .code("B2G1")
+                .type(CouponType.BXGY)
+                .details(details)
+                .isActive(true)
+                .build();
+        MvcResult bxGyResult = mockMvc.perform(post("/coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bxGy)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long bxGyId = objectMapper.readTree(bxGyResult.getResponse().getContentAsString()).get("id").asLong();
+
+        String request = """
+                {"products": [
+                  {"product_id": 1, "price": 50.0},
+                  {"product_id": 2, "price": 30.0, "quantity": 3},
+                  {"product_id": 99, "price": 10.0}
+                ]}""";
+
+        mockMvc.perform(post("/price-preview")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(request))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.previews", hasSize(3)))
+                .andExpect(jsonPath("$.previews[0].best_product_wise.coupon_id").value(productWiseId))
+                .andExpect(jsonPath("$.previews[0].best_product_wise.discount").value(10.0))
+                .andExpect(jsonPath("$.previews[0].best_bxgy").doesNotExist())
+                .andExpect(jsonPath("$.previews[1].quantity").value(3))
+                .andExpect(jsonPath("$.previews[1].best_bxgy.coupon_id").value(bxGyId))
+                .andExpect(jsonPath("$.previews[1].best_bxgy.discount").value(30.0))
+                .andExpect(jsonPath("$.previews[2].best_product_wise").doesNotExist())
+                .andExpect(jsonPath("$.previews[2].best_bxgy").doesNotExist());
+    }
+
+    @Test
+    void applyCouponByCode_ShouldIgnoreCaseAndRejectUnknownCodes() throws Exception {
+        createTestCoupon("SAVE10", CouponType.CART_WISE);
+        Map<String, Object> request = new HashMap<>();
+        request.put("cart", CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build()))
+                .build());
+
+        mockMvc.perform(post("/apply-coupon/code/save10")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated_cart.total_discount").value(12.0));
+
+        mockMvc.perform(post("/apply-coupon/code/SAVE99")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void generateCoupons_ShouldCreateSingleUseCodesFromPattern() throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", 100.0);
+        details.put("discount", 10.0);
+        details.put("discountType", "PERCENTAGE");
+        Map<String, Object> generate = new HashMap<>();
+        generate.put("count", 300);
+        generate.put("pattern", "gift-????");
+        generate.put("type", "CART_WISE");
+        generate.put("details", details);
+
+        mockMvc.perform(post("/coupons/generate")
+                        .header("X-Merchant-Id", "gen-merchant")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(generate)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.generated").value(300))
+                .andExpect(jsonPath("$.search_prefix").value("GIFT-"));
+
+        List<String> codes = couponRepository.findByMerchantId("gen-merchant").stream()
+                .map(coupon -> coupon.getCode())
+                .toList();
+        assertThat(codes).hasSize(300).doesNotHaveDuplicates().allMatch(code -> code.matches("GIFT-[A-Z2-9]{4}"));
+        mockMvc.perform(get("/coupons/search")
+                        .header("X-Merchant-Id", "gen-merchant")
+                        .param("prefix", "gift-")
+                        .param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.coupons", hasSize(100)))
+                .andExpect(jsonPath("$.coupons[0].singleUse").value(true));
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("cart", CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build()))
+                .build());
+        String body = objectMapper.writeValueAsString(request);
+        mockMvc.perform(post("/applicable-coupons").header("X-Merchant-Id", "gen-merchant")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(jsonPath("$.applicable_coupons", hasSize(0)));
+        mockMvc.perform(post("/apply-coupon/code/" + codes.get(0).toLowerCase())
+                        .header("X-Merchant-Id", "gen-merchant")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated_cart.total_discount").value(12.0));
+        mockMvc.perform(post("/apply-coupon/code/" + codes.get(0))
+                        .header("X-Merchant-Id", "gen-merchant")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Coupon has already been used"));
+    }
+
+    @Test
+    void generateCoupons_PatternTooSmallForCount_ShouldReturn400() throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", 100.0);
+        details.put("discount", 10.0);
+        details.put("discountType", "PERCENTAGE");
+        Map<String, Object> generate = new HashMap<>();
+        generate.put("count", 10);
+        generate.put("pattern", "AB?");
+        generate.put("type", "CART_WISE");
+        generate.put("details", details);
+
+        mockMvc.perform(post("/coupons/generate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(generate)))
+                .andExpect(status().isBadRequest());
+        assertThat(couponRepository.findByMerchantId("default")).isEmpty();
+    }
+
+    @Test
+    void sweep_ShouldDeactivateExpiredCouponsAndArchiveThemAfterRetention() throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", 100.0);
+        details.put("discount", 10.0);
+        details.put("discountType", "PERCENTAGE");
+        Long expiredId = createCoupon(CouponDTO.builder()
+                .code("EXPIRED10")
+                .type(CouponType.CART_WISE)
+                .description("Ended last week")
+                .details(details)
+                .expirationDate(LocalDateTime.now().minusDays(7))
+                .build());
+        Long liveId = createCoupon(CouponDTO.builder()
+                .code("LIVE10")
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .expirationDate(LocalDateTime.now().plusDays(7))
+                .build());
+
+        assertThat(couponArchiveService.sweep()).isEqualTo(new CouponArchiveService.SweepResult(1, 0, 0));
+        assertThat(jdbcTemplate.queryForObject("SELECT is_active FROM coupons WHERE id = ?", Boolean.class, expiredId)).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT is_active FROM coupons WHERE id = ?", Boolean.class, liveId)).isTrue();
+
+        jdbcTemplate.update("UPDATE coupons SET updated_at = ? WHERE id = ?", LocalDateTime.now().minusDays(31), expiredId);
+        int changes = jdbcTemplate.update("UPDATE coupon_changes SET changed_at = ?", LocalDateTime.now().minusDays(2));
+        assertThat(changes).isPositive();
+        assertThat(couponArchiveService.sweep()).isEqualTo(new CouponArchiveService.SweepResult(0, 1, changes));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_changes", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupons WHERE id = ?", Long.class, expiredId)).isZero();
+
+        mockMvc.perform(get("/coupons/archived/" + expiredId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value("EXPIRED10"))
+                .andExpect(jsonPath("$.description").value("Ended last week"))
+                .andExpect(jsonPath("$.details.discount").value(10.0))
+                .andExpect(jsonPath("$.isActive").value(false))
+                .andExpect(jsonPath("$.archivedAt").exists());
+        mockMvc.perform(get("/coupons/archived").param("code", " expired10 "))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(expiredId));
+        mockMvc.perform(get("/coupons/archived/" + liveId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void sweep_ShouldKeepUsedCouponsForRetentionFromTheirUse() throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", 100.0);
+        details.put("discount", 10.0);
+        Map<String, Object> generate = new HashMap<>();
+        generate.put("count", 1);
+        generate.put("pattern", "OLD-????");
+        generate.put("type", "CART_WISE");
+        generate.put("details", details);
+        mockMvc.perform(post("/coupons/generate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(generate)))
+                .andExpect(status().isCreated());
+        String code = couponRepository.findByMerchantId("default").get(0).getCode();
+        jdbcTemplate.update("UPDATE coupons SET created_at = ?, updated_at = ? WHERE code = ?",
+                LocalDateTime.now().minusDays(40), LocalDateTime.now().minusDays(40), code);
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("cart", CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build()))
+                .build());
+        mockMvc.perform(post("/apply-coupon/code/" + code)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        assertThat(couponArchiveService.sweep()).isEqualTo(new CouponArchiveService.SweepResult(0, 0, 0));
+        assertThat(jdbcTemplate.queryForObject("SELECT is_active FROM coupons WHERE code = ?", Boolean.class, code))
+                .isFalse();
+    }
+
     @Test
     void applyCoupon_InvalidCouponId_ShouldReturn404() throws Exception {
         CartDTO cart = CartDTO.builder()
@@ -366,4 +890,50 @@ class CouponControllerIntegrationTest {
                 .andExpect(status().isCreated())
                 .andReturn();
     }
+
+    private Long createCoupon(CouponDTO couponDTO) throws Exception {
+        MvcResult result = mockMvc.perform(post("/coupons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(couponDTO)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    private CouponDTO stackingCoupon(String code, double discount, String exclusivityGroup, Boolean stackable,
+                                     Integer priority) {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", 50.0);
+        details.put("discount", discount);
+
+        return CouponDTO.builder()
+                .code(code)
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .isActive(true)
+                .exclusivityGroup(exclusivityGroup)
+                .stackable(stackable)
+                .priority(priority)
+                .build();
+    }
+
+    private Long createMerchantCoupon(String merchantId, double threshold) throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", threshold);
+        details.put("discount", 10.0);
+
+        CouponDTO couponDTO = CouponDTO.builder()
+                .code("SAVE10")
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .isActive(true)
+                .build();
+
+        MvcResult result = mockMvc.perform(post("/coupons").header("X-Merchant-Id", merchantId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(couponDTO)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+    }
 }
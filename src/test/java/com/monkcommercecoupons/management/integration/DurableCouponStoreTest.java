@@ -0,0 +1,64 @@
+package com.monkcommercecoupons.management.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.monkcommercecoupons.management.MonkCommerceCouponsManagementApplication;
+import com.monkcommercecoupons.management.model.dto.*;
+import com.monkcommercecoupons.management.model.entity.Coupon;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.service.CouponService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DurableCouponStoreTest {
+
+    @TempDir
+    Path storeDirectory;
+
+    @Test
+    void coupons_ShouldSurviveRestart() {
+        Long couponId;
+        try (ConfigurableApplicationContext context = start()) {
+            ObjectNode details = new ObjectMapper().createObjectNode();
+            details.put("threshold", 100.0);
+            details.put("discount", 10.0);
+
+            couponId = context.getBean(CouponService.class).createCoupon(Coupon.DEFAULT_MERCHANT_ID, CouponDTO.builder()
+                    .code("DURABLE10")
+                    .type(CouponType.CART_WISE)
+                    .details(details)
+                    .isActive(true)
+                    .build()).getId();
+        }
+
+        assertThat(storeDirectory.resolve("couponsdb.mv.db")).exists();
+
+        try (ConfigurableApplicationContext context = start()) {
+            CouponService couponService = context.getBean(CouponService.class);
+            assertThat(couponService.getCouponById(Coupon.DEFAULT_MERCHANT_ID, couponId).getCode()).isEqualTo("DURABLE10");
+
+            CartRequest request = new CartRequest();
+            request.setCart(CartDTO.builder()
+                    .items(List.of(CartItemDTO.builder().productId(1L).quantity(1).price(150.0).build()))
+                    .build());
+            assertThat(couponService.getApplicableCoupons(Coupon.DEFAULT_MERCHANT_ID, request).getApplicableCoupons())
+                    .extracting(ApplicableCouponDTO::getCouponId)
+                    .containsExactly(couponId);
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(MonkCommerceCouponsManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test", "durable")
+                .run("--coupons.store.directory=" + storeDirectory, "--coupons.warmup.enabled=false");
+    }
+}
@@ -0,0 +1,107 @@
+package com.monkcommercecoupons.management.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import com.monkcommercecoupons.management.model.dto.CartRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "coupons.capture.enabled=true",
+        "coupons.capture.sample-rate=1",
+        "coupons.capture.flush-interval=10ms"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TrafficCaptureTest {
+
+    @TempDir
+    static Path captureDirectory;
+
+    @DynamicPropertySource
+    static void captureProperties(DynamicPropertyRegistry registry) {
+        registry.add("coupons.capture.directory", () -> captureDirectory.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void sampledRequests_ShouldBeAppendedWithTheirResponses() throws Exception {
+        CartRequest request = new CartRequest(CartDTO.builder()
+                .items(List.of(
+                        CartItemDTO.builder().productId(2L).quantity(1).price(40.0).build(),
+                        CartItemDTO.builder().productId(2L).quantity(1).price(40.0).build()))
+                .build());
+        String body = objectMapper.writeValueAsString(request);
+
+        mockMvc.perform(post("/applicable-coupons").header("X-Merchant-Id", "capture-merchant")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/apply-coupon/999999").header("X-Merchant-Id", "capture-merchant")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isNotFound());
+
+        List<JsonNode> lines = awaitLines(2);
+        JsonNode applicable = lines.get(0);
+        assertThat(applicable.get("endpoint").asText()).isEqualTo("/applicable-coupons");
+        assertThat(applicable.get("merchant").asText()).isEqualTo("capture-merchant");
+        assertThat(applicable.get("status").asInt()).isEqualTo(200);
+        // The cart as sent, before its duplicate lines were merged.
+        assertThat(applicable.get("cart").get("items")).hasSize(2);
+        assertThat(applicable.get("response").get("applicable_coupons")).isEmpty();
+        assertThat(applicable.get("latency_micros").asLong()).isPositive();
+
+        JsonNode apply = lines.get(1);
+        assertThat(apply.get("endpoint").asText()).isEqualTo("/apply-coupon/{id}");
+        assertThat(apply.get("path").asText()).isEqualTo("/apply-coupon/999999");
+        assertThat(apply.get("status").asInt()).isEqualTo(404);
+        assertThat(apply.get("response").get("message").asText()).contains("999999");
+    }
+
+    private List<JsonNode> awaitLines(int count) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        List<JsonNode> lines = new ArrayList<>();
+        while (System.nanoTime() < deadline) {
+            lines.clear();
+            try (Stream<Path> files = Files.list(captureDirectory)) {
+                for (Path file : files.sorted().toList()) {
+                    for (String line : Files.readAllLines(file)) {
+                        lines.add(objectMapper.readTree(line));
+                    }
+                }
+            }
+            if (lines.size() >= count) {
+                return lines;
+            }
+            Thread.sleep(20);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,111 @@
+package com.monkcommercecoupons.management.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.monkcommercecoupons.management.config.ReplayProperties;
+import com.monkcommercecoupons.management.model.dto.ApplicableCouponsResponse;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import com.monkcommercecoupons.management.model.dto.CartRequest;
+import com.monkcommercecoupons.management.model.dto.CouponDTO;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import com.monkcommercecoupons.management.replay.ReplayReport;
+import com.monkcommercecoupons.management.replay.TrafficReplay;
+import com.monkcommercecoupons.management.service.CartNormalizer;
+import com.monkcommercecoupons.management.service.CouponService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class TrafficReplayTest {
+
+    private static final String MERCHANT = "replay-merchant";
+
+    @TempDir
+    Path directory;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CartNormalizer cartNormalizer;
+
+    @Test
+    void replay_ShouldReportLatencyAndDiffResponsesAgainstTheRecording() throws Exception {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", 100.0);
+        details.put("discount", 10.0);
+        details.put("discountType", "PERCENTAGE");
+        couponService.createCoupon(MERCHANT, CouponDTO.builder()
+                .code("REPLAY10")
+                .type(CouponType.CART_WISE)
+                .description("10% off on orders above 100")
+                .details(details)
+                .isActive(true)
+                .build());
+
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(100.0).build()))
+                .build();
+        String cartJson = objectMapper.writeValueAsString(cart);
+        ApplicableCouponsResponse expected = couponService.getApplicableCoupons(MERCHANT,
+                new CartRequest(cartNormalizer.normalize(objectMapper.readValue(cartJson, CartDTO.class))));
+        ObjectNode recorded = objectMapper.valueToTree(expected);
+        ObjectNode changed = recorded.deepCopy();
+        ((ObjectNode) changed.get("applicable_coupons").get(0)).put("discount", 25.0);
+
+        Path capture = directory.resolve("capture-1.ndjson");
+        Files.write(capture, List.of(
+                exchange("/applicable-coupons", cartJson, 200, recorded.toString()),
+                exchange("/applicable-coupons", cartJson, 200, changed.toString()),
+                exchange("/apply-coupon/999999", cartJson, 404, null),
+                "{\"merchant\":\"" + MERCHANT + "\",\"cart\":" + cartJson + "}",
+                "not json"));
+
+        ReplayProperties properties = new ReplayProperties();
+        properties.setInput(directory);
+        properties.setRate(100);
+        ReplayReport report = new TrafficReplay(properties, objectMapper,
+                URI.create("http://localhost:" + port + "/api/v1")).run();
+
+        assertThat(report.getRequests()).isEqualTo(4);
+        assertThat(report.getSkipped()).isEqualTo(1);
+        assertThat(report.getFailed()).isZero();
+        assertThat(report.getMatched()).isEqualTo(2);
+        assertThat(report.getUnrecorded()).isEqualTo(1);
+        assertThat(report.getMismatched()).isEqualTo(1);
+        assertThat(report.getMismatches()).singleElement().satisfies(mismatch -> {
+            assertThat(mismatch.getFile()).isEqualTo("capture-1.ndjson");
+            assertThat(mismatch.getLine()).isEqualTo(2);
+            assertThat(mismatch.getDifferences()).containsExactly("/applicable_coupons/0/discount: 25.0 != 20.0");
+        });
+        assertThat(report.getP50Micros()).isPositive();
+        assertThat(report.getP999Micros()).isGreaterThanOrEqualTo(report.getP99Micros());
+        assertThat(report.getRecordedP50Micros()).isEqualTo(150.0);
+        assertThat(report.getThroughput()).isPositive();
+    }
+
+    private String exchange(String path, String cartJson, int status, String response) {
+        return "{\"path\":\"" + path + "\",\"merchant\":\"" + MERCHANT + "\",\"cart\":" + cartJson
+                + ",\"status\":" + status + (response != null ? ",\"response\":" + response : "")
+                + ",\"latency_micros\":150}";
+    }
+}
@@ -0,0 +1,100 @@
+package com.monkcommercecoupons.management.model.condition;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConditionTest {
+
+    private static final LocalDateTime SATURDAY_NOON = LocalDateTime.of(2024, 6, 1, 12, 0);
+    private static final LocalDateTime MONDAY_NOON = LocalDateTime.of(2024, 6, 3, 12, 0);
+
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    private CartDTO cart;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        cart = CartDTO.builder()
+                .items(List.of(
+                        CartItemDTO.builder().productId(1L).quantity(2).price(100.0).build(),
+                        CartItemDTO.builder().productId(3L).quantity(1).price(50.0).build()
+                ))
+                .build();
+    }
+
+    @Test
+    void compile_NestedConditions_ShouldEvaluateAgainstCart() throws Exception {
+        Condition condition = parse("{\"op\":\"all\",\"conditions\":["
+                + "{\"op\":\"cart_total\",\"min\":200},"
+                + "{\"op\":\"item_count\",\"min\":3,\"max\":5},"
+                + "{\"op\":\"any\",\"conditions\":["
+                + "{\"op\":\"products\",\"match\":\"ALL\",\"productIds\":[1,2]},"
+                + "{\"op\":\"product_quantity\",\"productId\":1,\"min\":2}]},"
+                + "{\"op\":\"not\",\"condition\":{\"op\":\"products\",\"productIds\":[9]}}]}");
+
+        CartPredicate predicate = condition.compile();
+
+        assertThat(predicate.test(CartContext.of(cart, MONDAY_NOON))).isTrue();
+    }
+
+    @Test
+    void compile_CartTotalBelowMin_ShouldNotMatch() throws Exception {
+        CartPredicate predicate = parse("{\"op\":\"cart_total\",\"min\":500}").compile();
+
+        assertThat(predicate.test(CartContext.of(cart, MONDAY_NOON))).isFalse();
+    }
+
+    @Test
+    void compile_TimeWindow_ShouldMatchOnlyInsideWindow() throws Exception {
+        CartPredicate predicate = parse("{\"op\":\"time_window\",\"daysOfWeek\":[\"SATURDAY\",\"SUNDAY\"],"
+                + "\"startTime\":\"10:00:00\",\"endTime\":\"14:00:00\"}").compile();
+
+        assertThat(predicate.test(CartContext.of(cart, SATURDAY_NOON))).isTrue();
+        assertThat(predicate.test(CartContext.of(cart, SATURDAY_NOON.withHour(15)))).isFalse();
+        assertThat(predicate.test(CartContext.of(cart, MONDAY_NOON))).isFalse();
+    }
+
+    @Test
+    void compile_OvernightSlot_ShouldWrapPastMidnight() throws Exception {
+        CartPredicate predicate = parse("{\"op\":\"time_window\",\"startTime\":\"22:00:00\",\"endTime\":\"02:00:00\"}")
+                .compile();
+
+        assertThat(predicate.test(CartContext.of(cart, MONDAY_NOON.withHour(23)))).isTrue();
+        assertThat(predicate.test(CartContext.of(cart, MONDAY_NOON.withHour(1)))).isTrue();
+        assertThat(predicate.test(CartContext.of(cart, MONDAY_NOON))).isFalse();
+    }
+
+    @Test
+    void validate_InvalidNestedCondition_ShouldReportViolations() throws Exception {
+        Condition condition = parse("{\"op\":\"all\",\"conditions\":["
+                + "{\"op\":\"cart_total\",\"min\":500,\"max\":100},"
+                + "{\"op\":\"products\",\"productIds\":[]}]}");
+
+        assertThat(validator.validate(condition)).hasSize(2);
+    }
+
+    @Test
+    void equals_StructurallyIdenticalConditions_ShouldBeEqual() throws Exception {
+        String json = "{\"op\":\"all\",\"conditions\":[{\"op\":\"cart_total\",\"min\":100},"
+                + "{\"op\":\"item_count\",\"min\":2}]}";
+
+        assertThat(parse(json)).isEqualTo(parse(json)).hasSameHashCodeAs(parse(json));
+    }
+
+    private Condition parse(String json) throws Exception {
+        return objectMapper.readValue(json, Condition.class);
+    }
+}
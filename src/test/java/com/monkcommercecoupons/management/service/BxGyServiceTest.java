@@ -6,6 +6,7 @@ import com.monkcommercecoupons.management.model.dto.CartDTO;
 import com.monkcommercecoupons.management.model.dto.CartItemDTO;
 import com.monkcommercecoupons.management.model.entity.Coupon;
 import com.monkcommercecoupons.management.model.enums.CouponType;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -21,7 +22,8 @@ class BxGyServiceTest {
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        bxGyService = new BxGyServiceImpl(objectMapper);
+        bxGyService = new BxGyServiceImpl(
+                new CouponDetailsMapper(objectMapper, Validation.buildDefaultValidatorFactory().getValidator()));
     }
 
     @Test
@@ -0,0 +1,87 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartNormalizerTest {
+
+    private CartNormalizer cartNormalizer;
+
+    @BeforeEach
+    void setUp() {
+        cartNormalizer = new CartNormalizer();
+    }
+
+    @Test
+    void normalize_DuplicateProductLines_ShouldMergeAndSort() {
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(
+                        CartItemDTO.builder().productId(3L).quantity(1).price(50.0).build(),
+                        CartItemDTO.builder().productId(1L).quantity(2).price(100.0).build(),
+                        CartItemDTO.builder().productId(3L).quantity(2).price(50.0).build()
+                ))
+                .build();
+
+        CartDTO normalized = cartNormalizer.normalize(cart);
+
+        assertThat(normalized.isNormalized()).isTrue();
+        assertThat(normalized.getItems()).extracting(CartItemDTO::getProductId).containsExactly(1L, 3L);
+        assertThat(normalized.getQuantityOf(3L)).isEqualTo(3);
+        assertThat(normalized.getTotalPrice()).isEqualTo(cart.getTotalPrice());
+    }
+
+    @Test
+    void normalize_DifferentPricesForSameProduct_ShouldKeepCartTotal() {
+        CartDTO cart = CartDTO.builder()
+                .items(List.of(
+                        CartItemDTO.builder().productId(1L).quantity(1).price(100.0).build(),
+                        CartItemDTO.builder().productId(1L).quantity(3).price(60.0).build()
+                ))
+                .build();
+
+        CartDTO normalized = cartNormalizer.normalize(cart);
+
+        assertThat(normalized.getItems()).hasSize(1);
+        assertThat(normalized.getItems().get(0).getPrice()).isEqualTo(70.0);
+        assertThat(normalized.getTotalPrice()).isEqualTo(280.0);
+    }
+
+    @Test
+    void normalize_SameContentInDifferentOrder_ShouldProduceSameHash() {
+        CartDTO first = CartDTO.builder()
+                .items(List.of(
+                        CartItemDTO.builder().productId(1L).quantity(2).price(100.0).build(),
+                        CartItemDTO.builder().productId(2L).quantity(1).price(30.0).build()
+                ))
+                .build();
+        CartDTO second = CartDTO.builder()
+                .items(List.of(
+                        CartItemDTO.builder().productId(2L).quantity(1).price(30.0).build(),
+                        CartItemDTO.builder().productId(1L).quantity(1).price(100.0).build(),
+                        CartItemDTO.builder().productId(1L).quantity(1).price(100.0).build()
+                ))
+                .build();
+
+        assertThat(cartNormalizer.normalize(first).getCartHash())
+                .isEqualTo(cartNormalizer.normalize(second).getCartHash());
+    }
+
+    @Test
+    void normalize_DifferentQuantities_ShouldProduceDifferentHash() {
+        CartDTO first = CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(100.0).build()))
+                .build();
+        CartDTO second = CartDTO.builder()
+                .items(List.of(CartItemDTO.builder().productId(1L).quantity(3).price(100.0).build()))
+                .build();
+
+        assertThat(cartNormalizer.normalize(first).getCartHash())
+                .isNotEqualTo(cartNormalizer.normalize(second).getCartHash());
+    }
+}
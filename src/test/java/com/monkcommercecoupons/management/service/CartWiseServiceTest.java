@@ -7,6 +7,7 @@ import com.monkcommercecoupons.management.model.dto.CartItemDTO;
 import com.monkcommercecoupons.management.model.dto.UpdatedCartDTO;
 import com.monkcommercecoupons.management.model.entity.Coupon;
 import com.monkcommercecoupons.management.model.enums.CouponType;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -23,7 +24,8 @@ class CartWiseServiceTest {
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        cartWiseService = new CartWiseServiceImpl(objectMapper);
+        cartWiseService = new CartWiseServiceImpl(
+                new CouponDetailsMapper(objectMapper, Validation.buildDefaultValidatorFactory().getValidator()));
     }
 
     @Test
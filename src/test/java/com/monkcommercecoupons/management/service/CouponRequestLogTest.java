@@ -0,0 +1,75 @@
+package com.monkcommercecoupons.management.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.monkcommercecoupons.management.config.RequestLogProperties;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CouponRequestLogTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(CouponRequestLog.LOGGER_NAME);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Level previousLevel;
+
+    private final CartDTO cart = new CartNormalizer().normalize(CartDTO.builder()
+            .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(50.0).build()))
+            .build());
+
+    @BeforeEach
+    void setUp() {
+        // Spring contexts started earlier in the same JVM may have raised the levels (test profile uses WARN)
+        previousLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(previousLevel);
+    }
+
+    @Test
+    void fullSampleRate_ShouldWriteOneSummaryLinePerRequest() {
+        CouponRequestLog requestLog = new CouponRequestLog(sampleRate(1.0));
+
+        requestLog.applicableCoupons("m1", cart, 3, 2, System.nanoTime());
+        requestLog.applyCoupon("m1", 7L, cart, "applied", System.nanoTime());
+
+        assertThat(appender.list).hasSize(2);
+        assertThat(appender.list.get(0).getFormattedMessage())
+                .startsWith("endpoint=applicable-coupons merchant=m1 items=1 cartHash=" + cart.getCartHash())
+                .contains("candidates=3 applicable=2 micros=");
+        assertThat(appender.list.get(1).getFormattedMessage())
+                .contains("endpoint=apply-coupon merchant=m1 couponId=7", "outcome=applied");
+    }
+
+    @Test
+    void zeroSampleRate_ShouldWriteNothing() {
+        CouponRequestLog requestLog = new CouponRequestLog(sampleRate(0.0));
+
+        for (int i = 0; i < 1000; i++) {
+            requestLog.applicableCoupons("m1", cart, 1, 1, System.nanoTime());
+        }
+
+        assertThat(appender.list).isEmpty();
+    }
+
+    private static RequestLogProperties sampleRate(double rate) {
+        RequestLogProperties properties = new RequestLogProperties();
+        properties.setRequestSampleRate(rate);
+        return properties;
+    }
+}
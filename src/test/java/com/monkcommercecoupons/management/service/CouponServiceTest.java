@@ -2,12 +2,29 @@ package com.monkcommercecoupons.management.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.monkcommercecoupons.management.config.CouponCodeProperties;
+import com.monkcommercecoupons.management.config.RequestLogProperties;
+import com.monkcommercecoupons.management.config.ShadowProperties;
+import com.monkcommercecoupons.management.engine.CompactCouponCatalog;
+import com.monkcommercecoupons.management.engine.CouponChangeFeed;
+import com.monkcommercecoupons.management.engine.CouponCodeIndex;
+import com.monkcommercecoupons.management.engine.CouponEvaluationNetwork;
+import com.monkcommercecoupons.management.engine.ShadowEvaluation;
 import com.monkcommercecoupons.management.exception.CouponNotFoundException;
 import com.monkcommercecoupons.management.exception.DuplicateCouponCodeException;
+import com.monkcommercecoupons.management.exception.InvalidCouponException;
+import com.monkcommercecoupons.management.exception.ServiceOverloadedException;
+import com.monkcommercecoupons.management.model.dto.ApplyCouponResponse;
+import com.monkcommercecoupons.management.model.dto.CartDTO;
+import com.monkcommercecoupons.management.model.dto.CartItemDTO;
+import com.monkcommercecoupons.management.model.dto.CartRequest;
 import com.monkcommercecoupons.management.model.dto.CouponDTO;
+import com.monkcommercecoupons.management.model.dto.UpdatedCartDTO;
 import com.monkcommercecoupons.management.model.entity.Coupon;
 import com.monkcommercecoupons.management.model.enums.CouponType;
 import com.monkcommercecoupons.management.repository.CouponRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,14 +35,21 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CouponServiceTest {
 
+    private static final String MERCHANT_ID = "merchant-1";
+    private static final String CLIENT_KEY = "client-1";
+
     @Mock
     private CouponRepository couponRepository;
 
@@ -38,6 +62,24 @@ class CouponServiceTest {
     @Mock
     private BxGyService bxGyService;
 
+    @Mock
+    private CouponEvaluationNetwork couponEvaluationNetwork;
+
+    @Mock
+    private CouponChangeFeed couponChangeFeed;
+
+    @Mock
+    private RedemptionStatsService redemptionStatsService;
+
+    @Mock
+    private RedemptionLedger redemptionLedger;
+
+    @Mock
+    private CouponCodeIndex couponCodeIndex;
+
+    @Mock
+    private CompactCouponCatalog compactCouponCatalog;
+
     @InjectMocks
     private CouponServiceImpl couponService;
 
@@ -51,7 +93,17 @@ class CouponServiceTest {
                 cartWiseService,
                 productWiseService,
                 bxGyService,
-                objectMapper
+                objectMapper,
+                new CouponDetailsMapper(objectMapper, Validation.buildDefaultValidatorFactory().getValidator()),
+                couponEvaluationNetwork,
+                couponChangeFeed,
+                new CouponRequestLog(new RequestLogProperties()),
+                redemptionStatsService,
+                redemptionLedger,
+                new UnknownCouponCodes(new CouponCodeProperties()),
+                couponCodeIndex,
+                new ShadowEvaluation(new ShadowProperties(), List.of(), new SimpleMeterRegistry()),
+                compactCouponCatalog
         );
     }
 
@@ -79,10 +131,10 @@ class CouponServiceTest {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        when(couponRepository.existsByCode("SAVE10")).thenReturn(false);
+        when(couponRepository.existsByMerchantIdAndCode(MERCHANT_ID, "SAVE10")).thenReturn(false);
         when(couponRepository.save(any(Coupon.class))).thenReturn(savedCoupon);
 
-        CouponDTO result = couponService.createCoupon(couponDTO);
+        CouponDTO result = couponService.createCoupon(MERCHANT_ID, couponDTO);
 
         assertThat(result).isNotNull();
         assertThat(result.getId()).isEqualTo(1L);
@@ -101,13 +153,89 @@ class CouponServiceTest {
                 .details(details)
                 .build();
 
-        when(couponRepository.existsByCode("SAVE10")).thenReturn(true);
+        when(couponRepository.existsByMerchantIdAndCode(MERCHANT_ID, "SAVE10")).thenReturn(true);
 
-        assertThatThrownBy(() -> couponService.createCoupon(couponDTO))
+        assertThatThrownBy(() -> couponService.createCoupon(MERCHANT_ID, couponDTO))
                 .isInstanceOf(DuplicateCouponCodeException.class)
                 .hasMessageContaining("SAVE10");
     }
 
+    @Test
+    void createCoupon_WithMissingThreshold_ShouldThrowException() {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("discount", 10.0);
+
+        CouponDTO couponDTO = CouponDTO.builder()
+                .code("SAVE10")
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .build();
+
+        when(couponRepository.existsByMerchantIdAndCode(MERCHANT_ID, "SAVE10")).thenReturn(false);
+
+        assertThatThrownBy(() -> couponService.createCoupon(MERCHANT_ID, couponDTO))
+                .isInstanceOf(InvalidCouponException.class)
+                .hasMessageContaining("threshold");
+        verify(couponRepository, never()).save(any(Coupon.class));
+    }
+
+    @Test
+    void createCoupon_WithPercentageAbove100_ShouldThrowException() {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("productId", 1);
+        details.put("discount", 150.0);
+        details.put("discountType", "PERCENTAGE");
+
+        CouponDTO couponDTO = CouponDTO.builder()
+                .code("PRODUCT150")
+                .type(CouponType.PRODUCT_WISE)
+                .details(details)
+                .build();
+
+        when(couponRepository.existsByMerchantIdAndCode(MERCHANT_ID, "PRODUCT150")).thenReturn(false);
+
+        assertThatThrownBy(() -> couponService.createCoupon(MERCHANT_ID, couponDTO))
+                .isInstanceOf(InvalidCouponException.class)
+                .hasMessageContaining("cannot exceed 100");
+    }
+
+    @Test
+    void createCoupon_WithUnknownDetailsField_ShouldThrowException() {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("treshold", 100.0);
+        details.put("discount", 10.0);
+
+        CouponDTO couponDTO = CouponDTO.builder()
+                .code("TYPO")
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .build();
+
+        when(couponRepository.existsByMerchantIdAndCode(MERCHANT_ID, "TYPO")).thenReturn(false);
+
+        assertThatThrownBy(() -> couponService.createCoupon(MERCHANT_ID, couponDTO))
+                .isInstanceOf(InvalidCouponException.class)
+                .hasMessageContaining("treshold");
+    }
+
+    @Test
+    void createCoupon_BxGyWithoutGetProducts_ShouldThrowException() {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.putArray("buyProducts").addObject().put("productId", 1).put("quantity", 2);
+
+        CouponDTO couponDTO = CouponDTO.builder()
+                .code("B2G1")
+                .type(CouponType.BXGY)
+                .details(details)
+                .build();
+
+        when(couponRepository.existsByMerchantIdAndCode(MERCHANT_ID, "B2G1")).thenReturn(false);
+
+        assertThatThrownBy(() -> couponService.createCoupon(MERCHANT_ID, couponDTO))
+                .isInstanceOf(InvalidCouponException.class)
+                .hasMessageContaining("getProducts");
+    }
+
     @Test
     void getCouponById_WhenExists_ShouldReturnCoupon() {
         Coupon coupon = Coupon.builder()
@@ -118,9 +246,9 @@ class CouponServiceTest {
                 .isActive(true)
                 .build();
 
-        when(couponRepository.findById(1L)).thenReturn(Optional.of(coupon));
+        when(couponRepository.findByIdAndMerchantId(1L, MERCHANT_ID)).thenReturn(Optional.of(coupon));
 
-        CouponDTO result = couponService.getCouponById(1L);
+        CouponDTO result = couponService.getCouponById(MERCHANT_ID, 1L);
 
         assertThat(result).isNotNull();
         assertThat(result.getId()).isEqualTo(1L);
@@ -129,9 +257,9 @@ class CouponServiceTest {
 
     @Test
     void getCouponById_WhenNotExists_ShouldThrowException() {
-        when(couponRepository.findById(999L)).thenReturn(Optional.empty());
+        when(couponRepository.findByIdAndMerchantId(999L, MERCHANT_ID)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> couponService.getCouponById(999L))
+        assertThatThrownBy(() -> couponService.getCouponById(MERCHANT_ID, 999L))
                 .isInstanceOf(CouponNotFoundException.class)
                 .hasMessageContaining("999");
     }
@@ -153,9 +281,9 @@ class CouponServiceTest {
                         .build()
         );
 
-        when(couponRepository.findAll()).thenReturn(coupons);
+        when(couponRepository.findByMerchantId(MERCHANT_ID)).thenReturn(coupons);
 
-        List<CouponDTO> result = couponService.getAllCoupons();
+        List<CouponDTO> result = couponService.getAllCoupons(MERCHANT_ID);
 
         assertThat(result).hasSize(2);
         assertThat(result.get(0).getCode()).isEqualTo("SAVE10");
@@ -164,18 +292,114 @@ class CouponServiceTest {
 
     @Test
     void deleteCoupon_WhenExists_ShouldDeleteSuccessfully() {
-        when(couponRepository.existsById(1L)).thenReturn(true);
+        Coupon coupon = Coupon.builder().id(1L).merchantId(MERCHANT_ID).code("SAVE10").build();
+        when(couponRepository.findByIdAndMerchantId(1L, MERCHANT_ID)).thenReturn(Optional.of(coupon));
 
-        couponService.deleteCoupon(1L);
+        couponService.deleteCoupon(MERCHANT_ID, 1L);
 
         verify(couponRepository).deleteById(1L);
+        verify(couponCodeIndex).removed(MERCHANT_ID, 1L, "SAVE10");
     }
 
     @Test
     void deleteCoupon_WhenNotExists_ShouldThrowException() {
-        when(couponRepository.existsById(999L)).thenReturn(false);
+        when(couponRepository.findByIdAndMerchantId(999L, MERCHANT_ID)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> couponService.deleteCoupon(999L))
+        assertThatThrownBy(() -> couponService.deleteCoupon(MERCHANT_ID, 999L))
                 .isInstanceOf(CouponNotFoundException.class);
     }
+
+    @Test
+    void applyCouponByCode_UnknownCode_ShouldOnlyQueryDatabaseOnce() {
+        CartRequest request = CartRequest.builder()
+                .cart(CartDTO.builder()
+                        .items(List.of(CartItemDTO.builder().productId(1L).quantity(1).price(50.0).build()))
+                        .build())
+                .build();
+        when(couponEvaluationNetwork.findCouponId(eq(MERCHANT_ID), any())).thenReturn(null);
+
+        assertThatThrownBy(() -> couponService.applyCouponByCode(MERCHANT_ID, CLIENT_KEY, "nope", request))
+                .isInstanceOf(CouponNotFoundException.class);
+        assertThatThrownBy(() -> couponService.applyCouponByCode(MERCHANT_ID, CLIENT_KEY, " NOPE ", request))
+                .isInstanceOf(CouponNotFoundException.class);
+
+        verify(couponRepository, times(1)).findByMerchantIdAndCode(MERCHANT_ID, "NOPE");
+    }
+
+    @Test
+    void applyCoupon_WhenRedemptionIsNotRecorded_ShouldReleaseSingleUseCoupon() {
+        CartRequest request = CartRequest.builder()
+                .cart(CartDTO.builder()
+                        .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build()))
+                        .build())
+                .build();
+        Coupon coupon = Coupon.builder()
+                .id(1L)
+                .code("GIFT-AB23")
+                .type(CouponType.CART_WISE)
+                .details("{\"threshold\":100.0,\"discount\":10.0}")
+                .isActive(true)
+                .singleUse(true)
+                .build();
+        UpdatedCartDTO updatedCart = UpdatedCartDTO.builder()
+                .items(List.of())
+                .totalPrice(120.0)
+                .totalDiscount(12.0)
+                .finalPrice(108.0)
+                .build();
+        when(couponRepository.findByIdAndMerchantId(1L, MERCHANT_ID)).thenReturn(Optional.of(coupon));
+        when(cartWiseService.applyDiscount(eq(coupon), any())).thenReturn(updatedCart);
+        when(couponRepository.markUsed(1L)).thenReturn(1);
+        doThrow(new ServiceOverloadedException("Redemption ledger is backlogged, retry shortly"))
+                .doNothing()
+                .when(redemptionLedger).recordAndWait(MERCHANT_ID, 1L, updatedCart);
+
+        assertThatThrownBy(() -> couponService.applyCoupon(MERCHANT_ID, CLIENT_KEY, 1L, request))
+                .isInstanceOf(ServiceOverloadedException.class);
+        verify(couponRepository).release(1L);
+
+        assertThat(couponService.applyCoupon(MERCHANT_ID, CLIENT_KEY, 1L, request).getUpdatedCart()).isSameAs(updatedCart);
+        verify(couponRepository, times(2)).markUsed(1L);
+        verify(couponRepository, times(1)).release(1L);
+    }
+
+    @Test
+    void applyCoupon_SameCartFromTwoClients_ShouldRecordTwoRedemptions() throws Exception {
+        CartRequest request = CartRequest.builder()
+                .cart(new CartNormalizer().normalize(CartDTO.builder()
+                        .items(List.of(CartItemDTO.builder().productId(1L).quantity(2).price(60.0).build()))
+                        .build()))
+                .build();
+        Coupon coupon = Coupon.builder()
+                .id(1L)
+                .code("SAVE10")
+                .type(CouponType.CART_WISE)
+                .details("{\"threshold\":100.0,\"discount\":10.0}")
+                .isActive(true)
+                .build();
+        UpdatedCartDTO updatedCart = UpdatedCartDTO.builder()
+                .items(List.of())
+                .totalPrice(120.0)
+                .totalDiscount(12.0)
+                .finalPrice(108.0)
+                .build();
+        when(couponEvaluationNetwork.versionOf(MERCHANT_ID, 1L)).thenReturn(0L);
+        when(couponRepository.findByIdAndMerchantId(1L, MERCHANT_ID)).thenReturn(Optional.of(coupon));
+        // Both applies are in flight together: a shared flight would leave the latch at 1.
+        CountDownLatch bothApplying = new CountDownLatch(2);
+        when(cartWiseService.applyDiscount(eq(coupon), any())).thenAnswer(invocation -> {
+            bothApplying.countDown();
+            bothApplying.await(5, TimeUnit.SECONDS);
+            return updatedCart;
+        });
+
+        CompletableFuture<ApplyCouponResponse> other = CompletableFuture.supplyAsync(() ->
+                couponService.applyCoupon(MERCHANT_ID, "client-2", 1L, request));
+        couponService.applyCoupon(MERCHANT_ID, CLIENT_KEY, 1L, request);
+        other.get(5, TimeUnit.SECONDS);
+
+        assertThat(bothApplying.getCount()).isZero();
+        verify(redemptionLedger, times(2)).recordAndWait(MERCHANT_ID, 1L, updatedCart);
+        verify(redemptionStatsService, times(2)).recordRedemption(MERCHANT_ID, 1L, 12.0);
+    }
 }
@@ -0,0 +1,103 @@
+package com.monkcommercecoupons.management.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.monkcommercecoupons.management.config.SimulationProperties;
+import com.monkcommercecoupons.management.exception.CorpusUnavailableException;
+import com.monkcommercecoupons.management.model.dto.CouponDTO;
+import com.monkcommercecoupons.management.model.dto.SimulationResponse;
+import com.monkcommercecoupons.management.model.enums.CouponType;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CouponSimulationServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private ObjectMapper objectMapper;
+    private SimulationProperties properties;
+    private CouponSimulationServiceImpl simulationService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        CouponDetailsMapper mapper = new CouponDetailsMapper(objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator());
+        properties = new SimulationProperties();
+        properties.setParallelism(2);
+        properties.setChunkSize(2);
+        simulationService = new CouponSimulationServiceImpl(mapper, new CartWiseServiceImpl(mapper),
+                new ProductWiseServiceImpl(mapper), new BxGyServiceImpl(mapper), new CartNormalizer(),
+                objectMapper, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        simulationService.shutdown();
+    }
+
+    @Test
+    void simulate_ShouldAggregateDiscountsOverTheCorpus() throws IOException {
+        Path corpus = directory.resolve("carts.ndjson");
+        Files.write(corpus, List.of(
+                "{\"items\":[{\"product_id\":1,\"quantity\":2,\"price\":60.0}]}",
+                "{\"items\":[{\"product_id\":1,\"quantity\":1,\"price\":50.0}]}",
+                "{\"merchant\":\"default\",\"cart\":{\"items\":[{\"product_id\":2,\"quantity\":1,\"price\":1000.0}]}}",
+                "{\"merchant\":\"other\",\"cart\":{\"items\":[{\"product_id\":2,\"quantity\":1,\"price\":1000.0}]}}",
+                "",
+                "{\"items\":[{\"product_id\":1,\"quantity\":0,\"price\":50.0}]}",
+                "not json",
+                "{\"items\":[{\"product_id\":3,\"quantity\":1,\"price\":80.0},{\"product_id\":3,\"quantity\":1,\"price\":80.0}]}"));
+        properties.setCorpusFile(corpus);
+
+        SimulationResponse response = simulationService.simulate("default", cartWiseDraft());
+
+        assertThat(response.getCarts()).isEqualTo(4);
+        assertThat(response.getSkipped()).isEqualTo(3);
+        assertThat(response.getHits()).isEqualTo(3);
+        assertThat(response.getHitRate()).isEqualTo(0.75);
+        assertThat(response.getTotalDiscount()).isEqualTo(128.0);
+        assertThat(response.getTotalCartValue()).isEqualTo(1330.0);
+        assertThat(response.getMaxDiscount()).isEqualTo(100.0);
+        assertThat(response.getDistribution())
+                .filteredOn(bucket -> bucket.getCarts() > 0)
+                .extracting(SimulationResponse.Bucket::getFrom, SimulationResponse.Bucket::getCarts)
+                .containsExactly(
+                        tuple(10.0, 2L),
+                        tuple(100.0, 1L));
+    }
+
+    @Test
+    void simulate_WithoutCorpus_ShouldBeUnavailable() {
+        properties.setCorpusFile(directory.resolve("missing.ndjson"));
+
+        assertThatThrownBy(() -> simulationService.simulate("default", cartWiseDraft()))
+                .isInstanceOf(CorpusUnavailableException.class);
+    }
+
+    private CouponDTO cartWiseDraft() {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("threshold", 100.0);
+        details.put("discount", 10.0);
+        details.put("discountType", "PERCENTAGE");
+        return CouponDTO.builder()
+                .code("DRAFT10")
+                .type(CouponType.CART_WISE)
+                .details(details)
+                .build();
+    }
+}
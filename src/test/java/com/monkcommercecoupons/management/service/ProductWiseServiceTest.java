@@ -7,6 +7,7 @@ import com.monkcommercecoupons.management.model.dto.CartItemDTO;
 import com.monkcommercecoupons.management.model.dto.UpdatedCartDTO;
 import com.monkcommercecoupons.management.model.entity.Coupon;
 import com.monkcommercecoupons.management.model.enums.CouponType;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -22,7 +23,8 @@ class ProductWiseServiceTest {
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        productWiseService = new ProductWiseServiceImpl(objectMapper);
+        productWiseService = new ProductWiseServiceImpl(
+                new CouponDetailsMapper(objectMapper, Validation.buildDefaultValidatorFactory().getValidator()));
     }
 
     @Test
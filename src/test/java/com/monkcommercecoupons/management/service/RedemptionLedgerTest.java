@@ -0,0 +1,172 @@
+package com.monkcommercecoupons.management.service;
+
+import com.monkcommercecoupons.management.config.LedgerProperties;
+import com.monkcommercecoupons.management.exception.ServiceOverloadedException;
+import com.monkcommercecoupons.management.model.dto.UpdatedCartDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedemptionLedgerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final List<Integer> committedGroups = new ArrayList<>();
+    private final CountDownLatch writerReleased = new CountDownLatch(1);
+    private LedgerProperties properties;
+    private RedemptionLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LedgerProperties();
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object>>any()))
+                .thenAnswer(invocation -> {
+                    writerReleased.await(5, TimeUnit.SECONDS);
+                    synchronized (committedGroups) {
+                        committedGroups.add(invocation.<Collection<?>>getArgument(1).size());
+                    }
+                    return new int[0][];
+                });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writerReleased.countDown();
+        ledger.stop();
+    }
+
+    @Test
+    void record_ConcurrentRedemptions_ShouldShareOneCommit() {
+        properties.setMaxGroupDelay(Duration.ofMillis(500));
+        properties.setMaxGroupSize(10);
+        ledger = newLedger();
+
+        List<CompletableFuture<Void>> completions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            completions.add(ledger.record("merchant-1", (long) i, cart()));
+        }
+        writerReleased.countDown();
+        CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(committedGroups).containsExactly(10);
+    }
+
+    @Test
+    void record_WhenQueueIsFull_ShouldRejectAfterTimeout() {
+        properties.setQueueCapacity(1);
+        properties.setMaxGroupSize(1);
+        properties.setEnqueueTimeout(Duration.ofMillis(20));
+        ledger = newLedger();
+
+        CompletableFuture<Void> committing = ledger.record("merchant-1", 1L, cart());
+        verify(jdbcTemplate, timeout(1000)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object>>any());
+        CompletableFuture<Void> queued = ledger.record("merchant-1", 2L, cart());
+
+        assertThatThrownBy(() -> ledger.record("merchant-1", 3L, cart()))
+                .isInstanceOf(ServiceOverloadedException.class);
+
+        writerReleased.countDown();
+        CompletableFuture.allOf(committing, queued).join();
+        assertThat(committedGroups).containsExactly(1, 1);
+    }
+
+    @Test
+    void recordAndWait_WhenStillQueuedAfterTimeout_ShouldWithdrawAndReject() {
+        properties.setMaxGroupSize(1);
+        properties.setCommitTimeout(Duration.ofMillis(20));
+        ledger = newLedger();
+
+        CompletableFuture<Void> committing = ledger.record("merchant-1", 1L, cart());
+        verify(jdbcTemplate, timeout(1000)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object>>any());
+
+        assertThatThrownBy(() -> ledger.recordAndWait("merchant-1", 2L, cart()))
+                .isInstanceOf(ServiceOverloadedException.class);
+
+        writerReleased.countDown();
+        committing.join();
+        ledger.record("merchant-1", 3L, cart()).join();
+        assertThat(committedGroups).containsExactly(1, 1);
+    }
+
+    @Test
+    void recordAndWait_WhenBeingCommittedAfterTimeout_ShouldWaitForTheCommit() throws InterruptedException {
+        properties.setCommitTimeout(Duration.ofMillis(20));
+        properties.setMaxGroupDelay(Duration.ZERO);
+        ledger = newLedger();
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> ledger.recordAndWait("merchant-1", 1L, cart()));
+        verify(jdbcTemplate, timeout(1000)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object>>any());
+        Thread.sleep(50);
+        assertThat(waiting).isNotDone();
+
+        writerReleased.countDown();
+        waiting.join();
+        assertThat(committedGroups).containsExactly(1);
+    }
+
+    @Test
+    void recordAndWait_WhenTheInsertFails_ShouldRejectAsOverloadedWithinTheCommitTimeout() {
+        properties.setCommitTimeout(Duration.ofSeconds(3));
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object>>any()))
+                .thenThrow(new QueryTimeoutException("Statement cancelled"));
+        ledger = newLedger();
+
+        assertThatThrownBy(() -> ledger.recordAndWait("merchant-1", 1L, cart()))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .hasCauseInstanceOf(QueryTimeoutException.class);
+        verify(transactionManager).getTransaction(argThat(definition -> definition.getTimeout() == 3));
+    }
+
+    @Test
+    void stop_ShouldCommitQueuedRedemptions() throws InterruptedException {
+        properties.setMaxGroupDelay(Duration.ofSeconds(5));
+        ledger = newLedger();
+        CompletableFuture<Void> completion = ledger.record("merchant-1", 1L, cart());
+        writerReleased.countDown();
+
+        ledger.stop();
+
+        assertThat(completion).isCompleted();
+        assertThat(committedGroups).containsExactly(1);
+    }
+
+    private RedemptionLedger newLedger() {
+        RedemptionLedger created = new RedemptionLedger(jdbcTemplate, transactionManager, properties,
+                new SimpleMeterRegistry());
+        created.start();
+        return created;
+    }
+
+    private static UpdatedCartDTO cart() {
+        return UpdatedCartDTO.builder()
+                .items(List.of())
+                .totalPrice(100.0)
+                .totalDiscount(10.0)
+                .finalPrice(90.0)
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.monkcommercecoupons.management.startup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WarmupTrafficTest {
+
+    private final WarmupTraffic warmupTraffic = new WarmupTraffic();
+
+    @Test
+    void isWarmup_ShouldOnlyAcceptTheRunningWarmupsToken() {
+        MockHttpServletRequest unmarked = new MockHttpServletRequest();
+        MockHttpServletRequest forged = new MockHttpServletRequest();
+        forged.addHeader(WarmupTraffic.HEADER, "guess");
+        assertThat(warmupTraffic.isWarmup(unmarked)).isFalse();
+
+        MockHttpServletRequest marked = new MockHttpServletRequest();
+        marked.addHeader(WarmupTraffic.HEADER, warmupTraffic.begin());
+
+        assertThat(warmupTraffic.isWarmup(marked)).isTrue();
+        assertThat(warmupTraffic.isWarmup(unmarked)).isFalse();
+        assertThat(warmupTraffic.isWarmup(forged)).isFalse();
+
+        warmupTraffic.end();
+        assertThat(warmupTraffic.isWarmup(marked)).isFalse();
+    }
+}
@@ -0,0 +1,37 @@
+package com.monkcommercecoupons.management.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_ShouldNeverMissAddedValues() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("CODE-" + i));
+
+        assertThat(IntStream.range(0, 10_000)).allMatch(i -> filter.mightContain("CODE-" + i));
+    }
+
+    @Test
+    void mightContain_ShouldFlagAboutTheConfiguredShareOfAbsentValues() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        IntStream.range(0, 100_000).forEach(i -> filter.add("CODE-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("OTHER-" + i))
+                .count();
+
+        assertThat(falsePositives).isBetween(500L, 1_500L);
+        assertThat(filter.bitCount()).isLessThan(100_000L * 10);
+    }
+
+    @Test
+    void constructor_InvalidFalsePositiveRate_ShouldBeRejected() {
+        assertThatThrownBy(() -> new BloomFilter(100, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}